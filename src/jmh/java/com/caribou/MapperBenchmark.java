@@ -0,0 +1,81 @@
+package com.caribou;
+
+import com.caribou.auth.domain.UserAccount;
+import com.caribou.company.domain.CompanyEmployee;
+import com.caribou.company.domain.Role;
+import com.caribou.company.rest.dto.EmployeeDto;
+import com.caribou.holiday.domain.Leave;
+import com.caribou.holiday.rest.dto.LeaveDto;
+import ma.glasnost.orika.MapperFacade;
+import ma.glasnost.orika.MapperFactory;
+import ma.glasnost.orika.impl.DefaultMapperFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Orika mappings the REST controllers do for every item of a list, configured the same way as in the application
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapperBenchmark {
+
+    private MapperFacade mapperFacade;
+
+    private Leave leave;
+
+    private CompanyEmployee employee;
+
+    @Setup
+    public void setUp() {
+        MapperFactory mapperFactory = new DefaultMapperFactory.Builder().build();
+        new OrikaMapper().configure(mapperFactory);
+        mapperFacade = mapperFactory.getMapperFacade();
+
+        UserAccount userAccount = UserAccount.newBuilder()
+                .email("Bernhard.Cummerata@email.com")
+                .firstName("Bernhard")
+                .lastName("Cummerata")
+                .password("password")
+                .build();
+        leave = Leave.builder()
+                .userAccount(userAccount)
+                .starting(Timestamp.valueOf(LocalDateTime.of(2017, 5, 2, 0, 0)))
+                .ending(Timestamp.valueOf(LocalDateTime.of(2017, 5, 5, 0, 0)))
+                .numberOfDays(BigDecimal.valueOf(4))
+                .status(Leave.Status.APPROVED)
+                .reason("Holiday")
+                .build();
+        employee = new CompanyEmployee();
+        employee.setMember(userAccount);
+        employee.setRole(Role.Viewer);
+    }
+
+    @Benchmark
+    public LeaveDto leaveToDto() {
+        return mapperFacade.map(leave, LeaveDto.class);
+    }
+
+    @Benchmark
+    public EmployeeDto employeeToDto() {
+        return mapperFacade.map(employee, EmployeeDto.class);
+    }
+
+}
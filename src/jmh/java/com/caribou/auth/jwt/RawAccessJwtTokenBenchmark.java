@@ -0,0 +1,65 @@
+package com.caribou.auth.jwt;
+
+import com.caribou.company.domain.Role;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jws;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Collections;
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Parsing and signature check of an access token, done on every authenticated request
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RawAccessJwtTokenBenchmark {
+
+    private static final String SIGNING_KEY = "dummy";
+
+    private RawAccessJwtToken token;
+
+    @Setup
+    public void setUp() {
+        Claims claims = Jwts.claims().setSubject("Bernhard.Cummerata@email.com");
+        claims.put(JwtClaims.SCOPES, Collections.singletonList("ROLE_USER"));
+        claims.put(JwtClaims.COMPANY, UUID.randomUUID());
+        claims.put(JwtClaims.ROLE_IN_COMPANY, Role.Viewer);
+        claims.put(JwtClaims.USER_UID, UUID.randomUUID());
+        Instant now = Instant.now();
+        String jwt = Jwts.builder()
+                .setClaims(claims)
+                .setIssuer("http://caribou.com")
+                .setIssuedAt(Date.from(now))
+                .setExpiration(Date.from(now.plus(1, ChronoUnit.DAYS)))
+                .signWith(SignatureAlgorithm.HS512, SIGNING_KEY)
+                .compact();
+        token = new RawAccessJwtToken(jwt);
+    }
+
+    @Benchmark
+    public Jws<Claims> parseClaims() {
+        return token.parseClaims(SIGNING_KEY);
+    }
+
+}
@@ -0,0 +1,78 @@
+package com.caribou.holiday.service;
+
+import com.caribou.holiday.domain.BankHoliday;
+import com.caribou.holiday.domain.Leave;
+import com.caribou.holiday.repository.BankHolidayRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Days of leaves of different lengths, bank holidays come from a stubbed repository and stay cached by the calendar
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NumberOfBookedDaysBenchmark {
+
+    private static final List<Date> CZ_HOLIDAYS = Arrays.asList(
+            Date.valueOf("2017-01-01"), Date.valueOf("2017-04-14"), Date.valueOf("2017-04-17"), Date.valueOf("2017-05-01"),
+            Date.valueOf("2017-05-08"), Date.valueOf("2017-07-05"), Date.valueOf("2017-07-06"), Date.valueOf("2017-09-28"),
+            Date.valueOf("2017-10-28"), Date.valueOf("2017-11-17"), Date.valueOf("2017-12-24"), Date.valueOf("2017-12-25"),
+            Date.valueOf("2017-12-26")
+    );
+
+    @Param({"1", "14", "365"})
+    private int days;
+
+    private BankHolidayCalendar bankHolidayCalendar;
+
+    private Leave leave;
+
+    @Setup
+    public void setUp() {
+        BankHolidayRepository repository = (BankHolidayRepository) Proxy.newProxyInstance(
+                BankHolidayRepository.class.getClassLoader(),
+                new Class[]{BankHolidayRepository.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("findDates")) {
+                        return CZ_HOLIDAYS;
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                }
+        );
+        bankHolidayCalendar = new BankHolidayCalendar(repository);
+        LocalDate starting = LocalDate.of(2017, 1, 2);
+        leave = Leave.builder()
+                .starting(Timestamp.valueOf(starting.atStartOfDay()))
+                .ending(Timestamp.valueOf(starting.plusDays(days - 1).atTime(23, 59)))
+                .build();
+    }
+
+    @Benchmark
+    public BigDecimal numberOfBookedDays() {
+        return bankHolidayCalendar.numberOfBookedDays(leave, BankHoliday.Country.CZ);
+    }
+
+}
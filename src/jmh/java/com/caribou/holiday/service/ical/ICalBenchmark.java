@@ -0,0 +1,98 @@
+package com.caribou.holiday.service.ical;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Rendering of calendars as a string and as a feed written to a stream
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ICalBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int events;
+
+    private VCalendar calendar;
+
+    @Setup
+    public void setUp() {
+        List<VEvent> vEvents = new ArrayList<>(events);
+        LocalDate day = LocalDate.of(2017, 1, 2);
+        Instant now = Instant.parse("2017-07-11T20:07:23Z");
+        for (int i = 0; i < events; i++) {
+            vEvents.add(VEvent.builder()
+                    .dtStartValueDate(day.plusDays(i))
+                    .dtEndValueDate(day.plusDays(i + 2))
+                    .dtstamp(now)
+                    .created(now)
+                    .lastModified(now)
+                    .uid(UUID.randomUUID().toString())
+                    .description("Holiday of Bernhard Cummerata, approved by Department boss with a reason long enough to be folded")
+                    .status(VEvent.Status.CONFIRMED)
+                    .build());
+        }
+        calendar = VCalendar.builder()
+                .prodid("-//Caribou//Holiday//EN")
+                .calscale("GREGORIAN")
+                .method("PUBLISH")
+                .xWrCalName("Company")
+                .vEvents(vEvents)
+                .build();
+    }
+
+    @Benchmark
+    public String toICal() {
+        return calendar.toICal();
+    }
+
+    @Benchmark
+    public void writeFeed(Blackhole blackhole) throws IOException {
+        new ICalWriter(new BlackholeOutputStream(blackhole)).write(calendar).flush();
+    }
+
+    private static class BlackholeOutputStream extends OutputStream {
+
+        private final Blackhole blackhole;
+
+        private BlackholeOutputStream(Blackhole blackhole) {
+            this.blackhole = blackhole;
+        }
+
+        @Override
+        public void write(int b) {
+            blackhole.consume(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            blackhole.consume(b);
+        }
+
+    }
+
+}
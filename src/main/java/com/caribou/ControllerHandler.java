@@ -4,7 +4,12 @@ import com.caribou.auth.rest.dto.Error;
 import com.caribou.auth.rest.dto.ErrorField;
 import com.caribou.auth.rest.mapper.ErrorMapper;
 import com.caribou.company.rest.ErrorHandler;
+import com.caribou.company.service.InvalidCursor;
 import com.caribou.company.service.NotFound;
+import com.caribou.holiday.service.ApprovalConflict;
+import com.caribou.holiday.service.InvalidDateRange;
+import com.caribou.holiday.service.MinimumStaffingConflict;
+import com.caribou.holiday.service.OverlappingLeave;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.access.AccessDeniedException;
@@ -54,6 +59,55 @@ public class ControllerHandler {
         return error;
     }
 
+    @ExceptionHandler(InvalidCursor.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    @ResponseBody
+    public Error invalidCursor(InvalidCursor ex) {
+        Map<String, ErrorField> errors = new HashMap<>();
+        errors.put("cursor", ErrorField.builder()
+                .code("invalid cursor")
+                .build());
+
+        Error error = new Error(HttpStatus.BAD_REQUEST);
+        error.setValidationErrors(errors);
+        return error;
+    }
+
+    @ExceptionHandler(InvalidDateRange.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    @ResponseBody
+    public Error invalidDateRange(InvalidDateRange ex) {
+        Map<String, ErrorField> errors = new HashMap<>();
+        errors.put("to", ErrorField.builder()
+                .code("invalid range")
+                .build());
+
+        Error error = new Error(HttpStatus.BAD_REQUEST);
+        error.setValidationErrors(errors);
+        return error;
+    }
+
+    @ExceptionHandler(ApprovalConflict.class)
+    @ResponseStatus(HttpStatus.CONFLICT)
+    @ResponseBody
+    public Error approvalConflict(ApprovalConflict ex) {
+        Map<String, ErrorField> errors = new HashMap<>();
+        errors.put(ex.getField(), ErrorField.builder()
+                .code(ex.getMessage())
+                .build());
+
+        Error error = new Error(HttpStatus.CONFLICT);
+        error.setValidationErrors(errors);
+        return error;
+    }
+
+    @ExceptionHandler({MinimumStaffingConflict.class, OverlappingLeave.class})
+    @ResponseStatus(HttpStatus.CONFLICT)
+    @ResponseBody
+    public Error leaveConflict(RuntimeException ex) {
+        return ErrorHandler.conflict("starting", ex.getMessage());
+    }
+
     @ExceptionHandler(NotFound.class)
     @ResponseStatus(HttpStatus.NOT_FOUND)
     @ResponseBody
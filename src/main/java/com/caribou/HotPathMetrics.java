@@ -0,0 +1,85 @@
+package com.caribou;
+
+import lombok.Getter;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.aop.framework.AopProxyUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.metrics.CounterService;
+import org.springframework.boot.actuate.metrics.GaugeService;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+
+/**
+ * Latency timers and call counters of services and Spring Data repositories, exposed by the actuator as
+ * timer.service.LeaveService.create.snapshot.mean, counter.repository.LeaveRepository.save and so on. Failed calls are
+ * counted separately with an .errors suffix. Timers are Dropwizard timers, so the actuator reports percentiles of
+ * recent calls rather than the last one.
+ */
+@Aspect
+@Component
+public class HotPathMetrics {
+
+    private final CounterService counterService;
+
+    private final GaugeService gaugeService;
+
+    private final ConcurrentMap<Class<?>, ConcurrentMap<Method, Names>> names = new ConcurrentHashMap<>();
+
+    @Autowired
+    public HotPathMetrics(CounterService counterService, GaugeService gaugeService) {
+        this.counterService = counterService;
+        this.gaugeService = gaugeService;
+    }
+
+    @Around("execution(public * com.caribou.holiday.service.LeaveService.*(..)) " +
+            "|| execution(public * com.caribou.holiday.service.ICalService.*(..)) " +
+            "|| execution(public * com.caribou.company.service.EmployeeService.*(..)) " +
+            "|| execution(public * com.caribou.holiday.service.BankHolidayCalendar.numberOfBookedDays(..)) " +
+            "|| execution(* com.caribou.email.providers.Mailgun.send(..))")
+    public Object service(ProceedingJoinPoint joinPoint) throws Throwable {
+        return measure("service.", joinPoint.getSignature().getDeclaringType(), joinPoint);
+    }
+
+    @Around("execution(* org.springframework.data.repository.Repository+.*(..)) && target(org.springframework.data.repository.Repository)")
+    public Object repository(ProceedingJoinPoint joinPoint) throws Throwable {
+        // inherited methods like save are declared by CrudRepository, name them by the repository they're called on
+        Class<?>[] interfaces = AopProxyUtils.proxiedUserInterfaces(joinPoint.getTarget());
+        return measure("repository.", interfaces.length > 0 ? interfaces[0] : joinPoint.getSignature().getDeclaringType(), joinPoint);
+    }
+
+    private Object measure(String prefix, Class<?> type, ProceedingJoinPoint joinPoint) throws Throwable {
+        Names metric = names.computeIfAbsent(type, t -> new ConcurrentHashMap<>())
+                .computeIfAbsent(((MethodSignature) joinPoint.getSignature()).getMethod(), m -> new Names(prefix + type.getSimpleName() + "." + m.getName()));
+        long start = System.nanoTime();
+        try {
+            return joinPoint.proceed();
+        } catch (Throwable e) {
+            counterService.increment(metric.getErrors());
+            throw e;
+        } finally {
+            gaugeService.submit(metric.getTimer(), (System.nanoTime() - start) / 1e6);
+            counterService.increment(metric.getCounter());
+        }
+    }
+
+    @Getter
+    private static class Names {
+        private final String counter;
+        private final String errors;
+        private final String timer;
+
+        private Names(String name) {
+            this.counter = "counter." + name;
+            this.errors = "counter." + name + ".errors";
+            this.timer = "timer." + name;
+        }
+    }
+
+}
@@ -3,7 +3,9 @@ package com.caribou;
 import com.caribou.auth.domain.UserAccount;
 import com.caribou.auth.rest.dto.NestedSingleObject;
 import com.caribou.company.domain.CompanyEmployee;
+import com.caribou.company.repository.EmployeeSummary;
 import com.caribou.company.rest.dto.EmployeeDto;
+import ma.glasnost.orika.CustomConverter;
 import ma.glasnost.orika.MapperFactory;
 import ma.glasnost.orika.MappingContext;
 import ma.glasnost.orika.converter.BidirectionalConverter;
@@ -23,6 +25,7 @@ public class OrikaMapper implements OrikaMapperFactoryConfigurer {
     public void configure(MapperFactory orikaMapperFactory) {
         orikaMapperFactory.getConverterFactory().registerConverter(new Timestamp2LocalDate());
         orikaMapperFactory.getConverterFactory().registerConverter(new EmployeeConverter());
+        orikaMapperFactory.getConverterFactory().registerConverter(new EmployeeSummaryConverter());
         orikaMapperFactory.getConverterFactory().registerConverter(new UserAccountToSingleNested());
     }
 
@@ -58,6 +61,19 @@ public class OrikaMapper implements OrikaMapperFactoryConfigurer {
         }
     }
 
+    private class EmployeeSummaryConverter extends CustomConverter<EmployeeSummary, EmployeeDto> {
+        @Override
+        public EmployeeDto convert(EmployeeSummary source, Type<? extends EmployeeDto> destinationType, MappingContext mappingContext) {
+            return EmployeeDto.builder()
+                    .email(source.getEmail())
+                    .firstName(source.getFirstName())
+                    .lastName(source.getLastName())
+                    .role(source.getRole())
+                    .uid(source.getMemberUid())
+                    .build();
+        }
+    }
+
     private class UserAccountToSingleNested extends BidirectionalConverter<UserAccount, NestedSingleObject> {
 
         @Override
@@ -2,6 +2,8 @@ package com.caribou;
 
 import nz.net.ultraq.thymeleaf.LayoutDialect;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.MessageSource;
 import org.springframework.context.annotation.Bean;
@@ -9,11 +11,13 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.context.support.ResourceBundleMessageSource;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.thymeleaf.spring4.SpringTemplateEngine;
 import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
 import org.thymeleaf.templateresolver.TemplateResolver;
 
 import java.io.IOException;
+import java.util.Collections;
 
 @Configuration
 public class SpringMailConfig {
@@ -41,6 +45,22 @@ public class SpringMailConfig {
         return mailSender;
     }
 
+    /**
+     * Emails are sent in the background by these threads, waiting ones are reported as gauge.email.queue
+     */
+    @Bean
+    public ThreadPoolTaskExecutor emailExecutor(@Value("${services.mailgun.threads:2}") int threads) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setThreadNamePrefix("email-");
+        return executor;
+    }
+
+    @Bean
+    public PublicMetrics emailMetrics(ThreadPoolTaskExecutor emailExecutor) {
+        return () -> Collections.singletonList(new Metric<>("gauge.email.queue", emailExecutor.getThreadPoolExecutor().getQueue().size()));
+    }
+
     @Bean
     public SpringTemplateEngine templateEngine() {
         final SpringTemplateEngine engine = new SpringTemplateEngine();
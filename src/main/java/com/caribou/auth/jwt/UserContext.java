@@ -1,8 +1,8 @@
 package com.caribou.auth.jwt;
 
 import com.caribou.auth.domain.UserAccount;
-import com.caribou.company.domain.CompanyEmployee;
 import com.caribou.company.domain.Role;
+import com.caribou.company.repository.EmployeeLogin;
 import org.springframework.security.core.GrantedAuthority;
 
 import javax.validation.constraints.NotNull;
@@ -27,12 +27,12 @@ public class UserContext {
         this.uid = username.getUid();
     }
 
-    private UserContext(CompanyEmployee companyEmployee, List<GrantedAuthority> authorities) {
-        this.username = companyEmployee.getMember().getEmail();
+    private UserContext(EmployeeLogin login, List<GrantedAuthority> authorities) {
+        this.username = login.getEmail();
         this.authorities = authorities;
-        this.companyId = companyEmployee.getCompany().getUid();
-        this.roleInCompany = companyEmployee.getRole();
-        this.uid = companyEmployee.getMember().getUid();
+        this.companyId = login.getCompanyUid();
+        this.roleInCompany = login.getRole();
+        this.uid = login.getMemberUid();
     }
 
     private UserContext(Builder builder) {
@@ -47,8 +47,8 @@ public class UserContext {
         return new UserContext(username, authorities);
     }
 
-    public static UserContext create(@NotNull CompanyEmployee employee, List<GrantedAuthority> authorities) {
-        return new UserContext(employee, authorities);
+    public static UserContext create(@NotNull EmployeeLogin login, List<GrantedAuthority> authorities) {
+        return new UserContext(login, authorities);
     }
 
     public static Builder builder() {
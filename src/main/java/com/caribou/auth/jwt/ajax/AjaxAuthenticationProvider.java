@@ -3,8 +3,8 @@ package com.caribou.auth.jwt.ajax;
 import com.caribou.auth.domain.UserAccount;
 import com.caribou.auth.jwt.UserContext;
 import com.caribou.auth.service.UserService;
-import com.caribou.company.domain.CompanyEmployee;
 import com.caribou.company.repository.CompanyRepository;
+import com.caribou.company.repository.EmployeeLogin;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.AuthenticationProvider;
 import org.springframework.security.authentication.BadCredentialsException;
@@ -60,9 +60,10 @@ public class AjaxAuthenticationProvider implements AuthenticationProvider {
                 .map(authority -> new SimpleGrantedAuthority(authority.getRole().authority()))
                 .collect(Collectors.toList());
 
-        Optional<CompanyEmployee> employee = companyRepository.findEmployeeByEmail(user.getEmail());
+        // just the company, role and email, the employee entity would pull in its whole company
+        Optional<EmployeeLogin> employee = companyRepository.findLoginByEmail(user.getEmail());
         UserContext userContext = employee
-                .map(companyEmployee -> UserContext.create(companyEmployee, authorities))
+                .map(login -> UserContext.create(login, authorities))
                 .orElseGet(() -> UserContext.create(user, authorities));
         return new UsernamePasswordAuthenticationToken(userContext, null, userContext.getAuthorities());
     }
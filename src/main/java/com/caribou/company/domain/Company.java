@@ -6,7 +6,6 @@ import com.caribou.auth.domain.UserAccount;
 import javax.persistence.CascadeType;
 import javax.persistence.Column;
 import javax.persistence.Entity;
-import javax.persistence.FetchType;
 import javax.persistence.OneToMany;
 import java.math.BigDecimal;
 import java.util.HashSet;
@@ -42,10 +41,16 @@ public class Company extends AbstractEntity {
     @Column(nullable = false)
     private String postCode;
 
-    @OneToMany(cascade = CascadeType.ALL, mappedBy = "company", fetch = FetchType.EAGER)
+    /**
+     * Lazy, companies are reached from every employee and shouldn't pull in the whole workforce
+     */
+    @OneToMany(cascade = CascadeType.ALL, mappedBy = "company")
     private Set<CompanyEmployee> employees;
 
-    @OneToMany(cascade = CascadeType.MERGE, mappedBy = "company", fetch = FetchType.EAGER)
+    /**
+     * Lazy, fetched by {@link com.caribou.company.repository.CompanyRepository#findWithDepartmentsByUid} where needed
+     */
+    @OneToMany(cascade = CascadeType.MERGE, mappedBy = "company")
     private Set<Department> departments;
 
     private Company(Builder builder) {
@@ -163,7 +168,6 @@ public class Company extends AbstractEntity {
             employees = new HashSet<>();
         }
         CompanyEmployee companyEmployee = new CompanyEmployee(this, userAccount, role);
-        companyEmployee.setRemainingAllowance(BigDecimal.ZERO);
         if (employees.contains(companyEmployee)) {
             for (CompanyEmployee f : employees) {
                 if (f.equals(companyEmployee)) {
@@ -9,15 +9,21 @@ import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.EnumType;
 import javax.persistence.Enumerated;
+import javax.persistence.Index;
 import javax.persistence.ManyToOne;
 import javax.persistence.Table;
 import javax.persistence.UniqueConstraint;
-import java.math.BigDecimal;
+import java.sql.Date;
 
 
 @Data
 @Table(
-        uniqueConstraints = @UniqueConstraint(columnNames = {"company_uid", "member_uid"})
+        uniqueConstraints = @UniqueConstraint(columnNames = {"company_uid", "member_uid"}),
+        indexes = {
+                @Index(columnList = "company_uid, createdAt, uid"),
+                @Index(columnList = "department_uid, createdAt, uid"),
+                @Index(columnList = "createdAt, uid")
+        }
 )
 @Entity
 public class CompanyEmployee extends AbstractEntity {
@@ -41,8 +47,10 @@ public class CompanyEmployee extends AbstractEntity {
     @Enumerated(EnumType.STRING)
     private BankHoliday.Country location;
 
-    @Column(nullable = false, columnDefinition = "Decimal(5,2) default '0.0'")
-    private BigDecimal remainingAllowance;
+    /**
+     * First day at work, allowance of that year is pro-rata. Employed since before the year when null.
+     */
+    private Date employmentStart;
 
     public CompanyEmployee() {
         super();
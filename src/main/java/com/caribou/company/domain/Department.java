@@ -32,4 +32,15 @@ public class Department extends AbstractEntity {
     @ManyToOne(optional = false)
     private Company company;
 
+    /**
+     * Fewest members at work on any day, leaves which would go under it can't be requested. No limit when null.
+     */
+    @Column
+    private Integer minimumStaffing;
+
+    @Data
+    public static class DaysOffChangedEvent {
+        private final Department department;
+    }
+
 }
@@ -6,13 +6,16 @@ import com.caribou.company.domain.Company;
 import com.caribou.company.domain.CompanyEmployee;
 import com.caribou.company.domain.Department;
 import com.caribou.company.domain.Role;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.query.Param;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -22,27 +25,78 @@ public interface CompanyRepository extends CrudRepository<Company, UUID> {
 
     @Query("select e " +
             "from CompanyEmployee e " +
-            "join e.member u " +
-            "WHERE u.email = :email and e.company.uid = :uid")
+            "join fetch e.member u " +
+            "join fetch e.company c " +
+            "left join fetch e.department " +
+            "left join fetch e.approver " +
+            "WHERE u.email = :email and c.uid = :uid")
     Optional<CompanyEmployee> findEmployeeByEmailForUid(@Param("email") String email, @Param("uid") UUID uid);
 
     @Query("select e " +
             "from CompanyEmployee e " +
-            "join e.member u " +
+            "join fetch e.member u " +
+            "left join fetch e.department " +
+            "left join fetch e.approver " +
             "WHERE e.company.uid = :uid")
     List<CompanyEmployee> findEmployeesByCompanyUid(@Param("uid") UUID uid);
 
+    @Query("select e " +
+            "from CompanyEmployee e " +
+            "join fetch e.member u " +
+            "left join fetch e.department " +
+            "left join fetch e.approver " +
+            "WHERE e.company.uid = :uid and (e.createdAt > :createdAt or (e.createdAt = :createdAt and e.uid > :cursor)) " +
+            "order by e.createdAt, e.uid")
+    List<CompanyEmployee> findEmployeesByCompanyUidAfter(@Param("uid") UUID uid, @Param("createdAt") Timestamp createdAt, @Param("cursor") UUID cursor, Pageable pageable);
+
+    @Query("select e " +
+            "from CompanyEmployee e " +
+            "join fetch e.member u " +
+            "left join fetch e.department " +
+            "left join fetch e.approver " +
+            "WHERE e.company.uid = :uid and (e.createdAt < :createdAt or (e.createdAt = :createdAt and e.uid < :cursor)) " +
+            "order by e.createdAt desc, e.uid desc")
+    List<CompanyEmployee> findEmployeesByCompanyUidBefore(@Param("uid") UUID uid, @Param("createdAt") Timestamp createdAt, @Param("cursor") UUID cursor, Pageable pageable);
+
     @Query("select e " +
             "from CompanyEmployee e " +
             "join e.member u " +
             "WHERE e.department.uid = :uid")
     List<CompanyEmployee> findEmployeesByDepartmentUid(@Param("uid") UUID uid);
 
-    @Query("select e " +
+    @Query("select new com.caribou.company.repository.EmployeeSummary(e.uid, e.createdAt, u.uid, u.email, u.firstName, u.lastName, e.role) " +
+            "from CompanyEmployee e " +
+            "join e.member u " +
+            "WHERE e.company.uid = :uid and (e.createdAt > :createdAt or (e.createdAt = :createdAt and e.uid > :cursor)) " +
+            "order by e.createdAt, e.uid")
+    List<EmployeeSummary> findEmployeeSummariesByCompanyUidAfter(@Param("uid") UUID uid, @Param("createdAt") Timestamp createdAt, @Param("cursor") UUID cursor, Pageable pageable);
+
+    @Query("select new com.caribou.company.repository.EmployeeSummary(e.uid, e.createdAt, u.uid, u.email, u.firstName, u.lastName, e.role) " +
+            "from CompanyEmployee e " +
+            "join e.member u " +
+            "WHERE e.company.uid = :uid and (e.createdAt < :createdAt or (e.createdAt = :createdAt and e.uid < :cursor)) " +
+            "order by e.createdAt desc, e.uid desc")
+    List<EmployeeSummary> findEmployeeSummariesByCompanyUidBefore(@Param("uid") UUID uid, @Param("createdAt") Timestamp createdAt, @Param("cursor") UUID cursor, Pageable pageable);
+
+    @Query("select new com.caribou.company.repository.EmployeeSummary(e.uid, e.createdAt, u.uid, u.email, u.firstName, u.lastName, e.role) " +
+            "from CompanyEmployee e " +
+            "join e.member u " +
+            "WHERE e.department.uid = :uid and (e.createdAt > :createdAt or (e.createdAt = :createdAt and e.uid > :cursor)) " +
+            "order by e.createdAt, e.uid")
+    List<EmployeeSummary> findEmployeeSummariesByDepartmentUidAfter(@Param("uid") UUID uid, @Param("createdAt") Timestamp createdAt, @Param("cursor") UUID cursor, Pageable pageable);
+
+    @Query("select new com.caribou.company.repository.EmployeeSummary(e.uid, e.createdAt, u.uid, u.email, u.firstName, u.lastName, e.role) " +
+            "from CompanyEmployee e " +
+            "join e.member u " +
+            "WHERE e.department.uid = :uid and (e.createdAt < :createdAt or (e.createdAt = :createdAt and e.uid < :cursor)) " +
+            "order by e.createdAt desc, e.uid desc")
+    List<EmployeeSummary> findEmployeeSummariesByDepartmentUidBefore(@Param("uid") UUID uid, @Param("createdAt") Timestamp createdAt, @Param("cursor") UUID cursor, Pageable pageable);
+
+    @Query("select new com.caribou.company.repository.EmployeeLogin(e.company.uid, e.role, u.uid, u.email) " +
             "from CompanyEmployee e " +
             "join e.member u " +
             "WHERE u.email = :email")
-    Optional<CompanyEmployee> findEmployeeByEmail(@Param("email") String email);
+    Optional<EmployeeLogin> findLoginByEmail(@Param("email") String email);
 
     @Query("select e " +
             "from Company c " +
@@ -58,11 +112,6 @@ public interface CompanyRepository extends CrudRepository<Company, UUID> {
             "WHERE u.email = :email")
     Optional<Company> findByEmployeeEmail(@Param("email") String email);
 
-    @Modifying
-    @Transactional
-    @Query("UPDATE CompanyEmployee e SET e.remainingAllowance = :#{#remaining_allowance} WHERE e.uid = :#{#employee.uid}")
-    void updateRemainingAllowance(@Param("employee") CompanyEmployee companyEmployee, @Param("remaining_allowance") BigDecimal remainingAllowance);
-
     default void addEmployee(@Param("company") Company company, @Param("member") UserAccount userAccount, @Param("role") Role role) {
         addEmployee(UUID.randomUUID(), company, userAccount, role);
     }
@@ -79,10 +128,6 @@ public interface CompanyRepository extends CrudRepository<Company, UUID> {
         addEmployee(UUID.randomUUID(), department.getCompany(), department, userAccount, role);
     }
 
-    default void addEmployee(Department department, UserAccount userAccount, Role role, BigDecimal remainingAllowance) {
-        addEmployee(UUID.randomUUID(), department.getCompany(), department, userAccount, role, remainingAllowance);
-    }
-
     @Modifying
     @Transactional
     @Query(value = "insert into company_employee (uid, company_uid, department_uid, member_uid, role, created_at, updated_at) values(:#{#uuid}, :#{#company.uid}, :#{#department.uid}, :#{#member.uid}, :#{#role.name}, now(), now())", nativeQuery = true)
@@ -93,12 +138,6 @@ public interface CompanyRepository extends CrudRepository<Company, UUID> {
     @Query(value = "insert into company_employee (uid, company_uid, department_uid, member_uid, approver_uid, role, created_at, updated_at) values(:#{#uuid}, :#{#company.uid}, :#{#department.uid}, :#{#member.uid}, :#{#approver.uid}, :#{#role.name}, now(), now())", nativeQuery = true)
     void addEmployee(@Param("uuid") UUID uuid, @Param("company") Company company, @Param("department") Department department, @Param("member") UserAccount userAccount, @Param("approver") UserAccount approver, @Param("role") Role role);
 
-    @Modifying
-    @Transactional
-    @Query(value = "insert into company_employee (uid, company_uid, department_uid, member_uid, role, remaining_allowance, created_at, updated_at) " +
-            "values(:#{#uuid}, :#{#company.uid}, :#{#department.uid}, :#{#member.uid}, :#{#role.name}, :#{#remaining_allowance}, now(), now())", nativeQuery = true)
-    void addEmployee(@Param("uuid") UUID uuid, @Param("company") Company company, @Param("department") Department department, @Param("member") UserAccount userAccount, @Param("role") Role role, @Param("remaining_allowance") BigDecimal remainingAllowance);
-
     @Modifying
     @Transactional
     @Query(value = "insert into company_employee (uid, company_uid, member_uid, role, created_at, updated_at) values(:#{#uuid}, :#{#company.uid}, :#{#member.uid}, :#{#role.name}, now(), now())", nativeQuery = true)
@@ -107,4 +146,57 @@ public interface CompanyRepository extends CrudRepository<Company, UUID> {
     @Query("select e from CompanyEmployee e where e.member = ?1")
     Optional<CompanyEmployee> findEmployeeByUserAccount(UserAccount user);
 
+    @Query("select e " +
+            "from CompanyEmployee e " +
+            "join fetch e.member u " +
+            "left join fetch e.department " +
+            "left join fetch e.approver " +
+            "WHERE e.member in :members")
+    List<CompanyEmployee> findEmployeesByUserAccounts(@Param("members") Collection<UserAccount> members);
+
+    /**
+     * Employees created before the given time, ordered by createdAt and uid
+     */
+    @Query("select new com.caribou.company.repository.EmployeeDaysOff(e.uid, e.createdAt, coalesce(d.daysOff, c.defaultDaysOff), e.employmentStart) " +
+            "from CompanyEmployee e " +
+            "join e.company c " +
+            "left join e.department d " +
+            "WHERE e.createdAt < :before and (e.createdAt > :createdAt or (e.createdAt = :createdAt and e.uid > :cursor)) " +
+            "order by e.createdAt, e.uid")
+    List<EmployeeDaysOff> findDaysOffAfter(@Param("before") Timestamp before, @Param("createdAt") Timestamp createdAt, @Param("cursor") UUID cursor, Pageable pageable);
+
+    @Query("select distinct c from Company c left join fetch c.departments where c.uid = ?1")
+    Optional<Company> findWithDepartmentsByUid(UUID uid);
+
+    @Query("select c.name from Company c where c.uid = ?1")
+    Optional<String> findNameByUid(UUID uid);
+
+    @Query("select e.company.uid from CompanyEmployee e where e.member = ?1")
+    List<UUID> findCompanyUidsByUserAccount(UserAccount user);
+
+    @Query("select e.member.uid from CompanyEmployee e where e.company.uid = :company and e.department.uid = :department")
+    List<UUID> findMemberUidsByDepartmentUid(@Param("company") UUID companyUid, @Param("department") UUID departmentUid);
+
+    @Query("select new com.caribou.company.repository.EmployeeDaysOff(e.uid, e.createdAt, coalesce(d.daysOff, c.defaultDaysOff), e.employmentStart) " +
+            "from CompanyEmployee e " +
+            "join e.company c " +
+            "left join e.department d " +
+            "WHERE c.uid = :company")
+    List<EmployeeDaysOff> findDaysOffByCompanyUid(@Param("company") UUID companyUid);
+
+    @Query("select new com.caribou.company.repository.EmployeeDaysOff(e.uid, e.createdAt, coalesce(d.daysOff, c.defaultDaysOff), e.employmentStart) " +
+            "from CompanyEmployee e " +
+            "join e.company c " +
+            "join e.department d " +
+            "WHERE c.uid = :company and d.uid = :department")
+    List<EmployeeDaysOff> findDaysOffByDepartmentUid(@Param("company") UUID companyUid, @Param("department") UUID departmentUid);
+
+    @Query("select c.uid from Company c")
+    List<UUID> findAllUids();
+
+    @Modifying
+    @Transactional
+    @Query("update CompanyEmployee e set e.employmentStart = :start where e.uid = :uid")
+    void updateEmploymentStart(@Param("uid") UUID employeeUid, @Param("start") Date start);
+
 }
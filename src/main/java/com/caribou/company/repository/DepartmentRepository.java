@@ -24,6 +24,12 @@ public interface DepartmentRepository extends CrudRepository<Department, UUID> {
 
     List<Department> findByCompanyUid(UUID uuid);
 
+    @Query("select d.name from Department d where d.uid = ?1")
+    Optional<String> findNameByUid(UUID uid);
+
+    @Query("select d.company.uid from Department d where d.uid = ?1")
+    Optional<UUID> findCompanyUidByUid(UUID uid);
+
     @Deprecated
     default void addEmployee(@Param("department") Department department, @Param("member") UserAccount userAccount) {
         addEmployee(UUID.randomUUID(), department, userAccount);
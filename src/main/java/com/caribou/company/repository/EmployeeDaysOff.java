@@ -0,0 +1,36 @@
+package com.caribou.company.repository;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.Date;
+import java.util.UUID;
+
+
+/**
+ * Yearly days off of an employee, from their department or the company default
+ */
+@Data
+public class EmployeeDaysOff {
+
+    private final UUID employeeUid;
+
+    private final Timestamp createdAt;
+
+    private final BigDecimal daysOff;
+
+    /**
+     * Null when not known
+     */
+    private final LocalDate employmentStart;
+
+    public EmployeeDaysOff(UUID employeeUid, Date createdAt, BigDecimal daysOff, Date employmentStart) {
+        this.employeeUid = employeeUid;
+        this.createdAt = createdAt instanceof Timestamp ? (Timestamp) createdAt : new Timestamp(createdAt.getTime());
+        this.daysOff = daysOff;
+        this.employmentStart = employmentStart == null ? null : new java.sql.Date(employmentStart.getTime()).toLocalDate();
+    }
+
+}
@@ -0,0 +1,23 @@
+package com.caribou.company.repository;
+
+import com.caribou.company.domain.Role;
+import lombok.Data;
+
+import java.util.UUID;
+
+
+/**
+ * Company, role and email of a logging in user, the only parts of their employee needed for a token
+ */
+@Data
+public class EmployeeLogin {
+
+    private final UUID companyUid;
+
+    private final Role role;
+
+    private final UUID memberUid;
+
+    private final String email;
+
+}
@@ -0,0 +1,44 @@
+package com.caribou.company.repository;
+
+import com.caribou.company.domain.Role;
+import lombok.Data;
+
+import java.sql.Timestamp;
+import java.util.Date;
+import java.util.UUID;
+
+
+/**
+ * Employee as shown in lists, read in one join without loading entities
+ */
+@Data
+public class EmployeeSummary {
+
+    /**
+     * Of the company employee, lists are ordered by it and createdAt
+     */
+    private final UUID uid;
+
+    private final Timestamp createdAt;
+
+    private final UUID memberUid;
+
+    private final String email;
+
+    private final String firstName;
+
+    private final String lastName;
+
+    private final Role role;
+
+    public EmployeeSummary(UUID uid, Date createdAt, UUID memberUid, String email, String firstName, String lastName, Role role) {
+        this.uid = uid;
+        this.createdAt = createdAt instanceof Timestamp ? (Timestamp) createdAt : new Timestamp(createdAt.getTime());
+        this.memberUid = memberUid;
+        this.email = email;
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.role = role;
+    }
+
+}
@@ -6,11 +6,12 @@ import com.caribou.auth.jwt.UserContext;
 import com.caribou.auth.service.UserService;
 import com.caribou.company.Pair;
 import com.caribou.company.domain.Company;
-import com.caribou.company.domain.CompanyEmployee;
 import com.caribou.company.domain.Role;
+import com.caribou.company.repository.EmployeeSummary;
 import com.caribou.company.rest.dto.CompanyDto;
 import com.caribou.company.rest.dto.EmployeeDto;
 import com.caribou.company.service.CompanyService;
+import com.caribou.company.service.Cursor;
 import com.caribou.company.service.EmployeeService;
 import com.caribou.company.service.NotFound;
 import com.caribou.company.service.parser.EmployeeCsvParser;
@@ -39,7 +40,6 @@ import javax.validation.Valid;
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.List;
-import java.util.stream.Collectors;
 
 import static org.springframework.hateoas.mvc.ControllerLinkBuilder.linkTo;
 import static org.springframework.hateoas.mvc.ControllerLinkBuilder.methodOn;
@@ -115,15 +115,11 @@ public class CompanyRestController {
     }
 
     @RequestMapping(value = "/{uid}/employees", method = RequestMethod.GET)
-    public ListDto<EmployeeDto> getEmployees(@PathVariable("uid") String companyId) {
+    public ListDto<EmployeeDto> getEmployees(@PathVariable("uid") String companyId,
+                                             @RequestParam(value = "limit", defaultValue = "50") int limit,
+                                             @RequestParam(value = "cursor", required = false) String cursor) {
         UserContext user = getUserForCompanyOr404(companyId);
-        List<EmployeeDto> employees = companyService.findEmployeesByCompanyUid(user.getCompanyId()).stream()
-                .map(this::map)
-                .collect(Collectors.toList());
-        return ListDto.<EmployeeDto>builder()
-                .items(employees)
-                .total(employees.size())
-                .build();
+        return ListDto.of(companyService.findEmployeesByCompanyUid(user.getCompanyId(), Cursor.fromToken(cursor), limit).map(this::map));
     }
 
     @RequestMapping(value = "/{uid}/employees", method = RequestMethod.POST)
@@ -170,8 +166,8 @@ public class CompanyRestController {
         throw new NotFound();
     }
 
-    private EmployeeDto map(CompanyEmployee companyEmployee) {
-        return mapperFacade.map(companyEmployee, EmployeeDto.class);
+    private EmployeeDto map(EmployeeSummary employee) {
+        return mapperFacade.map(employee, EmployeeDto.class);
     }
 
 }
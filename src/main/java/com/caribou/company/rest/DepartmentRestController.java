@@ -11,6 +11,7 @@ import com.caribou.company.rest.dto.DepartmentReadDto;
 import com.caribou.company.rest.dto.DepartmentWriteDto;
 import com.caribou.company.rest.dto.EmployeeDto;
 import com.caribou.company.service.CompanyService;
+import com.caribou.company.service.Cursor;
 import com.caribou.company.service.DepartmentService;
 import com.caribou.company.service.EmployeeService;
 import com.caribou.company.service.NotFound;
@@ -26,6 +27,7 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import rx.Single;
 
@@ -71,12 +73,14 @@ public class DepartmentRestController {
 
     private DepartmentReadDto convert(Department entity) {
         DepartmentReadDto departmentDto = mapperFacade.map(entity, DepartmentReadDto.class);
-        departmentDto.add(linkTo(methodOn(DepartmentRestController.class).employee(entity.getCompany().getUid().toString(), entity.getUid().toString())).withRel("employees"));
+        departmentDto.add(linkTo(methodOn(DepartmentRestController.class).employee(entity.getCompany().getUid().toString(), entity.getUid().toString(), 50, null)).withRel("employees"));
         return departmentDto;
     }
 
     @RequestMapping(value = "/{departmentUid}/employees")
-    public ListDto<EmployeeDto> employee(@PathVariable("companyUid") String companyUid, @PathVariable("departmentUid") String departmentUid) {
+    public ListDto<EmployeeDto> employee(@PathVariable("companyUid") String companyUid, @PathVariable("departmentUid") String departmentUid,
+                                         @RequestParam(value = "limit", defaultValue = "50") int limit,
+                                         @RequestParam(value = "cursor", required = false) String cursor) {
         UserContext userDetails = (UserContext) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
         if (!userDetails.getCompanyId().toString().equals(companyUid)) {
             throw new NotFound();
@@ -85,13 +89,8 @@ public class DepartmentRestController {
         if (!department.getCompany().getUid().toString().equals(companyUid)) {
             throw new NotFound();
         }
-        List<EmployeeDto> employee = departmentService.getEmployees(departmentUid).stream()
-                .map(e -> mapperFacade.map(e, EmployeeDto.class))
-                .collect(Collectors.toList());
-        return ListDto.<EmployeeDto>builder()
-                .total(employee.size())
-                .items(employee)
-                .build();
+        return ListDto.of(departmentService.getEmployees(departmentUid, Cursor.fromToken(cursor), limit)
+                .map(e -> mapperFacade.map(e, EmployeeDto.class)));
     }
 
     @RequestMapping(value = "/{uid}/employees", method = RequestMethod.POST)
@@ -106,10 +105,8 @@ public class DepartmentRestController {
         UserContext userDetails = (UserContext) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
         return companyService.getByEmployeeEmail(companyUid, userDetails.getUsername())
                 .map(company1 -> {
-                    for (CompanyEmployee f : company1.getCompany().getEmployees()) {
-                        if (f.getMember().getEmail().equals(userDetails.getUsername()) && f.getRole() == Role.Viewer) {
-                            throw new AccessDeniedException("omg");
-                        }
+                    if (company1.getRole() == Role.Viewer) {
+                        throw new AccessDeniedException("omg");
                     }
                     return company1;
                 })
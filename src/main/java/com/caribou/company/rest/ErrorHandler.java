@@ -3,6 +3,8 @@ package com.caribou.company.rest;
 import com.caribou.auth.rest.dto.Error;
 import com.caribou.auth.rest.dto.ErrorField;
 import com.caribou.company.service.NotFound;
+import com.caribou.holiday.service.MinimumStaffingConflict;
+import com.caribou.holiday.service.OverlappingLeave;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
@@ -29,6 +31,8 @@ public class ErrorHandler {
             return new ResponseEntity(headers, HttpStatus.FORBIDDEN);
         } else if (e instanceof DataIntegrityViolationException) {
             return new ResponseEntity(parseError((DataIntegrityViolationException) e), headers, HttpStatus.CONFLICT);
+        } else if (e instanceof MinimumStaffingConflict || e instanceof OverlappingLeave) {
+            return new ResponseEntity(conflict("starting", e.getMessage()), headers, HttpStatus.CONFLICT);
         }
         return new ResponseEntity(headers, HttpStatus.INTERNAL_SERVER_ERROR);
     }
@@ -47,6 +51,14 @@ public class ErrorHandler {
         return error;
     }
 
+    public static Error conflict(String field, String code) {
+        Error error = new Error(HttpStatus.CONFLICT);
+        error.setValidationErrors(new HashMap<String, ErrorField>() {{
+            put(field, ErrorField.builder().code(code).build());
+        }});
+        return error;
+    }
+
     private static List<String> parseException(Throwable ex) {
         Matcher matcher = Pattern.compile("\\(([^)]+)\\)").matcher(ex.getMessage());
         List<String> matches = new ArrayList<>();
@@ -33,6 +33,10 @@ public class DepartmentReadDto extends ResourceSupport {
     @JsonProperty
     private BigDecimal daysOff;
 
+    @Min(value = 0)
+    @JsonProperty
+    private Integer minimumStaffing;
+
     @NotNull
     @JsonProperty
     private NestedSingleObject boss;
@@ -32,6 +32,10 @@ public class DepartmentWriteDto extends ResourceSupport {
     @JsonProperty
     private BigDecimal daysOff;
 
+    @Min(value = 0)
+    @JsonProperty
+    private Integer minimumStaffing;
+
     @NotBlank
     @JsonProperty
     private String boss;
@@ -3,6 +3,7 @@ package com.caribou.company.service;
 import com.caribou.company.domain.Company;
 import com.caribou.company.domain.CompanyEmployee;
 import com.caribou.company.repository.CompanyRepository;
+import com.caribou.company.repository.EmployeeSummary;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import rx.Observable;
@@ -60,4 +61,15 @@ public class CompanyService extends RxService.Imp<CompanyRepository, Company, UU
         return companyRepository.findEmployeesByCompanyUid(uid);
     }
 
+    public KeysetPage<EmployeeSummary> findEmployeesByCompanyUid(UUID uid, Cursor cursor, int limit) {
+        return KeysetPage.fetch(
+                cursor,
+                limit,
+                EmployeeSummary::getCreatedAt,
+                EmployeeSummary::getUid,
+                (createdAt, employeeUid, pageable) -> companyRepository.findEmployeeSummariesByCompanyUidAfter(uid, createdAt, employeeUid, pageable),
+                (createdAt, employeeUid, pageable) -> companyRepository.findEmployeeSummariesByCompanyUidBefore(uid, createdAt, employeeUid, pageable)
+        );
+    }
+
 }
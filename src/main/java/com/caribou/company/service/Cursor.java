@@ -0,0 +1,73 @@
+package com.caribou.company.service;
+
+import com.caribou.AbstractEntity;
+import lombok.Data;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.Base64;
+import java.util.Date;
+import java.util.UUID;
+
+
+/**
+ * Position in a list ordered by a timestamp and uid, clients get it only as an opaque token
+ */
+@Data
+public class Cursor {
+
+    public static final Cursor FIRST = new Cursor(false, new Timestamp(0), new UUID(0, 0));
+
+    private final boolean backward;
+
+    private final Timestamp key;
+
+    private final UUID uid;
+
+    public static Cursor after(Date key, AbstractEntity entity) {
+        return after(key, entity.getUid());
+    }
+
+    public static Cursor after(Date key, UUID uid) {
+        return new Cursor(false, timestamp(key), uid);
+    }
+
+    public static Cursor before(Date key, AbstractEntity entity) {
+        return before(key, entity.getUid());
+    }
+
+    public static Cursor before(Date key, UUID uid) {
+        return new Cursor(true, timestamp(key), uid);
+    }
+
+    /**
+     * @param token token of a cursor or null for the first page
+     * @throws InvalidCursor when the token wasn't issued by {@link #toToken()}
+     */
+    public static Cursor fromToken(String token) {
+        if (token == null || token.isEmpty()) {
+            return FIRST;
+        }
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split(":");
+            if (parts.length != 4 || !(parts[0].equals("n") || parts[0].equals("p"))) {
+                throw new InvalidCursor();
+            }
+            Timestamp key = new Timestamp(Long.parseLong(parts[1]) * 1000);
+            key.setNanos(Integer.parseInt(parts[2]));
+            return new Cursor(parts[0].equals("p"), key, UUID.fromString(parts[3]));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursor();
+        }
+    }
+
+    public String toToken() {
+        String value = (backward ? "p" : "n") + ":" + Math.floorDiv(key.getTime(), 1000) + ":" + key.getNanos() + ":" + uid;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Timestamp timestamp(Date date) {
+        return date instanceof Timestamp ? (Timestamp) date : new Timestamp(date.getTime());
+    }
+
+}
@@ -6,10 +6,13 @@ import com.caribou.company.domain.DepartmentEmployee;
 import com.caribou.company.domain.Role;
 import com.caribou.company.repository.CompanyRepository;
 import com.caribou.company.repository.DepartmentRepository;
+import com.caribou.company.repository.EmployeeSummary;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import rx.Observable;
 
+import java.math.BigDecimal;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -20,9 +23,27 @@ public class DepartmentService extends RxService.Imp<DepartmentRepository, Depar
 
     private final CompanyRepository companyRepository;
 
+    private final ApplicationEventPublisher applicationEventPublisher;
+
     @Autowired
-    public DepartmentService(CompanyRepository companyRepository) {
+    public DepartmentService(CompanyRepository companyRepository, ApplicationEventPublisher applicationEventPublisher) {
         this.companyRepository = companyRepository;
+        this.applicationEventPublisher = applicationEventPublisher;
+    }
+
+    /**
+     * Publishes {@link Department.DaysOffChangedEvent} when the update changes days off, allowances are recomputed by it
+     */
+    @Override
+    public Observable<Department> update(UUID uid, Department department) {
+        return Observable.defer(() -> {
+            BigDecimal daysOff = Optional.ofNullable(repository.findOne(uid)).map(Department::getDaysOff).orElse(null);
+            return super.update(uid, department).doOnNext(d -> {
+                if (daysOff != null && daysOff.compareTo(d.getDaysOff()) != 0) {
+                    applicationEventPublisher.publishEvent(new Department.DaysOffChangedEvent(d));
+                }
+            });
+        });
     }
 
     public Observable<DepartmentEmployee> addEmployeeRx(DepartmentEmployee departmentEmployee) {
@@ -52,6 +73,18 @@ public class DepartmentService extends RxService.Imp<DepartmentRepository, Depar
         return companyRepository.findEmployeesByDepartmentUid(UUID.fromString(department));
     }
 
+    public KeysetPage<EmployeeSummary> getEmployees(String department, Cursor cursor, int limit) {
+        UUID departmentUid = UUID.fromString(department);
+        return KeysetPage.fetch(
+                cursor,
+                limit,
+                EmployeeSummary::getCreatedAt,
+                EmployeeSummary::getUid,
+                (createdAt, uid, pageable) -> companyRepository.findEmployeeSummariesByDepartmentUidAfter(departmentUid, createdAt, uid, pageable),
+                (createdAt, uid, pageable) -> companyRepository.findEmployeeSummariesByDepartmentUidBefore(departmentUid, createdAt, uid, pageable)
+        );
+    }
+
     public List<Department> getDepartments(String companyUid) {
         return repository.findByCompanyUid(UUID.fromString(companyUid));
     }
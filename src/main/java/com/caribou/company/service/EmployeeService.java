@@ -15,23 +15,23 @@ import com.caribou.company.service.parser.EmployeeCsvParser;
 import com.caribou.email.Email;
 import com.caribou.email.providers.EmailSender;
 import com.caribou.email.templates.Invite;
+import com.caribou.holiday.service.AllowanceLedger;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.metrics.CounterService;
+import org.springframework.boot.actuate.metrics.GaugeService;
 import org.springframework.stereotype.Service;
 import rx.Observable;
 import rx.exceptions.Exceptions;
 
 import javax.validation.constraints.NotNull;
 import java.math.BigDecimal;
-import java.math.RoundingMode;
+import java.sql.Date;
 import java.time.LocalDate;
-import java.time.Period;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
-import static java.time.temporal.TemporalAdjusters.lastDayOfYear;
-
 
 @Slf4j
 @Service
@@ -51,8 +51,14 @@ public class EmployeeService {
 
     private final InvitationRepository invitationRepository;
 
+    private final AllowanceLedger allowanceLedger;
+
+    private final CounterService counterService;
+
+    private final GaugeService gaugeService;
+
     @Autowired
-    public EmployeeService(DepartmentRepository departmentRepository, DepartmentService departmentService, UserService userService, EmailSender emailSender, InvitationRepository invitationRepository, UserRepository userRepository, CompanyRepository companyRepository) {
+    public EmployeeService(DepartmentRepository departmentRepository, DepartmentService departmentService, UserService userService, EmailSender emailSender, InvitationRepository invitationRepository, UserRepository userRepository, CompanyRepository companyRepository, AllowanceLedger allowanceLedger, CounterService counterService, GaugeService gaugeService) {
         this.departmentRepository = departmentRepository;
         this.departmentService = departmentService;
         this.userService = userService;
@@ -60,17 +66,33 @@ public class EmployeeService {
         this.invitationRepository = invitationRepository;
         this.userRepository = userRepository;
         this.companyRepository = companyRepository;
+        this.allowanceLedger = allowanceLedger;
+        this.counterService = counterService;
+        this.gaugeService = gaugeService;
     }
 
     public Observable<Boolean> performImport(List<EmployeeCsvParser.Row> rows, final Company company) {
         return importEmployee(rows, company).map(this::sendInvitationEmail);
     }
 
+    /**
+     * Counts imported rows and reports rows per second of every finished import
+     */
     public Observable<DepartmentEmployee> importEmployee(List<EmployeeCsvParser.Row> rows, final Company company) {
+        return Observable.defer(() -> {
+            long start = System.nanoTime();
+            return importRows(rows, company)
+                    .doOnNext(e -> counterService.increment("employee.import.rows"))
+                    .doOnCompleted(() -> gaugeService.submit("gauge.employee.import.rowsPerSecond", rows.size() * 1e9 / Math.max(1, System.nanoTime() - start)));
+        });
+    }
+
+    private Observable<DepartmentEmployee> importRows(List<EmployeeCsvParser.Row> rows, final Company company) {
         return Observable.from(rows)
                 .map(r -> {
                     try {
-                        Company refreshedCompany = companyRepository.findOne(company.getUid());
+                        // departments created by previous rows are seen by the next ones
+                        Company refreshedCompany = companyRepository.findWithDepartmentsByUid(company.getUid()).orElseThrow(NotFound::new);
                         return createDepartmentEmployee(r, refreshedCompany);
                     } catch (Exception t) {
                         throw Exceptions.propagate(t);
@@ -107,15 +129,18 @@ public class EmployeeService {
         BigDecimal remainingAllowance = calculateRemainingAllowance(department, employmentStartDate);
         log.info("Calculated remaining allowance for number of days off {} for user={} who's starting on {} is {}",
                 department.getDaysOff(), userAccount.getUid(), employmentStartDate, remainingAllowance);
-        companyRepository.addEmployee(department, userAccount, Role.Viewer, remainingAllowance);
+        companyRepository.addEmployee(department, userAccount, Role.Viewer);
+        companyRepository.findEmployeeByUserAccount(userAccount)
+                .ifPresent(e -> {
+                    companyRepository.updateEmploymentStart(e.getUid(), Date.valueOf(employmentStartDate));
+                    allowanceLedger.grant(e, LocalDate.now().getYear(), remainingAllowance);
+                });
         sendInvitationEmail(userAccount, department);
     }
 
-    private BigDecimal calculateRemainingAllowance(Department department, LocalDate start) {
-        LocalDate lastDay = LocalDate.now().with(lastDayOfYear());
-        BigDecimal daysOffPerMonth = department.getDaysOff().divide(BigDecimal.valueOf(12), 5, RoundingMode.HALF_UP);
-        BigDecimal numberOfMonths = BigDecimal.valueOf(Math.max(1, Period.between(start, lastDay).getMonths()));
-        return roundToNearestFive(daysOffPerMonth.multiply(numberOfMonths));
+    private static BigDecimal calculateRemainingAllowance(Department department, LocalDate start) {
+        int halfDays = ProRataAllowance.halfDays(ProRataAllowance.toHalfDays(department.getDaysOff()), start, LocalDate.now().getYear());
+        return ProRataAllowance.toDays(halfDays);
     }
 
     private void sendInvitationEmail(UserAccount userAccount, Department department) {
@@ -128,12 +153,6 @@ public class EmployeeService {
         emailSender.send(email, userAccount.getLocale());
     }
 
-    private static BigDecimal roundToNearestFive(BigDecimal value) {
-        BigDecimal increment = BigDecimal.valueOf(0.5);
-        BigDecimal divided = value.divide(increment, 0, RoundingMode.HALF_DOWN);
-        return divided.multiply(increment);
-    }
-
     private static Invitation invitationBuilder(UserAccount userAccount, Department department) {
         return Invitation.builder()
                 .key(UUID.randomUUID().toString())
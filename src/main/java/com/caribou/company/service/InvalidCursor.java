@@ -0,0 +1,5 @@
+package com.caribou.company.service;
+
+public class InvalidCursor extends RuntimeException {
+
+}
@@ -0,0 +1,92 @@
+package com.caribou.company.service;
+
+import com.caribou.AbstractEntity;
+import lombok.Data;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+
+/**
+ * One page of a list ordered by a timestamp and uid with tokens of its neighbours
+ */
+@Data
+public class KeysetPage<T> {
+
+    public static final int MAX_LIMIT = 200;
+
+    private final List<T> items;
+
+    private final int limit;
+
+    private final String next;
+
+    private final String previous;
+
+    /**
+     * Repository query which returns rows after (or before, for backward one) the given timestamp and uid
+     */
+    public interface Query<T> {
+        List<T> find(Timestamp key, UUID uid, Pageable pageable);
+    }
+
+    /**
+     * Page of a list ordered by createdAt and uid
+     */
+    public static <T extends AbstractEntity> KeysetPage<T> fetch(Cursor cursor, int limit, Query<T> after, Query<T> before) {
+        return fetch(cursor, limit, AbstractEntity::getCreatedAt, AbstractEntity::getUid, after, before);
+    }
+
+    /**
+     * Page of rows which aren't entities, like projections
+     *
+     * @param key    timestamp the list is ordered by
+     * @param uid    tie breaker of rows with the same key
+     * @param after  query ordered by the key and uid ascending
+     * @param before query ordered by the key and uid descending
+     */
+    public static <T> KeysetPage<T> fetch(Cursor cursor, int limit, Function<T, Date> key, Function<T, UUID> uid, Query<T> after, Query<T> before) {
+        limit = Math.max(1, Math.min(limit, MAX_LIMIT));
+        PageRequest pageable = new PageRequest(0, limit + 1);
+        if (!cursor.isBackward()) {
+            List<T> rows = after.find(cursor.getKey(), cursor.getUid(), pageable);
+            List<T> items = rows.subList(0, Math.min(rows.size(), limit));
+            return new KeysetPage<>(
+                    items,
+                    limit,
+                    rows.size() > limit ? after(key, uid, items.get(items.size() - 1)) : null,
+                    cursor != Cursor.FIRST && !items.isEmpty() ? before(key, uid, items.get(0)) : null
+            );
+        }
+        List<T> rows = before.find(cursor.getKey(), cursor.getUid(), pageable);
+        List<T> items = new ArrayList<>(rows.subList(0, Math.min(rows.size(), limit)));
+        Collections.reverse(items);
+        return new KeysetPage<>(
+                items,
+                limit,
+                items.isEmpty() ? null : after(key, uid, items.get(items.size() - 1)),
+                rows.size() > limit ? before(key, uid, items.get(0)) : null
+        );
+    }
+
+    private static <T> String after(Function<T, Date> key, Function<T, UUID> uid, T item) {
+        return Cursor.after(key.apply(item), uid.apply(item)).toToken();
+    }
+
+    private static <T> String before(Function<T, Date> key, Function<T, UUID> uid, T item) {
+        return Cursor.before(key.apply(item), uid.apply(item)).toToken();
+    }
+
+    public <R> KeysetPage<R> map(Function<T, R> mapper) {
+        return new KeysetPage<>(items.stream().map(mapper).collect(Collectors.toList()), limit, next, previous);
+    }
+
+}
@@ -0,0 +1,49 @@
+package com.caribou.company.service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.Period;
+
+import static java.time.temporal.TemporalAdjusters.lastDayOfYear;
+
+
+/**
+ * Allowance of a year for employees who start during it, counted in half days so it's exact in integers
+ */
+public final class ProRataAllowance {
+
+    private ProRataAllowance() {
+    }
+
+    /**
+     * @param yearlyHalfDays allowance of the whole year
+     * @param start          first day at work, null when employed since before the year
+     * @return allowance for months left in the year after the start, at least one, rounded to half days down on a tie
+     */
+    public static int halfDays(int yearlyHalfDays, LocalDate start, int year) {
+        int months;
+        if (start == null || start.getYear() < year) {
+            months = 12;
+        } else if (start.getYear() > year) {
+            months = 0;
+        } else {
+            months = Math.max(1, Period.between(start, start.with(lastDayOfYear())).getMonths());
+        }
+        long total = (long) yearlyHalfDays * months;
+        long halfDays = total / 12;
+        if (total % 12 > 6) {
+            halfDays++;
+        }
+        return Math.toIntExact(halfDays);
+    }
+
+    public static int toHalfDays(BigDecimal days) {
+        return days.multiply(BigDecimal.valueOf(2)).setScale(0, RoundingMode.HALF_DOWN).intValueExact();
+    }
+
+    public static BigDecimal toDays(int halfDays) {
+        return BigDecimal.valueOf(halfDays * 5L, 1);
+    }
+
+}
@@ -36,7 +36,7 @@ public class Mailgun implements EmailSender {
         this.defaultFrom = new Email.Contact(defaultFrom, defaultAlias);
     }
 
-    @Async
+    @Async("emailExecutor")
     @Override
     public void send(Email email, Locale locale) {
         final ContentGenerator.Content emailContent = contentGenerator.generate(email.getTemplate(), locale);
@@ -5,7 +5,8 @@ public enum HtmlTemplates {
     Invite("employee_invitation"),
     Welcome("welcome"),
     LeaveApproved("leave_approved"),
-    LeaveRequest("leave_request");
+    LeaveRequest("leave_request"),
+    LeavesDecided("leaves_decided");
 
     private String template;
 
@@ -0,0 +1,27 @@
+package com.caribou.email.templates;
+
+import com.caribou.holiday.domain.Leave;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.util.List;
+
+@Builder
+@AllArgsConstructor
+public class LeavesDecided implements EmailTemplate {
+
+    @Getter
+    private final List<Leave> leaves;
+
+    @Override
+    public HtmlTemplates getHtmlTemplate() {
+        return HtmlTemplates.LeavesDecided;
+    }
+
+    @Override
+    public String getSubject() {
+        return "email.leaves.decided";
+    }
+
+}
@@ -0,0 +1,107 @@
+package com.caribou.holiday.domain;
+
+import com.caribou.AbstractEntity;
+import com.caribou.company.domain.CompanyEmployee;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.DomainEvents;
+import org.springframework.data.domain.Persistable;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.Index;
+import javax.persistence.ManyToOne;
+import javax.persistence.Table;
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.UUID;
+
+
+/**
+ * Single change of employee's allowance in a year, entries are only ever appended
+ */
+@Getter
+@Entity
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(indexes = @Index(columnList = "employee_uid, year, txid"))
+public class AllowanceEntry extends AbstractEntity implements Persistable<UUID> {
+
+    @ManyToOne(optional = false)
+    private CompanyEmployee employee;
+
+    @Column(nullable = false)
+    private int year;
+
+    @Column(nullable = false)
+    @Enumerated(EnumType.STRING)
+    private Type type;
+
+    /**
+     * Negative for deductions
+     */
+    @Column(nullable = false, precision = 5, scale = 2)
+    private BigDecimal days;
+
+    @ManyToOne
+    private Leave leave;
+
+    /**
+     * Id of the transaction which inserted the entry, set by the database. Unlike createdAt it tells which entries
+     * are committed for sure: all of those below the oldest transaction still running.
+     */
+    @Column(columnDefinition = "bigint not null default txid_current()", insertable = false, updatable = false)
+    private Long txid;
+
+    @Override
+    public UUID getId() {
+        return getUid();
+    }
+
+    /**
+     * Entries are never updated, saving a new one is a plain insert without looking it up first
+     */
+    @Override
+    public boolean isNew() {
+        return getCreatedAt() == null;
+    }
+
+    @DomainEvents
+    Collection<AppendedEvent> appendedEvents() {
+        return Collections.singletonList(new AppendedEvent(this));
+    }
+
+    public enum Type {
+        GRANT,
+        /**
+         * Correction of grants after days off or employment start changed
+         */
+        ADJUSTMENT,
+        ACCRUAL,
+        CARRY_OVER,
+        DEDUCTION,
+        REFUND
+    }
+
+    @Data
+    public static class AppendedEvent {
+        private final AllowanceEntry entry;
+    }
+
+    /**
+     * Entries of a year inserted by a batch, without the entities
+     */
+    @Data
+    public static class BatchAppendedEvent {
+        private final Collection<UUID> employeeUids;
+        private final int year;
+    }
+
+}
@@ -0,0 +1,41 @@
+package com.caribou.holiday.domain;
+
+import com.caribou.AbstractEntity;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import java.sql.Timestamp;
+import java.util.UUID;
+
+
+/**
+ * Checkpoint of the rollover of allowances to a year, employees are rolled over ordered by their createdAt and uid
+ */
+@Getter
+@Entity
+@NoArgsConstructor
+public class AllowanceRollover extends AbstractEntity {
+
+    @Column(nullable = false, unique = true)
+    private int year;
+
+    @Column(nullable = false)
+    private Timestamp lastCreatedAt;
+
+    @Column(nullable = false, columnDefinition = "UUID")
+    private UUID lastUid;
+
+    @Column(nullable = false)
+    private int processed;
+
+    private Timestamp finishedAt;
+
+    public AllowanceRollover(int year) {
+        this.year = year;
+        this.lastCreatedAt = new Timestamp(0);
+        this.lastUid = new UUID(0, 0);
+    }
+
+}
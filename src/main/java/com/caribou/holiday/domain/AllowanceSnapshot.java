@@ -0,0 +1,38 @@
+package com.caribou.holiday.domain;
+
+import com.caribou.AbstractEntity;
+import com.caribou.company.domain.CompanyEmployee;
+import lombok.Getter;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.ManyToOne;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+import java.math.BigDecimal;
+
+
+/**
+ * Sum of employee's allowance entries of a year inserted by transactions before {@link #upTo}
+ */
+@Getter
+@Entity
+@Table(uniqueConstraints = @UniqueConstraint(columnNames = {"employee_uid", "year", "upTo"}))
+public class AllowanceSnapshot extends AbstractEntity {
+
+    @ManyToOne(optional = false)
+    private CompanyEmployee employee;
+
+    @Column(nullable = false)
+    private int year;
+
+    @Column(nullable = false, precision = 5, scale = 2)
+    private BigDecimal balance;
+
+    /**
+     * Transaction id watermark, entries of older transactions are in the balance
+     */
+    @Column(nullable = false)
+    private long upTo;
+
+}
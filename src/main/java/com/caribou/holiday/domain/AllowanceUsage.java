@@ -0,0 +1,33 @@
+package com.caribou.holiday.domain;
+
+import com.caribou.AbstractEntity;
+import com.caribou.company.domain.CompanyEmployee;
+import lombok.Getter;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.ManyToOne;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+import java.math.BigDecimal;
+
+
+/**
+ * Days deducted from employee's allowance in a year, the sum of deduction entries kept in one row. Deductions update
+ * it conditionally, so the database checks the overdraft of concurrent approvals one after another.
+ */
+@Getter
+@Entity
+@Table(uniqueConstraints = @UniqueConstraint(columnNames = {"employee_uid", "year"}))
+public class AllowanceUsage extends AbstractEntity {
+
+    @ManyToOne(optional = false)
+    private CompanyEmployee employee;
+
+    @Column(nullable = false)
+    private int year;
+
+    @Column(nullable = false, precision = 5, scale = 2)
+    private BigDecimal days;
+
+}
@@ -3,9 +3,11 @@ package com.caribou.holiday.domain;
 import com.caribou.AbstractEntity;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
+import lombok.Data;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.springframework.data.domain.DomainEvents;
 
 import javax.persistence.Column;
 import javax.persistence.Entity;
@@ -14,6 +16,8 @@ import javax.persistence.Enumerated;
 import javax.persistence.Index;
 import javax.persistence.Table;
 import java.sql.Date;
+import java.util.Collection;
+import java.util.Collections;
 
 
 @Setter
@@ -34,8 +38,21 @@ public class BankHoliday extends AbstractEntity {
 
     private String description;
 
+    /**
+     * Published by repository on every save so cached calendars can be refreshed
+     */
+    @DomainEvents
+    Collection<ChangedEvent> changedEvents() {
+        return Collections.singletonList(new ChangedEvent(country));
+    }
+
     public enum Country {
         CZ
     }
 
+    @Data
+    public static class ChangedEvent {
+        private final Country country;
+    }
+
 }
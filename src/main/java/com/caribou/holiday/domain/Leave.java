@@ -4,17 +4,24 @@ import com.caribou.AbstractEntity;
 import com.caribou.auth.domain.UserAccount;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
+import lombok.Data;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.springframework.data.domain.DomainEvents;
 
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.EnumType;
 import javax.persistence.Enumerated;
+import javax.persistence.Index;
 import javax.persistence.ManyToOne;
+import javax.persistence.Table;
 import java.math.BigDecimal;
 import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.UUID;
 
 
 @Setter
@@ -23,6 +30,7 @@ import java.sql.Timestamp;
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
+@Table(indexes = {@Index(columnList = "user_account_uid, updatedAt"), @Index(columnList = "user_account_uid, createdAt, uid")})
 public class Leave extends AbstractEntity {
 
     @ManyToOne
@@ -49,10 +57,32 @@ public class Leave extends AbstractEntity {
 
     private String reason;
 
+    /**
+     * Keeps in-memory indexes of leaves in sync with every repository save
+     */
+    @DomainEvents
+    Collection<ChangedEvent> changedEvents() {
+        return Collections.singletonList(ChangedEvent.of(this));
+    }
+
     public enum Status {
         APPROVED,
         DECLINED,
         PENDING
     }
 
+    @Data
+    public static class ChangedEvent {
+        private final Leave leave;
+
+        /**
+         * Company of the leave type, null when the leave has no type
+         */
+        private final UUID companyUid;
+
+        public static ChangedEvent of(Leave leave) {
+            return new ChangedEvent(leave, leave.getLeaveType() == null ? null : leave.getLeaveType().getCompany().getUid());
+        }
+    }
+
 }
@@ -0,0 +1,21 @@
+package com.caribou.holiday.repository;
+
+import com.caribou.holiday.domain.AllowanceEntry;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+
+public interface AllowanceEntryRepository extends CrudRepository<AllowanceEntry, UUID> {
+
+    @Query("select new com.caribou.holiday.repository.AllowanceTotal(e.employee.uid, e.year, sum(e.days)) " +
+            "from AllowanceEntry e " +
+            "where e.employee.company.uid = :company and e.year = :year and e.type in :types " +
+            "group by e.employee.uid, e.year")
+    List<AllowanceTotal> sumByCompanyUid(@Param("company") UUID companyUid, @Param("year") int year, @Param("types") Collection<AllowanceEntry.Type> types);
+
+}
@@ -0,0 +1,38 @@
+package com.caribou.holiday.repository;
+
+import com.caribou.holiday.domain.AllowanceRollover;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.util.Optional;
+import java.util.UUID;
+
+
+public interface AllowanceRolloverRepository extends CrudRepository<AllowanceRollover, UUID> {
+
+    Optional<AllowanceRollover> findByYear(int year);
+
+    Optional<AllowanceRollover> findFirstByOrderByYearDesc();
+
+    /**
+     * Moves the checkpoint past a chunk of employees
+     *
+     * @return zero when someone else moved it since it was read
+     */
+    @Modifying(clearAutomatically = true)
+    @Transactional
+    @Query("update AllowanceRollover r " +
+            "set r.lastCreatedAt = :createdAt, r.lastUid = :uid, r.processed = r.processed + :count, r.updatedAt = current_timestamp " +
+            "where r.year = :year and r.processed = :processed")
+    int advance(@Param("year") int year, @Param("processed") int processed, @Param("createdAt") Timestamp lastCreatedAt, @Param("uid") UUID lastUid, @Param("count") int count);
+
+    @Modifying(clearAutomatically = true)
+    @Transactional
+    @Query("update AllowanceRollover r set r.finishedAt = current_timestamp, r.updatedAt = current_timestamp where r.year = :year and r.finishedAt is null")
+    int finish(@Param("year") int year);
+
+}
@@ -0,0 +1,21 @@
+package com.caribou.holiday.repository;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+
+/**
+ * Sum of days of an employee's allowance in a year
+ */
+@Data
+public class AllowanceTotal {
+
+    private final UUID employeeUid;
+
+    private final int year;
+
+    private final BigDecimal days;
+
+}
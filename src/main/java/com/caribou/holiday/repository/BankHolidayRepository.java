@@ -5,6 +5,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 
 import java.sql.Date;
+import java.util.List;
 import java.util.UUID;
 
 
@@ -13,4 +14,7 @@ public interface BankHolidayRepository extends CrudRepository<BankHoliday, UUID>
     @Query("SELECT count(b) > 0 FROM BankHoliday b WHERE b.date = ?1 AND b.country = ?2")
     boolean isBankHoliday(Date date, BankHoliday.Country country);
 
+    @Query("SELECT b.date FROM BankHoliday b WHERE b.country = ?1 AND b.date BETWEEN ?2 AND ?3 ORDER BY b.date")
+    List<Date> findDates(BankHoliday.Country country, Date from, Date to);
+
 }
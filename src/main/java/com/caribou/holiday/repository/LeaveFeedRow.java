@@ -0,0 +1,50 @@
+package com.caribou.holiday.repository;
+
+import com.caribou.holiday.domain.Leave;
+import lombok.Data;
+
+import java.sql.Timestamp;
+import java.util.Date;
+import java.util.UUID;
+
+
+/**
+ * One leave of a company or department calendar feed, written as an event
+ */
+@Data
+public class LeaveFeedRow {
+
+    private final UUID uid;
+
+    private final String firstName;
+
+    private final String lastName;
+
+    private final String leaveType;
+
+    private final String reason;
+
+    private final Leave.Status status;
+
+    private final Timestamp starting;
+
+    private final Timestamp ending;
+
+    private final Date createdAt;
+
+    private final Date updatedAt;
+
+    public LeaveFeedRow(UUID uid, String firstName, String lastName, String leaveType, String reason, Leave.Status status, Date starting, Date ending, Date createdAt, Date updatedAt) {
+        this.uid = uid;
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.leaveType = leaveType;
+        this.reason = reason;
+        this.status = status;
+        this.starting = new Timestamp(starting.getTime());
+        this.ending = new Timestamp(ending.getTime());
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
+    }
+
+}
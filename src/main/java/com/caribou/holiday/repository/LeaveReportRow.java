@@ -0,0 +1,59 @@
+package com.caribou.holiday.repository;
+
+import com.caribou.holiday.domain.Leave;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.Date;
+
+
+/**
+ * One leave of the yearly report, written as a CSV row
+ */
+@Data
+@JsonPropertyOrder(value = {"firstName", "lastName", "email", "department", "leaveType", "starting", "ending", "numberOfDays", "status"})
+public class LeaveReportRow {
+
+    @JsonProperty("first name")
+    private final String firstName;
+
+    @JsonProperty("last name")
+    private final String lastName;
+
+    @JsonProperty("email")
+    private final String email;
+
+    @JsonProperty("department")
+    private final String department;
+
+    @JsonProperty("type")
+    private final String leaveType;
+
+    @JsonProperty("starting")
+    private final String starting;
+
+    @JsonProperty("ending")
+    private final String ending;
+
+    @JsonProperty("days")
+    private final BigDecimal numberOfDays;
+
+    @JsonProperty("status")
+    private final Leave.Status status;
+
+    public LeaveReportRow(String firstName, String lastName, String email, String department, String leaveType, Date starting, Date ending, BigDecimal numberOfDays, Leave.Status status) {
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.email = email;
+        this.department = department;
+        this.leaveType = leaveType;
+        this.starting = new Timestamp(starting.getTime()).toLocalDateTime().toLocalDate().toString();
+        this.ending = new Timestamp(ending.getTime()).toLocalDateTime().toLocalDate().toString();
+        this.numberOfDays = numberOfDays;
+        this.status = status;
+    }
+
+}
@@ -2,12 +2,21 @@ package com.caribou.holiday.repository;
 
 import com.caribou.auth.domain.UserAccount;
 import com.caribou.holiday.domain.Leave;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 
+import javax.persistence.QueryHint;
 import java.sql.Timestamp;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
 
 
 public interface LeaveRepository extends CrudRepository<Leave, UUID> {
@@ -19,4 +28,114 @@ public interface LeaveRepository extends CrudRepository<Leave, UUID> {
             "where l.userAccount = ?1 and l.ending >= ?2 and l.starting <= ?3")
     List<Leave> findByUserAccount(UserAccount member, Timestamp from, Timestamp to);
 
+    @Query("select l " +
+            "from Leave l " +
+            "where l.userAccount = :member and (l.createdAt > :createdAt or (l.createdAt = :createdAt and l.uid > :cursor)) " +
+            "order by l.createdAt, l.uid")
+    List<Leave> findByUserAccountAfter(@Param("member") UserAccount member, @Param("createdAt") Timestamp createdAt, @Param("cursor") UUID cursor, Pageable pageable);
+
+    @Query("select l " +
+            "from Leave l " +
+            "where l.userAccount = :member and (l.createdAt < :createdAt or (l.createdAt = :createdAt and l.uid < :cursor)) " +
+            "order by l.createdAt desc, l.uid desc")
+    List<Leave> findByUserAccountBefore(@Param("member") UserAccount member, @Param("createdAt") Timestamp createdAt, @Param("cursor") UUID cursor, Pageable pageable);
+
+    /**
+     * @return number of updated leaves, zero when the leave isn't in the expected status anymore
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("update Leave l set l.status = :to, l.updatedAt = current_timestamp where l.uid = :uid and l.status = :from")
+    int updateStatus(@Param("uid") UUID uid, @Param("from") Leave.Status from, @Param("to") Leave.Status to);
+
+    @Modifying(clearAutomatically = true)
+    @Query("update Leave l set l.status = :to, l.updatedAt = current_timestamp where l.uid in :uids and l.status = :from")
+    int updateStatus(@Param("uids") Collection<UUID> uids, @Param("from") Leave.Status from, @Param("to") Leave.Status to);
+
+    @Query("select l " +
+            "from Leave l " +
+            "join fetch l.userAccount " +
+            "left join fetch l.leaveType " +
+            "where l.uid in :uids")
+    List<Leave> findByUidIn(@Param("uids") Collection<UUID> uids);
+
+    @Query("select new com.caribou.holiday.repository.LeaveSpan(l.uid, l.userAccount.uid, l.starting, l.ending, l.status) " +
+            "from Leave l " +
+            "where l.userAccount.uid in :members and l.ending >= :from and l.starting <= :to and l.status in :statuses")
+    List<LeaveSpan> findSpansByMembers(@Param("members") Collection<UUID> memberUids, @Param("from") Timestamp from, @Param("to") Timestamp to, @Param("statuses") Collection<Leave.Status> statuses);
+
+    @Query("select new com.caribou.holiday.repository.LeavesVersion(max(l.updatedAt), count(l)) " +
+            "from Leave l " +
+            "where l.userAccount = ?1")
+    LeavesVersion findVersionByUserAccount(UserAccount userAccount);
+
+    /**
+     * Members without any leave are left out
+     */
+    @Query("select new com.caribou.holiday.repository.MemberLeavesVersion(l.userAccount.uid, max(l.updatedAt), count(l)) " +
+            "from Leave l " +
+            "where l.userAccount.uid in :members " +
+            "group by l.userAccount.uid")
+    List<MemberLeavesVersion> findVersionsByMembers(@Param("members") Collection<UUID> memberUids);
+
+    /**
+     * Leaves of the company's employees which end on or after from and start before until, ordered by start
+     */
+    @Query("select new com.caribou.holiday.repository.LeaveSpan(l.uid, l.userAccount.uid, l.starting, l.ending, l.status) " +
+            "from Leave l, CompanyEmployee e " +
+            "where e.member = l.userAccount and e.company.uid = :uid and l.ending >= :from and l.starting < :until " +
+            "order by l.starting")
+    List<LeaveSpan> findSpansByCompanyUid(@Param("uid") UUID companyUid, @Param("from") Timestamp from, @Param("until") Timestamp until);
+
+    /**
+     * Version of {@link #findSpansByCompanyUid(UUID, Timestamp, Timestamp)}
+     */
+    @Query("select new com.caribou.holiday.repository.LeavesVersion(max(l.updatedAt), count(l)) " +
+            "from Leave l, CompanyEmployee e " +
+            "where e.member = l.userAccount and e.company.uid = :uid and l.ending >= :from and l.starting < :until")
+    LeavesVersion findVersionByCompanyUid(@Param("uid") UUID companyUid, @Param("from") Timestamp from, @Param("until") Timestamp until);
+
+    /**
+     * Leaves of the company's employees ending after from, must be read in a transaction and closed
+     */
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query("select new com.caribou.holiday.repository.LeaveFeedRow(l.uid, u.firstName, u.lastName, t.name, l.reason, l.status, l.starting, l.ending, l.createdAt, l.updatedAt) " +
+            "from Leave l join l.userAccount u left join l.leaveType t, CompanyEmployee e " +
+            "where e.member = u and e.company.uid = :company and l.ending >= :from")
+    Stream<LeaveFeedRow> streamFeedByCompanyUid(@Param("company") UUID companyUid, @Param("from") Timestamp from);
+
+    /**
+     * Leaves of the department's employees ending after from, must be read in a transaction and closed
+     */
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query("select new com.caribou.holiday.repository.LeaveFeedRow(l.uid, u.firstName, u.lastName, t.name, l.reason, l.status, l.starting, l.ending, l.createdAt, l.updatedAt) " +
+            "from Leave l join l.userAccount u left join l.leaveType t, CompanyEmployee e " +
+            "where e.member = u and e.department.uid = :department and l.ending >= :from")
+    Stream<LeaveFeedRow> streamFeedByDepartmentUid(@Param("department") UUID departmentUid, @Param("from") Timestamp from);
+
+    /**
+     * Version of {@link #streamFeedByCompanyUid(UUID, Timestamp)}, renamed employees count as modified
+     */
+    @Query("select new com.caribou.holiday.repository.LeavesVersion(max(case when u.updatedAt > l.updatedAt then u.updatedAt else l.updatedAt end), count(l)) " +
+            "from Leave l join l.userAccount u, CompanyEmployee e " +
+            "where e.member = u and e.company.uid = :company and l.ending >= :from")
+    LeavesVersion findFeedVersionByCompanyUid(@Param("company") UUID companyUid, @Param("from") Timestamp from);
+
+    /**
+     * Version of {@link #streamFeedByDepartmentUid(UUID, Timestamp)}, renamed employees count as modified
+     */
+    @Query("select new com.caribou.holiday.repository.LeavesVersion(max(case when u.updatedAt > l.updatedAt then u.updatedAt else l.updatedAt end), count(l)) " +
+            "from Leave l join l.userAccount u, CompanyEmployee e " +
+            "where e.member = u and e.department.uid = :department and l.ending >= :from")
+    LeavesVersion findFeedVersionByDepartmentUid(@Param("department") UUID departmentUid, @Param("from") Timestamp from);
+
+    /**
+     * Leaves of the company's employees overlapping the range, must be read in a transaction and closed
+     */
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query("select new com.caribou.holiday.repository.LeaveReportRow(u.firstName, u.lastName, u.email, d.name, t.name, l.starting, l.ending, l.numberOfDays, l.status) " +
+            "from Leave l join l.userAccount u left join l.leaveType t, CompanyEmployee e left join e.department d " +
+            "where e.member = u and e.company.uid = :company and l.ending >= :from and l.starting <= :to " +
+            "order by u.lastName, u.firstName, u.uid, l.starting")
+    Stream<LeaveReportRow> streamReport(@Param("company") UUID companyUid, @Param("from") Timestamp from, @Param("to") Timestamp to);
+
 }
@@ -0,0 +1,53 @@
+package com.caribou.holiday.repository;
+
+import com.caribou.holiday.domain.Leave;
+import lombok.Data;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.Date;
+import java.util.UUID;
+
+
+/**
+ * Days and status of a leave without loading the leave and its associations
+ */
+@Data
+public class LeaveSpan {
+
+    private final UUID uid;
+
+    private final UUID memberUid;
+
+    private final LocalDate starting;
+
+    private final LocalDate ending;
+
+    private final Leave.Status status;
+
+    private final long startingTime;
+
+    private final long endingTime;
+
+    public LeaveSpan(UUID uid, UUID memberUid, Date starting, Date ending, Leave.Status status) {
+        this.uid = uid;
+        this.memberUid = memberUid;
+        this.starting = new Timestamp(starting.getTime()).toLocalDateTime().toLocalDate();
+        this.ending = new Timestamp(ending.getTime()).toLocalDateTime().toLocalDate();
+        this.status = status;
+        this.startingTime = starting.getTime();
+        this.endingTime = ending.getTime();
+    }
+
+    /**
+     * Overlap with both times included, the same as the leave_no_overlap constraint checks
+     */
+    public boolean overlaps(Date starting, Date ending) {
+        return startingTime <= ending.getTime() && endingTime >= starting.getTime();
+    }
+
+    public static LeaveSpan of(Leave leave) {
+        return new LeaveSpan(leave.getUid(), leave.getUserAccount().getUid(), leave.getStarting(), leave.getEnding(), leave.getStatus());
+    }
+
+}
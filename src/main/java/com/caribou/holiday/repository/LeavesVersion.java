@@ -0,0 +1,18 @@
+package com.caribou.holiday.repository;
+
+import lombok.Data;
+
+import java.util.Date;
+
+
+/**
+ * Last update and number of someone's leaves, changes whenever a leave is added, updated or removed
+ */
+@Data
+public class LeavesVersion {
+
+    private final Date lastModified;
+
+    private final Long count;
+
+}
@@ -0,0 +1,24 @@
+package com.caribou.holiday.repository;
+
+import lombok.Data;
+
+import java.util.Date;
+import java.util.UUID;
+
+
+/**
+ * {@link LeavesVersion} of all leaves of one member
+ */
+@Data
+public class MemberLeavesVersion {
+
+    private final UUID memberUid;
+
+    private final LeavesVersion version;
+
+    public MemberLeavesVersion(UUID memberUid, Date lastModified, Long count) {
+        this.memberUid = memberUid;
+        this.version = new LeavesVersion(lastModified, count);
+    }
+
+}
@@ -0,0 +1,47 @@
+package com.caribou.holiday.rest;
+
+import com.caribou.auth.jwt.UserContext;
+import com.caribou.company.service.NotFound;
+import com.caribou.holiday.rest.dto.AbsenceDayDto;
+import com.caribou.holiday.service.AbsenceHeatmapService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+
+@RestController
+@RequestMapping("/v1/company/{companyId}/absence-heatmap")
+public class AbsenceHeatmapController {
+
+    @Autowired
+    private AbsenceHeatmapService absenceHeatmapService;
+
+    @RequestMapping(method = RequestMethod.GET)
+    public List<AbsenceDayDto> get(@PathVariable("companyId") String companyId,
+                                   @RequestParam("from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                   @RequestParam("to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                   @RequestParam(value = "department", required = false) UUID department) {
+        UserContext userDetails = (UserContext) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        if (!companyId.equals(userDetails.getCompanyId().toString())) {
+            throw new NotFound();
+        }
+        return absenceHeatmapService.heatmap(userDetails.getCompanyId(), department, from, to).stream()
+                .map(d -> AbsenceDayDto.builder()
+                        .date(d.getDate())
+                        .pending(d.getPending())
+                        .approved(d.getApproved())
+                        .build())
+                .collect(Collectors.toList());
+    }
+
+}
@@ -0,0 +1,42 @@
+package com.caribou.holiday.rest;
+
+import com.caribou.auth.jwt.UserContext;
+import com.caribou.company.domain.Role;
+import com.caribou.company.service.NotFound;
+import com.caribou.holiday.service.AllowanceRecomputeJob;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+
+@RestController
+@RequestMapping("/v1/company/{companyId}/allowances")
+public class AllowanceController {
+
+    @Autowired
+    private AllowanceRecomputeJob allowanceRecomputeJob;
+
+    @RequestMapping(value = "/recompute", method = RequestMethod.POST)
+    public ResponseEntity recompute(@PathVariable("companyId") String companyId,
+                                    @RequestParam(value = "department", required = false) UUID department) {
+        UserContext userDetails = (UserContext) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        if (!companyId.equals(userDetails.getCompanyId().toString())) {
+            throw new NotFound();
+        }
+        if (Role.Viewer.equals(userDetails.getRoleInCompany())) {
+            throw new AccessDeniedException("user=" + userDetails.getUid() + " can't recompute allowances");
+        }
+        allowanceRecomputeJob.recompute(userDetails.getCompanyId(), department, LocalDate.now().getYear());
+        return ResponseEntity.noContent().build();
+    }
+
+}
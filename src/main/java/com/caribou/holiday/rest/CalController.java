@@ -2,8 +2,11 @@ package com.caribou.holiday.rest;
 
 import com.caribou.auth.domain.UserAccount;
 import com.caribou.auth.repository.UserRepository;
+import com.caribou.company.repository.CompanyRepository;
+import com.caribou.company.repository.DepartmentRepository;
 import com.caribou.company.service.CompanyService;
 import com.caribou.company.service.NotFound;
+import com.caribou.holiday.service.CalendarFeedCache;
 import com.caribou.holiday.service.ICalService;
 import ma.glasnost.orika.MapperFacade;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -11,7 +14,10 @@ import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.UUID;
 
@@ -29,11 +35,20 @@ public class CalController {
     @Autowired
     private CompanyService companyService;
 
+    @Autowired
+    private CompanyRepository companyRepository;
+
+    @Autowired
+    private DepartmentRepository departmentRepository;
+
     @Autowired
     private ICalService iCalService;
 
+    @Autowired
+    private CalendarFeedCache calendarFeedCache;
+
     @RequestMapping("/{userUid}")
-    public ResponseEntity<String> getIcal(@PathVariable("userUid") String userUid) throws IllegalAccessException, IllegalArgumentException {
+    public ResponseEntity<StreamingResponseBody> getIcal(@PathVariable("userUid") String userUid, WebRequest webRequest) throws IllegalArgumentException {
         UserAccount user;
         try {
             user = userRepository.findOne(UUID.fromString(userUid));
@@ -43,16 +58,71 @@ public class CalController {
         if (user == null) {
             throw new NotFound();
         }
+        ICalService.CalendarVersion version = iCalService.getCalendarVersion(user);
+        if (webRequest.checkNotModified(version.getETag(), version.getLastModified())) {
+            return null;
+        }
         HttpHeaders bla = new HttpHeaders();
         bla.set("Content-Type", "text/calendar");
         bla.set("Content-Disposition", "attachment;filename=" + slugify(user) + ".ics");
-        return ResponseEntity.ok().headers(bla).body(iCalService.getCalendarForUser(user).toICal());
+        return ResponseEntity.ok().headers(bla).body(out -> calendarFeedCache.write(user, version.getETag(), out));
+    }
+
+    /**
+     * Company feed is public like the user ones, but only with the token from {@link ICalService#getFeedToken(String, UUID)}
+     */
+    @RequestMapping("/company/{uid}")
+    public ResponseEntity<StreamingResponseBody> getCompanyIcal(@PathVariable("uid") String uid, @RequestParam(value = "token", required = false) String token, WebRequest webRequest) {
+        UUID companyUid = parseUid(uid);
+        if (!iCalService.isFeedToken("company", companyUid, token)) {
+            throw new NotFound();
+        }
+        String name = companyRepository.findNameByUid(companyUid).orElseThrow(NotFound::new);
+        ICalService.CalendarVersion version = iCalService.getCalendarVersionForCompany(companyUid);
+        if (webRequest.checkNotModified(version.getETag(), version.getLastModified())) {
+            return null;
+        }
+        return stream(slugify(name + " " + companyUid), out -> iCalService.writeCalendarForCompany(companyUid, name, out));
+    }
+
+    /**
+     * Department feed is public like the user ones, but only with the token from {@link ICalService#getFeedToken(String, UUID)}
+     */
+    @RequestMapping("/department/{uid}")
+    public ResponseEntity<StreamingResponseBody> getDepartmentIcal(@PathVariable("uid") String uid, @RequestParam(value = "token", required = false) String token, WebRequest webRequest) {
+        UUID departmentUid = parseUid(uid);
+        if (!iCalService.isFeedToken("department", departmentUid, token)) {
+            throw new NotFound();
+        }
+        String name = departmentRepository.findNameByUid(departmentUid).orElseThrow(NotFound::new);
+        ICalService.CalendarVersion version = iCalService.getCalendarVersionForDepartment(departmentUid);
+        if (webRequest.checkNotModified(version.getETag(), version.getLastModified())) {
+            return null;
+        }
+        return stream(slugify(name + " " + departmentUid), out -> iCalService.writeCalendarForDepartment(departmentUid, name, out));
+    }
+
+    private ResponseEntity<StreamingResponseBody> stream(String filename, StreamingResponseBody body) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("Content-Type", "text/calendar");
+        headers.set("Content-Disposition", "attachment;filename=" + filename + ".ics");
+        return ResponseEntity.ok().headers(headers).body(body);
+    }
+
+    private static UUID parseUid(String uid) {
+        try {
+            return UUID.fromString(uid);
+        } catch (IllegalArgumentException e) {
+            throw new NotFound();
+        }
     }
 
     private static String slugify(UserAccount user) {
-        StringBuilder builder = new StringBuilder();
-        builder.append(user.getFirstName()).append(" ").append(user.getLastName()).append(" ").append(user.getUid());
-        return builder.toString().trim().toLowerCase().replaceAll("[^A-Za-z0-9]", "-");
+        return slugify(user.getFirstName() + " " + user.getLastName() + " " + user.getUid());
+    }
+
+    private static String slugify(String name) {
+        return name.trim().toLowerCase().replaceAll("[^A-Za-z0-9]", "-");
     }
 
 }
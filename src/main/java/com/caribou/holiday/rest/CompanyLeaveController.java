@@ -4,26 +4,41 @@ import com.caribou.auth.jwt.UserContext;
 import com.caribou.auth.rest.dto.NestedSingleObject;
 import com.caribou.auth.rest.dto.UserAccountDto;
 import com.caribou.company.domain.Department;
+import com.caribou.company.domain.Role;
+import com.caribou.company.repository.DepartmentRepository;
 import com.caribou.company.rest.DepartmentRestController;
+import com.caribou.company.service.Cursor;
 import com.caribou.company.service.NotFound;
 import com.caribou.holiday.domain.Leave;
 import com.caribou.holiday.rest.dto.EmployeeLeavesDto;
+import com.caribou.holiday.rest.dto.FeedDto;
+import com.caribou.holiday.rest.dto.LeaveDecisionDto;
 import com.caribou.holiday.rest.dto.LeaveDto;
 import com.caribou.holiday.rest.dto.ListDto;
+import com.caribou.holiday.service.ICalService;
+import com.caribou.holiday.service.LeaveReportService;
 import com.caribou.holiday.service.LeaveService;
 import ma.glasnost.orika.MapperFacade;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.hateoas.mvc.ControllerLinkBuilder;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import javax.validation.Valid;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.UUID;
 import java.util.stream.Collectors;
 
 import static org.springframework.hateoas.mvc.ControllerLinkBuilder.linkTo;
@@ -40,20 +55,86 @@ public class CompanyLeaveController {
     @Autowired
     private LeaveService leaveService;
 
+    @Autowired
+    private LeaveReportService leaveReportService;
+
+    @Autowired
+    private ICalService iCalService;
+
+    @Autowired
+    private DepartmentRepository departmentRepository;
+
     @RequestMapping(method = RequestMethod.GET)
     public ListDto<EmployeeLeavesDto> getList(@PathVariable("companyId") String companyId,
                                               @RequestParam("from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
-                                              @RequestParam("to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+                                              @RequestParam("to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                              @RequestParam(value = "limit", defaultValue = "50") int limit,
+                                              @RequestParam(value = "cursor", required = false) String cursor) {
         UserContext userDetails = (UserContext) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
         if (!companyId.equals(userDetails.getCompanyId().toString())) {
             throw new NotFound();
         }
-        List<LeaveService.EmployeeLeaves> leaves = leaveService.getEmployeeLeaves(companyId, from, to);
-        List<EmployeeLeavesDto> employeeLeavesDtos = leaves.stream().map(this::map).collect(Collectors.toList());
-        return ListDto.<EmployeeLeavesDto>builder()
-                .items(employeeLeavesDtos)
-                .total(employeeLeavesDtos.size())
-                .build();
+        return ListDto.of(leaveService.getEmployeeLeaves(companyId, from, to, Cursor.fromToken(cursor), limit).map(this::map));
+    }
+
+    @RequestMapping(value = "/approve", method = RequestMethod.POST)
+    public ResponseEntity approve(@PathVariable("companyId") String companyId, @Valid @RequestBody LeaveDecisionDto decision) {
+        return decide(companyId, decision, Leave.Status.APPROVED);
+    }
+
+    @RequestMapping(value = "/decline", method = RequestMethod.POST)
+    public ResponseEntity decline(@PathVariable("companyId") String companyId, @Valid @RequestBody LeaveDecisionDto decision) {
+        return decide(companyId, decision, Leave.Status.DECLINED);
+    }
+
+    @RequestMapping(value = "/export", method = RequestMethod.GET)
+    public ResponseEntity<StreamingResponseBody> export(@PathVariable("companyId") String companyId, @RequestParam("year") int year) {
+        UserContext userDetails = (UserContext) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        if (!companyId.equals(userDetails.getCompanyId().toString())) {
+            throw new NotFound();
+        }
+        if (Role.Viewer.equals(userDetails.getRoleInCompany())) {
+            throw new AccessDeniedException("user=" + userDetails.getUid() + " can't export leaves");
+        }
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("Content-Type", "text/csv");
+        headers.set("Content-Disposition", "attachment;filename=leaves-" + year + ".csv");
+        return ResponseEntity.ok().headers(headers).body(out -> leaveReportService.writeCsv(userDetails.getCompanyId(), year, out));
+    }
+
+    /**
+     * Link of the company's calendar feed, or of a department's one when it's given
+     */
+    @RequestMapping(value = "/feed", method = RequestMethod.GET)
+    public FeedDto getFeed(@PathVariable("companyId") String companyId, @RequestParam(value = "department", required = false) UUID departmentUid) {
+        UserContext userDetails = (UserContext) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        if (!companyId.equals(userDetails.getCompanyId().toString())) {
+            throw new NotFound();
+        }
+        String feed = "company";
+        UUID uid = userDetails.getCompanyId();
+        if (departmentUid != null) {
+            if (!departmentRepository.findCompanyUidByUid(departmentUid).filter(uid::equals).isPresent()) {
+                throw new NotFound();
+            }
+            feed = "department";
+            uid = departmentUid;
+        }
+        String href = ServletUriComponentsBuilder.fromCurrentContextPath()
+                .path("/cal/{feed}/{uid}")
+                .queryParam("token", iCalService.getFeedToken(feed, uid))
+                .buildAndExpand(feed, uid)
+                .toUriString();
+        return FeedDto.builder().href(href).build();
+    }
+
+    private ResponseEntity decide(String companyId, LeaveDecisionDto decision, Leave.Status status) {
+        UserContext userDetails = (UserContext) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        if (!companyId.equals(userDetails.getCompanyId().toString())) {
+            throw new NotFound();
+        }
+        leaveService.decide(decision.getLeaves(), userDetails.getUid(), status);
+        return ResponseEntity.noContent().build();
     }
 
     private EmployeeLeavesDto map(LeaveService.EmployeeLeaves employeeLeaves) {
@@ -5,6 +5,7 @@ import com.caribou.auth.service.UserService;
 import com.caribou.company.domain.CompanyEmployee;
 import com.caribou.company.rest.ErrorHandler;
 import com.caribou.company.service.CompanyService;
+import com.caribou.company.service.Cursor;
 import com.caribou.company.service.NotFound;
 import com.caribou.holiday.domain.Leave;
 import com.caribou.holiday.rest.dto.LeaveDto;
@@ -19,6 +20,7 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import rx.Observable;
 import rx.Single;
@@ -70,16 +72,17 @@ public class LeaveController {
     }
 
     @RequestMapping(method = RequestMethod.GET)
-    public Single<ListDto<LeaveDto>> getList(@PathVariable("userUid") String userUid) {
+    public Single<ListDto<LeaveDto>> getList(@PathVariable("userUid") String userUid,
+                                             @RequestParam(value = "limit", defaultValue = "50") int limit,
+                                             @RequestParam(value = "cursor", required = false) String cursor) {
         UserContext userDetails = (UserContext) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        Cursor position = Cursor.fromToken(cursor);
         return companyService.getEmployeeByItsUid(userUid)
                 .filter(e -> e.getCompany().getUid().equals(userDetails.getCompanyId()))
                 .switchIfEmpty(Observable.error(new NotFound()))
                 .map(CompanyEmployee::getMember)
-                .flatMap(leaveService::findByUserAccount)
-                .map(this::convert)
-                .toList()
-                .map(l -> ListDto.<LeaveDto>builder().items(l).build())
+                .map(member -> leaveService.findByUserAccount(member, position, limit))
+                .map(page -> ListDto.of(page.map(this::convert)))
                 .toSingle();
     }
 
@@ -0,0 +1,27 @@
+package com.caribou.holiday.rest.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AbsenceDayDto {
+
+    @JsonProperty
+    private LocalDate date;
+
+    @JsonProperty
+    private int pending;
+
+    @JsonProperty
+    private int approved;
+
+}
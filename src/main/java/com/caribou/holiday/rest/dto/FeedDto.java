@@ -0,0 +1,20 @@
+package com.caribou.holiday.rest.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+
+/**
+ * Link of a calendar feed, it contains the secret token so it's shown only to the company's employees
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FeedDto {
+
+    private String href;
+
+}
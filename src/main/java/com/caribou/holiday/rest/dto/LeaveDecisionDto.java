@@ -0,0 +1,26 @@
+package com.caribou.holiday.rest.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+import java.util.List;
+import java.util.UUID;
+
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LeaveDecisionDto {
+
+    @NotNull
+    @Size(min = 1, max = 500)
+    @JsonProperty(required = true)
+    private List<UUID> leaves;
+
+}
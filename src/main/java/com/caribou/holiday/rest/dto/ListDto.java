@@ -1,5 +1,7 @@
 package com.caribou.holiday.rest.dto;
 
+import com.caribou.company.service.KeysetPage;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -20,10 +22,23 @@ public class ListDto<T> {
 
     private int offset;
 
-    private int total;
+    /**
+     * Number of all items, not sent with keyset pages which would have to count them by another query
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Integer total;
 
     private String next;
 
     private String previous;
 
+    public static <T> ListDto<T> of(KeysetPage<T> page) {
+        return ListDto.<T>builder()
+                .items(page.getItems())
+                .limit(page.getLimit())
+                .next(page.getNext())
+                .previous(page.getPrevious())
+                .build();
+    }
+
 }
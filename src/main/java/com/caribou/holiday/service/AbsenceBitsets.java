@@ -0,0 +1,338 @@
+package com.caribou.holiday.service;
+
+import com.caribou.company.repository.CompanyRepository;
+import com.caribou.holiday.domain.Leave;
+import com.caribou.holiday.repository.LeaveRepository;
+import com.caribou.holiday.repository.LeaveSpan;
+import com.caribou.holiday.repository.LeavesVersion;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * Approved and pending days off of employees as a bitset per year, bit n is the n-th day of the year. Team queries
+ * are then ANDs over a few words per employee. Bitsets of an employee are dropped whenever any of their leaves
+ * changes on this node and the missing ones are loaded together in one query. Once the refresh interval passed, the
+ * version of the employees' leaves in the database is checked first, so leaves changed by other nodes get reloaded.
+ * Only the least recently used employees are kept.
+ */
+@Slf4j
+@Component
+public class AbsenceBitsets {
+
+    /**
+     * Words of 366 days
+     */
+    private static final int WORDS = 6;
+
+    private static final LeavesVersion NO_LEAVES = new LeavesVersion(null, 0L);
+
+    private final LeaveRepository leaveRepository;
+
+    private final CompanyRepository companyRepository;
+
+    private final long refreshInterval;
+
+    /**
+     * Bitsets by member, so all of a member's years are dropped at once
+     */
+    private final Map<UUID, Member> members;
+
+    private final AtomicLong changes = new AtomicLong();
+
+    @Autowired
+    public AbsenceBitsets(
+            LeaveRepository leaveRepository,
+            CompanyRepository companyRepository,
+            @Value("${app.absence.maxMembers}") int maxMembers,
+            @Value("${app.absence.refreshInterval}") long refreshInterval
+    ) {
+        this.leaveRepository = leaveRepository;
+        this.companyRepository = companyRepository;
+        this.refreshInterval = refreshInterval;
+        this.members = new LinkedHashMap<UUID, Member>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, Member> eldest) {
+                return size() > maxMembers;
+            }
+        };
+    }
+
+    /**
+     * @return number of department members who are off, approved or pending, on the day
+     */
+    public int countOff(UUID companyUid, UUID departmentUid, LocalDate day) {
+        return countOverlapping(companyRepository.findMemberUidsByDepartmentUid(companyUid, departmentUid), day, day);
+    }
+
+    /**
+     * @return number of members who are off, approved or pending, at least one day between from and to
+     */
+    public int countOverlapping(List<UUID> memberUids, LocalDate from, LocalDate to) {
+        boolean[] off = new boolean[memberUids.size()];
+        for (int year = from.getYear(); year <= to.getYear(); year++) {
+            long[] mask = mask(dayOfYear(from, year), dayOfYear(to, year));
+            Bits[] bits = bitsets(memberUids, year, refreshInterval);
+            for (int i = 0; i < bits.length; i++) {
+                off[i] = off[i] || bits[i].intersects(mask);
+            }
+        }
+        int count = 0;
+        for (boolean o : off) {
+            if (o) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Bitsets are compared with the database on every call, as the result decides whether a leave may be created
+     *
+     * @return the most members with an approved leave on a single day between from and to
+     */
+    public int maxApprovedOff(List<UUID> memberUids, LocalDate from, LocalDate to) {
+        int max = 0;
+        for (int year = from.getYear(); year <= to.getYear(); year++) {
+            long[] days = mask(dayOfYear(from, year), dayOfYear(to, year));
+            // bit p of the number of members off on each day, every member is added to all days at once
+            List<long[]> counts = new ArrayList<>();
+            long[] carry = new long[WORDS];
+            for (Bits b : bitsets(memberUids, year, 0)) {
+                boolean carried = false;
+                for (int i = 0; i < WORDS; i++) {
+                    carry[i] = b.approved[i] & days[i];
+                    carried |= carry[i] != 0;
+                }
+                for (int p = 0; carried; p++) {
+                    if (p == counts.size()) {
+                        counts.add(new long[WORDS]);
+                    }
+                    long[] count = counts.get(p);
+                    carried = false;
+                    for (int i = 0; i < WORDS; i++) {
+                        long overflow = count[i] & carry[i];
+                        count[i] ^= carry[i];
+                        carry[i] = overflow;
+                        carried |= overflow != 0;
+                    }
+                }
+            }
+            // the highest count bit by bit from the top, keeping only the days which have every bit found so far
+            int off = 0;
+            long[] candidates = new long[WORDS];
+            for (int p = counts.size() - 1; p >= 0; p--) {
+                long[] count = counts.get(p);
+                boolean any = false;
+                for (int i = 0; i < WORDS; i++) {
+                    candidates[i] = days[i] & count[i];
+                    any |= candidates[i] != 0;
+                }
+                if (any) {
+                    System.arraycopy(candidates, 0, days, 0, WORDS);
+                    off |= 1 << p;
+                }
+            }
+            max = Math.max(max, off);
+        }
+        return max;
+    }
+
+    /**
+     * @param maxAge milliseconds since bitsets were last compared with the database before they're compared again
+     */
+    private Bits[] bitsets(List<UUID> memberUids, int year, long maxAge) {
+        Bits[] result = new Bits[memberUids.size()];
+        Map<UUID, Member> unverified = new HashMap<>();
+        long now = System.currentTimeMillis();
+        synchronized (members) {
+            for (int i = 0; i < result.length; i++) {
+                Member member = members.get(memberUids.get(i));
+                result[i] = member == null ? null : member.years.get(year);
+                if (result[i] != null && now - member.verifiedAt >= maxAge) {
+                    unverified.put(memberUids.get(i), member);
+                }
+            }
+        }
+        if (!unverified.isEmpty()) {
+            Map<UUID, LeavesVersion> versions = versions(unverified.keySet());
+            unverified.forEach((uid, member) -> {
+                if (versions.get(uid).equals(member.version)) {
+                    member.verifiedAt = now;
+                } else {
+                    synchronized (members) {
+                        members.remove(uid, member);
+                    }
+                }
+            });
+            for (int i = 0; i < result.length; i++) {
+                Member member = unverified.get(memberUids.get(i));
+                if (member != null && !versions.get(memberUids.get(i)).equals(member.version)) {
+                    result[i] = null;
+                }
+            }
+        }
+        List<UUID> missing = new ArrayList<>();
+        for (int i = 0; i < result.length; i++) {
+            if (result[i] == null) {
+                missing.add(memberUids.get(i));
+            }
+        }
+        if (missing.isEmpty()) {
+            return result;
+        }
+
+        long generation = changes.get();
+        // the versions are read first, so a leave committed during the load makes them differ on the next check
+        Map<UUID, LeavesVersion> versions = versions(missing);
+        Map<UUID, Bits> loaded = load(missing, year);
+        synchronized (members) {
+            // a leave changed while loading, the loaded bitsets may miss it
+            if (changes.get() == generation) {
+                loaded.forEach((uid, bits) -> {
+                    Member member = members.get(uid);
+                    if (member == null || !member.version.equals(versions.get(uid))) {
+                        member = new Member(versions.get(uid), now);
+                        members.put(uid, member);
+                    }
+                    member.years.put(year, bits);
+                });
+            }
+        }
+        for (int i = 0; i < result.length; i++) {
+            if (result[i] == null) {
+                result[i] = loaded.get(memberUids.get(i));
+            }
+        }
+        return result;
+    }
+
+    private Map<UUID, LeavesVersion> versions(Collection<UUID> memberUids) {
+        Map<UUID, LeavesVersion> versions = new HashMap<>();
+        memberUids.forEach(uid -> versions.put(uid, NO_LEAVES));
+        leaveRepository.findVersionsByMembers(memberUids).forEach(v -> versions.put(v.getMemberUid(), v.getVersion()));
+        return versions;
+    }
+
+    private Map<UUID, Bits> load(List<UUID> memberUids, int year) {
+        Map<UUID, Bits> loaded = new HashMap<>();
+        memberUids.forEach(uid -> loaded.put(uid, new Bits()));
+        LocalDate first = LocalDate.ofYearDay(year, 1);
+        LocalDate last = first.plusYears(1).minusDays(1);
+        List<LeaveSpan> spans = leaveRepository.findSpansByMembers(
+                memberUids,
+                Timestamp.valueOf(first.atStartOfDay()),
+                Timestamp.valueOf(last.atTime(LocalTime.MAX)),
+                EnumSet.of(Leave.Status.APPROVED, Leave.Status.PENDING)
+        );
+        for (LeaveSpan span : spans) {
+            Bits bits = loaded.get(span.getMemberUid());
+            long[] words = span.getStatus() == Leave.Status.APPROVED ? bits.approved : bits.pending;
+            set(words, dayOfYear(span.getStarting(), year), dayOfYear(span.getEnding(), year));
+        }
+        log.debug("Loaded absence of {} employees in {} from {} leaves", memberUids.size(), year, spans.size());
+        return loaded;
+    }
+
+    /**
+     * Number of employees in memory
+     */
+    public int size() {
+        synchronized (members) {
+            return members.size();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void leaveChangedEventListener(Leave.ChangedEvent event) {
+        changes.incrementAndGet();
+        synchronized (members) {
+            members.remove(event.getLeave().getUserAccount().getUid());
+        }
+    }
+
+    /**
+     * @return zero based day of the year, clamped to the year
+     */
+    private static int dayOfYear(LocalDate date, int year) {
+        if (date.getYear() < year) {
+            return 0;
+        } else if (date.getYear() > year) {
+            return LocalDate.ofYearDay(year, 1).lengthOfYear() - 1;
+        }
+        return date.getDayOfYear() - 1;
+    }
+
+    private static long[] mask(int from, int to) {
+        long[] mask = new long[WORDS];
+        set(mask, from, to);
+        return mask;
+    }
+
+    /**
+     * Sets bits from and to inclusive
+     */
+    private static void set(long[] words, int from, int to) {
+        for (int word = from >>> 6; word <= to >>> 6; word++) {
+            long bits = -1L;
+            if (word == from >>> 6) {
+                bits &= -1L << (from & 63);
+            }
+            if (word == to >>> 6) {
+                bits &= -1L >>> (63 - (to & 63));
+            }
+            words[word] |= bits;
+        }
+    }
+
+    /**
+     * Bitsets of a member's years loaded while their leaves were at the version
+     */
+    private static class Member {
+
+        private final LeavesVersion version;
+
+        private final Map<Integer, Bits> years = new ConcurrentHashMap<>();
+
+        private volatile long verifiedAt;
+
+        private Member(LeavesVersion version, long verifiedAt) {
+            this.version = version;
+            this.verifiedAt = verifiedAt;
+        }
+    }
+
+    private static class Bits {
+
+        private final long[] approved = new long[WORDS];
+
+        private final long[] pending = new long[WORDS];
+
+        private boolean intersects(long[] mask) {
+            for (int i = 0; i < WORDS; i++) {
+                if (((approved[i] | pending[i]) & mask[i]) != 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+}
@@ -0,0 +1,89 @@
+package com.caribou.holiday.service;
+
+import com.caribou.company.repository.CompanyRepository;
+import com.caribou.holiday.domain.Leave;
+import com.caribou.holiday.repository.LeaveSpan;
+import lombok.Data;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+
+/**
+ * Number of people off per day. Every leave adds one at its first day and removes one after its last day of a
+ * difference array, counts are then its running sum, so a leave costs the same no matter how long it is.
+ */
+@Service
+public class AbsenceHeatmapService {
+
+    public static final int MAX_DAYS = 366;
+
+    private final CompanyLeaveIndex companyLeaveIndex;
+
+    private final CompanyRepository companyRepository;
+
+    @Autowired
+    public AbsenceHeatmapService(CompanyLeaveIndex companyLeaveIndex, CompanyRepository companyRepository) {
+        this.companyLeaveIndex = companyLeaveIndex;
+        this.companyRepository = companyRepository;
+    }
+
+    /**
+     * @param departmentUid department to count, whole company when null
+     * @throws InvalidDateRange when to is before from or the range is longer than {@link #MAX_DAYS}
+     */
+    public List<Day> heatmap(UUID companyUid, UUID departmentUid, LocalDate from, LocalDate to) {
+        long length = ChronoUnit.DAYS.between(from, to) + 1;
+        if (length < 1 || length > MAX_DAYS) {
+            throw new InvalidDateRange();
+        }
+        int days = (int) length;
+        Set<UUID> members = departmentUid == null ? null : new HashSet<>(companyRepository.findMemberUidsByDepartmentUid(companyUid, departmentUid));
+
+        // one extra slot for leaves ending on the last day
+        int[] pending = new int[days + 1];
+        int[] approved = new int[days + 1];
+        for (LeaveSpan leave : companyLeaveIndex.findOverlapping(companyUid, from, to)) {
+            if (members != null && !members.contains(leave.getMemberUid())) {
+                continue;
+            }
+            int[] counts;
+            if (leave.getStatus() == Leave.Status.APPROVED) {
+                counts = approved;
+            } else if (leave.getStatus() == Leave.Status.PENDING) {
+                counts = pending;
+            } else {
+                continue;
+            }
+            long first = ChronoUnit.DAYS.between(from, leave.getStarting());
+            long last = ChronoUnit.DAYS.between(from, leave.getEnding());
+            counts[(int) Math.max(0, first)]++;
+            counts[(int) Math.min(days - 1, last) + 1]--;
+        }
+
+        List<Day> heatmap = new ArrayList<>(days);
+        int pendingOff = 0;
+        int approvedOff = 0;
+        for (int i = 0; i < days; i++) {
+            pendingOff += pending[i];
+            approvedOff += approved[i];
+            heatmap.add(new Day(from.plusDays(i), pendingOff, approvedOff));
+        }
+        return heatmap;
+    }
+
+    @Data
+    public static class Day {
+        private final LocalDate date;
+        private final int pending;
+        private final int approved;
+    }
+
+}
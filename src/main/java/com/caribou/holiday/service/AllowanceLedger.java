@@ -0,0 +1,275 @@
+package com.caribou.holiday.service;
+
+import com.caribou.company.domain.CompanyEmployee;
+import com.caribou.holiday.domain.AllowanceEntry;
+import com.caribou.holiday.domain.Leave;
+import com.caribou.holiday.repository.AllowanceEntryRepository;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+
+/**
+ * Allowance of employees as an append-only ledger. Balance of a year is the latest snapshot plus entries of later
+ * transactions, snapshots are taken periodically so a read never sums the whole history.
+ */
+@Slf4j
+@Service
+public class AllowanceLedger {
+
+    /**
+     * Transactions below this id are finished, entries they inserted won't change anymore
+     */
+    private static final String COMMITTED_WATERMARK = "select txid_snapshot_xmin(txid_current_snapshot())";
+
+    /**
+     * Latest snapshot and the entries after its watermark are read by one statement, so they can't miss or overlap
+     * each other when a snapshot is taken meanwhile
+     */
+    private static final String SELECT_BALANCES = "select e.uid as employee_uid, coalesce(s.balance, 0) + coalesce(" +
+            "(select sum(a.days) from allowance_entry a where a.employee_uid = e.uid and a.year = :year and a.txid >= coalesce(s.up_to, 0)), 0) as balance " +
+            "from company_employee e " +
+            "left join allowance_snapshot s on s.employee_uid = e.uid and s.year = :year " +
+            "and s.up_to = (select max(x.up_to) from allowance_snapshot x where x.employee_uid = e.uid and x.year = :year) " +
+            "where e.uid in (:uids)";
+
+    private static final String GRANTED = "coalesce((select sum(a.days) from allowance_entry a " +
+            "where a.employee_uid = :employee and a.year = :year and a.type <> 'DEDUCTION'), 0)";
+
+    /**
+     * Adds days to the usage row of the employee and year unless it would exceed the granted days plus overdraft. The
+     * conflicting row is checked in its latest committed version, so two deductions at once can't both pass on the
+     * same balance; grants committed meanwhile are missed, which only makes the check stricter.
+     */
+    private static final String BOOK_USAGE = "insert into allowance_usage as u (uid, employee_uid, year, days, created_at, updated_at) " +
+            "select :uid, :employee, :year, :days, now(), now() " +
+            "where cast(:overdraft as numeric) is null or :days <= :overdraft + " + GRANTED + " " +
+            "on conflict (employee_uid, year) do update set days = u.days + excluded.days, updated_at = now() " +
+            "where cast(:overdraft as numeric) is null or u.days + excluded.days <= :overdraft + " + GRANTED;
+
+    /**
+     * Sums entries of transactions before the watermark which aren't in the latest snapshot of their employee and year
+     * and inserts them added to that snapshot. The uid is derived from the unique employee, year and watermark.
+     */
+    private static final String INSERT_SNAPSHOTS = "insert into allowance_snapshot (uid, employee_uid, year, balance, up_to, created_at, updated_at) " +
+            "select cast(md5(cast(t.employee_uid as text) || '/' || t.year || '/' || :upTo) as uuid), t.employee_uid, t.year, coalesce(s.balance, 0) + t.days, :upTo, now(), now() " +
+            "from (select a.employee_uid, a.year, sum(a.days) as days from allowance_entry a " +
+            "where a.txid < :upTo " +
+            "and a.txid >= coalesce((select max(x.up_to) from allowance_snapshot x where x.employee_uid = a.employee_uid and x.year = a.year), 0) " +
+            "group by a.employee_uid, a.year) t " +
+            "left join allowance_snapshot s on s.employee_uid = t.employee_uid and s.year = t.year " +
+            "and s.up_to = (select max(x.up_to) from allowance_snapshot x where x.employee_uid = t.employee_uid and x.year = t.year)";
+
+    private static final String INSERT_ENTRY = "insert into allowance_entry (uid, employee_uid, year, type, days, created_at, updated_at) " +
+            "values (?, ?, ?, ?, ?, now(), now())";
+
+    private final AllowanceEntryRepository entryRepository;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    private final TransactionTemplate snapshotTransaction;
+
+    private final ApplicationEventPublisher applicationEventPublisher;
+
+    private final Map<Key, BigDecimal> balances = new ConcurrentHashMap<>();
+
+    private final AtomicLong appends = new AtomicLong();
+
+    @Autowired
+    public AllowanceLedger(AllowanceEntryRepository entryRepository, JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager, ApplicationEventPublisher applicationEventPublisher) {
+        this.entryRepository = entryRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.snapshotTransaction = new TransactionTemplate(transactionManager);
+        // the watermark, tails and previous snapshots are all read from one database snapshot
+        this.snapshotTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.applicationEventPublisher = applicationEventPublisher;
+    }
+
+    public AllowanceEntry grant(CompanyEmployee employee, int year, BigDecimal days) {
+        return append(employee, year, AllowanceEntry.Type.GRANT, days, null);
+    }
+
+    public AllowanceEntry accrue(CompanyEmployee employee, int year, BigDecimal days) {
+        return append(employee, year, AllowanceEntry.Type.ACCRUAL, days, null);
+    }
+
+    public AllowanceEntry deduct(CompanyEmployee employee, int year, Leave leave) {
+        return deduct(employee, year, leave, null).get();
+    }
+
+    /**
+     * Deducts the leave by one conditional statement, without reading the balance first
+     *
+     * @param maxOverdraft how many days the balance may drop under zero, null for no limit
+     * @return empty when the deduction would exceed the overdraft, nothing is appended then
+     */
+    public Optional<AllowanceEntry> deduct(CompanyEmployee employee, int year, Leave leave, BigDecimal maxOverdraft) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource()
+                .addValue("uid", UUID.randomUUID())
+                .addValue("employee", employee.getUid())
+                .addValue("year", year)
+                .addValue("days", leave.getNumberOfDays())
+                .addValue("overdraft", maxOverdraft, Types.NUMERIC);
+        if (namedJdbcTemplate.update(BOOK_USAGE, parameters) == 0) {
+            return Optional.empty();
+        }
+        return Optional.of(append(employee, year, AllowanceEntry.Type.DEDUCTION, leave.getNumberOfDays().negate(), leave));
+    }
+
+    public AllowanceEntry refund(CompanyEmployee employee, int year, Leave leave) {
+        return append(employee, year, AllowanceEntry.Type.REFUND, leave.getNumberOfDays(), leave);
+    }
+
+    private AllowanceEntry append(CompanyEmployee employee, int year, AllowanceEntry.Type type, BigDecimal days, Leave leave) {
+        return entryRepository.save(AllowanceEntry.builder()
+                .employee(employee)
+                .year(year)
+                .type(type)
+                .days(days)
+                .leave(leave)
+                .build());
+    }
+
+    /**
+     * Inserts entries of a year by one JDBC batch, for changes of many employees at once
+     */
+    public void appendAll(int year, List<Change> changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        List<Object[]> rows = changes.stream()
+                .map(c -> new Object[]{UUID.randomUUID(), c.getEmployeeUid(), year, c.getType().name(), c.getDays()})
+                .collect(Collectors.toList());
+        jdbcTemplate.batchUpdate(INSERT_ENTRY, rows);
+        Set<UUID> employeeUids = changes.stream().map(Change::getEmployeeUid).collect(Collectors.toSet());
+        applicationEventPublisher.publishEvent(new AllowanceEntry.BatchAppendedEvent(employeeUids, year));
+    }
+
+    public BigDecimal balance(CompanyEmployee employee, int year) {
+        return balances(Collections.singletonList(employee), year).get(employee.getUid());
+    }
+
+    /**
+     * @return balances by employee uid, missing ones are loaded in one query regardless of number of employees
+     */
+    public Map<UUID, BigDecimal> balances(Collection<CompanyEmployee> employees, int year) {
+        Map<UUID, BigDecimal> result = new HashMap<>();
+        List<UUID> missing = new ArrayList<>();
+        for (CompanyEmployee employee : employees) {
+            BigDecimal balance = balances.get(new Key(employee.getUid(), year));
+            if (balance != null) {
+                result.put(employee.getUid(), balance);
+            } else {
+                missing.add(employee.getUid());
+            }
+        }
+        if (missing.isEmpty()) {
+            return result;
+        }
+
+        long generation = appends.get();
+        Map<UUID, BigDecimal> loaded = load(missing, year);
+        for (UUID uid : missing) {
+            balances.put(new Key(uid, year), loaded.get(uid));
+        }
+        if (appends.get() != generation) {
+            // an entry was appended while loading, the loaded balances may miss it
+            missing.forEach(uid -> balances.remove(new Key(uid, year)));
+        }
+        result.putAll(loaded);
+        return result;
+    }
+
+    /**
+     * Balances straight from the database by one statement, without touching the cache
+     */
+    Map<UUID, BigDecimal> load(Collection<UUID> employeeUids, int year) {
+        Map<UUID, BigDecimal> loaded = new HashMap<>();
+        if (employeeUids.isEmpty()) {
+            return loaded;
+        }
+        MapSqlParameterSource parameters = new MapSqlParameterSource()
+                .addValue("uids", employeeUids)
+                .addValue("year", year);
+        namedJdbcTemplate.query(SELECT_BALANCES, parameters, (RowCallbackHandler) row ->
+                loaded.put(UUID.fromString(row.getString("employee_uid")), row.getBigDecimal("balance")));
+        return loaded;
+    }
+
+    /**
+     * Folds entries of finished transactions into new snapshots of employees and years which have any, by one
+     * statement however many there are. The watermark
+     * is a transaction id, so an entry committed late is never left behind a snapshot whatever the clocks say.
+     * Snapshots taken at once by two nodes read consistent data each, the same watermark twice is rejected by the
+     * unique constraint.
+     */
+    @Scheduled(fixedDelayString = "${app.allowance.snapshotInterval}", initialDelayString = "${app.allowance.snapshotInterval}")
+    public void snapshot() {
+        try {
+            snapshotTransaction.execute(status -> {
+                long upTo = jdbcTemplate.queryForObject(COMMITTED_WATERMARK, Long.class);
+                int snapshots = namedJdbcTemplate.update(INSERT_SNAPSHOTS, new MapSqlParameterSource("upTo", upTo));
+                log.debug("Snapshotted {} allowances up to transaction {}", snapshots, upTo);
+                return null;
+            });
+        } catch (DataIntegrityViolationException e) {
+            log.info("Allowances were snapshotted by someone else at the same time");
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void allowanceEntryAppendedEventListener(AllowanceEntry.AppendedEvent event) {
+        appends.incrementAndGet();
+        balances.remove(new Key(event.getEntry().getEmployee().getUid(), event.getEntry().getYear()));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void allowanceEntriesBatchAppendedEventListener(AllowanceEntry.BatchAppendedEvent event) {
+        appends.incrementAndGet();
+        event.getEmployeeUids().forEach(uid -> balances.remove(new Key(uid, event.getYear())));
+    }
+
+    @Data
+    public static class Change {
+        private final UUID employeeUid;
+        private final AllowanceEntry.Type type;
+        private final BigDecimal days;
+    }
+
+    @Data
+    private static class Key {
+        private final UUID employeeUid;
+        private final int year;
+    }
+
+}
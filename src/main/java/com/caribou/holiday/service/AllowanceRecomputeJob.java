@@ -0,0 +1,110 @@
+package com.caribou.holiday.service;
+
+import com.caribou.company.domain.Department;
+import com.caribou.company.repository.CompanyRepository;
+import com.caribou.company.repository.EmployeeDaysOff;
+import com.caribou.company.service.ProRataAllowance;
+import com.caribou.holiday.domain.AllowanceEntry;
+import com.caribou.holiday.repository.AllowanceEntryRepository;
+import com.caribou.holiday.repository.AllowanceTotal;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+
+/**
+ * Recalculates pro-rata allowances of a company or department from current days off and employment starts. Grants
+ * of the year are compared with the calculated ones in half days and the differences are appended as adjustments by
+ * one JDBC batch, so running it again without a change appends nothing. Employees without an employment start are
+ * counted from the day they were added.
+ */
+@Slf4j
+@Service
+public class AllowanceRecomputeJob {
+
+    private static final List<AllowanceEntry.Type> GRANTED = Arrays.asList(AllowanceEntry.Type.GRANT, AllowanceEntry.Type.ADJUSTMENT);
+
+    private final CompanyRepository companyRepository;
+
+    private final AllowanceEntryRepository entryRepository;
+
+    private final AllowanceLedger allowanceLedger;
+
+    private final TransactionTemplate transactionTemplate;
+
+    @Autowired
+    public AllowanceRecomputeJob(CompanyRepository companyRepository, AllowanceEntryRepository entryRepository, AllowanceLedger allowanceLedger, PlatformTransactionManager transactionManager) {
+        this.companyRepository = companyRepository;
+        this.entryRepository = entryRepository;
+        this.allowanceLedger = allowanceLedger;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // listeners run after commit of the department's transaction
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @Scheduled(cron = "${app.allowance.recomputeCron}")
+    public void recompute() {
+        int year = LocalDate.now().getYear();
+        for (UUID companyUid : companyRepository.findAllUids()) {
+            recompute(companyUid, null, year);
+        }
+    }
+
+    /**
+     * @param departmentUid null for all employees of the company
+     * @return number of employees whose allowance was adjusted
+     */
+    public int recompute(UUID companyUid, UUID departmentUid, int year) {
+        return transactionTemplate.execute(status -> {
+            List<EmployeeDaysOff> employees = departmentUid == null
+                    ? companyRepository.findDaysOffByCompanyUid(companyUid)
+                    : companyRepository.findDaysOffByDepartmentUid(companyUid, departmentUid);
+            Map<UUID, Integer> granted = entryRepository.sumByCompanyUid(companyUid, year, GRANTED).stream()
+                    .collect(Collectors.toMap(AllowanceTotal::getEmployeeUid, t -> ProRataAllowance.toHalfDays(t.getDays())));
+
+            List<AllowanceLedger.Change> changes = employees.parallelStream()
+                    .map(e -> {
+                        int halfDays = ProRataAllowance.halfDays(ProRataAllowance.toHalfDays(e.getDaysOff()), employmentStart(e), year);
+                        int difference = halfDays - granted.getOrDefault(e.getEmployeeUid(), 0);
+                        return difference == 0 ? null : new AllowanceLedger.Change(e.getEmployeeUid(), AllowanceEntry.Type.ADJUSTMENT, ProRataAllowance.toDays(difference));
+                    })
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toList());
+            allowanceLedger.appendAll(year, changes);
+            long unknownStarts = employees.stream().filter(e -> e.getEmploymentStart() == null).count();
+            log.info("Recomputed allowance of {} for {} employees of company={} department={}, adjusted {}, {} counted from their creation",
+                    year, employees.size(), companyUid, departmentUid, changes.size(), unknownStarts);
+            return changes.size();
+        });
+    }
+
+    /**
+     * Employees without an employment start weren't employed before they were added, rather than for the whole year
+     */
+    private static LocalDate employmentStart(EmployeeDaysOff employee) {
+        if (employee.getEmploymentStart() != null) {
+            return employee.getEmploymentStart();
+        }
+        return employee.getCreatedAt().toLocalDateTime().toLocalDate();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void departmentDaysOffChangedEventListener(Department.DaysOffChangedEvent event) {
+        Department department = event.getDepartment();
+        recompute(department.getCompany().getUid(), department.getUid(), LocalDate.now().getYear());
+    }
+
+}
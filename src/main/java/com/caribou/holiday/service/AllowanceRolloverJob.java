@@ -0,0 +1,152 @@
+package com.caribou.holiday.service;
+
+import com.caribou.company.repository.CompanyRepository;
+import com.caribou.company.repository.EmployeeDaysOff;
+import com.caribou.company.service.NotFound;
+import com.caribou.holiday.domain.AllowanceEntry;
+import com.caribou.holiday.domain.AllowanceRollover;
+import com.caribou.holiday.repository.AllowanceRolloverRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+
+/**
+ * Grants allowance of a new year to every employee who joined before it: days off of their department, or of the
+ * company without one, plus the unused days of the last year up to the carry-over cap. Employees are processed in
+ * chunks, each one is inserted by a JDBC batch and committed together with the checkpoint, so a restarted rollover
+ * continues after the last committed chunk. Progress of the latest rollover is published as
+ * gauge.allowance.rollover.year, gauge.allowance.rollover.processed and gauge.allowance.rollover.finished.
+ */
+@Slf4j
+@Service
+public class AllowanceRolloverJob implements PublicMetrics {
+
+    private final CompanyRepository companyRepository;
+
+    private final AllowanceRolloverRepository rolloverRepository;
+
+    private final AllowanceLedger allowanceLedger;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private int chunkSize;
+
+    private BigDecimal carryOverCap;
+
+    @Autowired
+    public AllowanceRolloverJob(CompanyRepository companyRepository, AllowanceRolloverRepository rolloverRepository, AllowanceLedger allowanceLedger, PlatformTransactionManager transactionManager) {
+        this.companyRepository = companyRepository;
+        this.rolloverRepository = rolloverRepository;
+        this.allowanceLedger = allowanceLedger;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Value("${app.allowance.rolloverChunkSize:1000}")
+    void setChunkSize(int chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * @param carryOverCap most days carried over from the last year, null for no limit
+     */
+    @Value("${app.allowance.carryOverCap:#{null}}")
+    void setCarryOverCap(BigDecimal carryOverCap) {
+        this.carryOverCap = carryOverCap;
+    }
+
+    @Scheduled(cron = "${app.allowance.rolloverCron}")
+    public void rollover() {
+        rollover(LocalDate.now().getYear());
+    }
+
+    /**
+     * Rolls allowances over to the year, does nothing when it's done already
+     *
+     * @return the finished checkpoint
+     */
+    public AllowanceRollover rollover(int year) {
+        AllowanceRollover checkpoint = rolloverRepository.findByYear(year).orElseGet(() -> rolloverRepository.save(new AllowanceRollover(year)));
+        Timestamp yearStart = Timestamp.valueOf(LocalDate.ofYearDay(year, 1).atStartOfDay());
+        while (checkpoint.getFinishedAt() == null) {
+            AllowanceRollover current = checkpoint;
+            checkpoint = transactionTemplate.execute(status -> chunk(current, yearStart));
+        }
+        return checkpoint;
+    }
+
+    /**
+     * Checkpoint of the latest rollover, read from the database so a rollover run by another node is reported as well
+     */
+    public Optional<AllowanceRollover> progress() {
+        return rolloverRepository.findFirstByOrderByYearDesc();
+    }
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        return progress()
+                .map(r -> Arrays.<Metric<?>>asList(
+                        new Metric<>("gauge.allowance.rollover.year", r.getYear()),
+                        new Metric<>("gauge.allowance.rollover.processed", r.getProcessed()),
+                        new Metric<>("gauge.allowance.rollover.finished", r.getFinishedAt() == null ? 0 : 1)
+                ))
+                .orElse(Collections.emptyList());
+    }
+
+    private AllowanceRollover chunk(AllowanceRollover checkpoint, Timestamp yearStart) {
+        int year = checkpoint.getYear();
+        List<EmployeeDaysOff> employees = companyRepository.findDaysOffAfter(yearStart, checkpoint.getLastCreatedAt(), checkpoint.getLastUid(), new PageRequest(0, chunkSize));
+        if (employees.isEmpty()) {
+            rolloverRepository.finish(year);
+            log.info("Rolled allowance over to {} for {} employees", year, checkpoint.getProcessed());
+            return rolloverRepository.findByYear(year).orElseThrow(NotFound::new);
+        }
+
+        List<UUID> employeeUids = employees.stream().map(EmployeeDaysOff::getEmployeeUid).collect(Collectors.toList());
+        Map<UUID, BigDecimal> lastYear = allowanceLedger.load(employeeUids, year - 1);
+        List<AllowanceLedger.Change> changes = new ArrayList<>(employees.size() * 2);
+        for (EmployeeDaysOff employee : employees) {
+            changes.add(new AllowanceLedger.Change(employee.getEmployeeUid(), AllowanceEntry.Type.GRANT, employee.getDaysOff()));
+            BigDecimal carryOver = carryOver(lastYear.get(employee.getEmployeeUid()));
+            if (carryOver.signum() != 0) {
+                changes.add(new AllowanceLedger.Change(employee.getEmployeeUid(), AllowanceEntry.Type.CARRY_OVER, carryOver));
+            }
+        }
+        allowanceLedger.appendAll(year, changes);
+
+        EmployeeDaysOff last = employees.get(employees.size() - 1);
+        if (rolloverRepository.advance(year, checkpoint.getProcessed(), last.getCreatedAt(), last.getEmployeeUid(), employees.size()) == 0) {
+            throw new IllegalStateException("Allowance rollover to " + year + " is run by someone else");
+        }
+        log.info("Rolled allowance over to {} for {} employees so far", year, checkpoint.getProcessed() + employees.size());
+        return rolloverRepository.findByYear(year).orElseThrow(NotFound::new);
+    }
+
+    /**
+     * Unused days up to the cap, overdrawn days are carried whole
+     */
+    private BigDecimal carryOver(BigDecimal balance) {
+        return carryOverCap == null ? balance : balance.min(carryOverCap);
+    }
+
+}
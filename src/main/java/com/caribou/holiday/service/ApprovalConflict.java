@@ -0,0 +1,16 @@
+package com.caribou.holiday.service;
+
+public class ApprovalConflict extends RuntimeException {
+
+    private final String field;
+
+    public ApprovalConflict(String field, String message) {
+        super(message);
+        this.field = field;
+    }
+
+    public String getField() {
+        return field;
+    }
+
+}
@@ -0,0 +1,167 @@
+package com.caribou.holiday.service;
+
+import com.caribou.holiday.domain.BankHoliday;
+import com.caribou.holiday.domain.Leave;
+import com.caribou.holiday.repository.BankHolidayRepository;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * In-memory view of {@link BankHoliday} rows. Each country and year is loaded with a single query when it's
+ * first needed and kept until bank holidays of that country are saved or deleted.
+ */
+@Slf4j
+@Component
+public class BankHolidayCalendar {
+
+    private final BankHolidayRepository bankHolidayRepository;
+
+    private final ConcurrentMap<CountryYear, Holidays> holidays = new ConcurrentHashMap<>();
+
+    /**
+     * Bumped by every evict, a load which overlaps one may have read the old rows
+     */
+    private final AtomicLong evictions = new AtomicLong();
+
+    @Autowired
+    public BankHolidayCalendar(BankHolidayRepository bankHolidayRepository) {
+        this.bankHolidayRepository = bankHolidayRepository;
+    }
+
+    public boolean isHoliday(LocalDate date, BankHoliday.Country country) {
+        return holidays(country, date.getYear()).contains(date);
+    }
+
+    /**
+     * Days booked by the leave, weekends and bank holidays are skipped and partial days count by their hours
+     */
+    public BigDecimal numberOfBookedDays(Leave leave, BankHoliday.Country country) {
+        BigDecimal days = BigDecimal.ZERO;
+        for (LocalDateTime day = leave.getStarting().toLocalDateTime();
+             day.isBefore(leave.getEnding().toLocalDateTime());
+             day = day.toLocalDate().atStartOfDay().plusDays(1)
+                ) {
+            LocalDate asLocalDate = day.toLocalDate();
+            if (isWeekend(asLocalDate) || isHoliday(asLocalDate, country)) {
+                continue;
+            }
+            LocalDateTime end = asLocalDate.atTime(LocalTime.MAX);
+            if (leave.getEnding().toLocalDateTime().isBefore(end)) {
+                end = leave.getEnding().toLocalDateTime();
+            }
+            Duration duration = Duration.between(day, end);
+            days = days.add(BigDecimal.valueOf(duration.toHours()).divide(BigDecimal.valueOf(24), 1, BigDecimal.ROUND_HALF_UP));
+        }
+        return days;
+    }
+
+    /**
+     * Count bank holidays between both dates, inclusive
+     */
+    public int countHolidays(LocalDate from, LocalDate to, BankHoliday.Country country) {
+        int count = 0;
+        for (int year = from.getYear(); year <= to.getYear(); year++) {
+            LocalDate start = year == from.getYear() ? from : LocalDate.of(year, 1, 1);
+            LocalDate end = year == to.getYear() ? to : LocalDate.of(year, 12, 31);
+            count += holidays(country, year).count(start, end);
+        }
+        return count;
+    }
+
+    public void evict(BankHoliday.Country country) {
+        evictions.incrementAndGet();
+        holidays.keySet().removeIf(key -> key.getCountry() == country);
+    }
+
+    public void evictAll() {
+        evictions.incrementAndGet();
+        holidays.clear();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void bankHolidayChangedEventListener(BankHoliday.ChangedEvent event) {
+        evict(event.getCountry());
+    }
+
+    private static boolean isWeekend(LocalDate localDate) {
+        return localDate.getDayOfWeek() == DayOfWeek.SATURDAY || localDate.getDayOfWeek() == DayOfWeek.SUNDAY;
+    }
+
+    private Holidays holidays(BankHoliday.Country country, int year) {
+        CountryYear key = new CountryYear(country, year);
+        Holidays cached = holidays.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        long generation = evictions.get();
+        Holidays loaded = load(key);
+        holidays.putIfAbsent(key, loaded);
+        if (evictions.get() != generation) {
+            // evicted while loading, the loaded holidays may be stale so the next call loads them again
+            holidays.remove(key, loaded);
+        }
+        return loaded;
+    }
+
+    private Holidays load(CountryYear key) {
+        List<Date> dates = bankHolidayRepository.findDates(
+                key.getCountry(),
+                Date.valueOf(LocalDate.of(key.getYear(), 1, 1)),
+                Date.valueOf(LocalDate.of(key.getYear(), 12, 31))
+        );
+        log.debug("Loaded {} bank holidays for {} in {}", dates.size(), key.getCountry(), key.getYear());
+        return new Holidays(dates.stream().mapToLong(d -> d.toLocalDate().toEpochDay()).sorted().distinct().toArray());
+    }
+
+    @Data
+    private static class CountryYear {
+        private final BankHoliday.Country country;
+        private final int year;
+    }
+
+    /**
+     * Sorted epoch days of one year
+     */
+    private static class Holidays {
+
+        private final long[] days;
+
+        private Holidays(long[] days) {
+            this.days = days;
+        }
+
+        boolean contains(LocalDate date) {
+            return Arrays.binarySearch(days, date.toEpochDay()) >= 0;
+        }
+
+        int count(LocalDate from, LocalDate to) {
+            if (from.isAfter(to)) {
+                return 0;
+            }
+            return lowerBound(to.toEpochDay() + 1) - lowerBound(from.toEpochDay());
+        }
+
+        private int lowerBound(long day) {
+            int index = Arrays.binarySearch(days, day);
+            return index >= 0 ? index : -index - 1;
+        }
+    }
+
+}
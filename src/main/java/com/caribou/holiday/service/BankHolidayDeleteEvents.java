@@ -0,0 +1,47 @@
+package com.caribou.holiday.service;
+
+import com.caribou.holiday.domain.BankHoliday;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManagerFactory;
+
+
+/**
+ * Publishes {@link BankHoliday.ChangedEvent} once a deleted bank holiday is committed, repositories publish domain
+ * events on save only
+ */
+@Component
+public class BankHolidayDeleteEvents implements PostDeleteEventListener {
+
+    private final ApplicationEventPublisher applicationEventPublisher;
+
+    @Autowired
+    public BankHolidayDeleteEvents(EntityManagerFactory entityManagerFactory, ApplicationEventPublisher applicationEventPublisher) {
+        this.applicationEventPublisher = applicationEventPublisher;
+        entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry()
+                .getService(EventListenerRegistry.class)
+                .appendListeners(EventType.POST_COMMIT_DELETE, this);
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        if (event.getEntity() instanceof BankHoliday) {
+            applicationEventPublisher.publishEvent(new BankHoliday.ChangedEvent(((BankHoliday) event.getEntity()).getCountry()));
+        }
+    }
+
+    @Override
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        return BankHoliday.class.isAssignableFrom(persister.getMappedClass());
+    }
+
+}
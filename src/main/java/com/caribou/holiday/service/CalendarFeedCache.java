@@ -0,0 +1,149 @@
+package com.caribou.holiday.service;
+
+import com.caribou.auth.domain.UserAccount;
+import com.caribou.holiday.domain.Leave;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * Least recently used rendered iCal feeds. A feed is served from memory only while its version matches
+ * {@link ICalService#getCalendarVersion(UserAccount)} and it's dropped as soon as a leave of its user is saved. Hits,
+ * misses and size are published as counter.ical.cache.hits, counter.ical.cache.misses and gauge.ical.cache.size.
+ */
+@Component
+public class CalendarFeedCache implements PublicMetrics {
+
+    private final ICalService iCalService;
+
+    private final Map<UUID, Feed> feeds;
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    @Autowired
+    public CalendarFeedCache(ICalService iCalService, @Value("${app.ical.cacheSize}") int maxSize) {
+        this.iCalService = iCalService;
+        this.feeds = new LinkedHashMap<UUID, Feed>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, Feed> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Write the cached feed or render it straight to the output, a rendered feed is copied aside while it's being
+     * written and cached once complete. The copy costs the same memory as the cached feed, the client doesn't wait
+     * for the whole feed to be rendered first.
+     */
+    public void write(UserAccount userAccount, String version, OutputStream out) throws IOException {
+        Feed feed;
+        synchronized (feeds) {
+            feed = feeds.get(userAccount.getUid());
+        }
+        if (feed != null && feed.version.equals(version)) {
+            hits.incrementAndGet();
+            out.write(feed.body);
+            out.flush();
+            return;
+        }
+        misses.incrementAndGet();
+        ByteArrayOutputStream copy = new ByteArrayOutputStream();
+        iCalService.writeCalendarForUser(userAccount, new TeeOutputStream(out, copy));
+        synchronized (feeds) {
+            feeds.put(userAccount.getUid(), new Feed(version, copy.toByteArray()));
+        }
+    }
+
+    public void evict(UUID userUid) {
+        synchronized (feeds) {
+            feeds.remove(userUid);
+        }
+    }
+
+    public int size() {
+        synchronized (feeds) {
+            return feeds.size();
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        return Arrays.asList(
+                new Metric<>("counter.ical.cache.hits", getHits()),
+                new Metric<>("counter.ical.cache.misses", getMisses()),
+                new Metric<>("gauge.ical.cache.size", size())
+        );
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void leaveChangedEventListener(Leave.ChangedEvent event) {
+        evict(event.getLeave().getUserAccount().getUid());
+    }
+
+    private static class Feed {
+
+        private final String version;
+
+        private final byte[] body;
+
+        private Feed(String version, byte[] body) {
+            this.version = version;
+            this.body = body;
+        }
+    }
+
+    private static class TeeOutputStream extends OutputStream {
+
+        private final OutputStream out;
+
+        private final OutputStream copy;
+
+        private TeeOutputStream(OutputStream out, OutputStream copy) {
+            this.out = out;
+            this.copy = copy;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            copy.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            copy.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+    }
+
+}
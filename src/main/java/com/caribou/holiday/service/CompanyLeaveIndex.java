@@ -0,0 +1,297 @@
+package com.caribou.holiday.service;
+
+import com.caribou.company.repository.CompanyRepository;
+import com.caribou.holiday.domain.Leave;
+import com.caribou.holiday.repository.LeaveRepository;
+import com.caribou.holiday.repository.LeaveSpan;
+import com.caribou.holiday.repository.LeavesVersion;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * In-memory interval index of company leaves by year. Leaves of a company overlapping a year are loaded with one query
+ * on the first lookup, kept up to date from {@link Leave.ChangedEvent} of this node and compared with their version in
+ * the database once per refresh interval, so changes made by other nodes show up within it. Only the least recently
+ * used company years are kept.
+ */
+@Slf4j
+@Component
+public class CompanyLeaveIndex {
+
+    private final LeaveRepository leaveRepository;
+
+    private final CompanyRepository companyRepository;
+
+    private final long refreshInterval;
+
+    private final Map<Key, Intervals> years;
+
+    /**
+     * Changes of leaves of any company, a load is dropped when a leave changed meanwhile
+     */
+    private final AtomicLong changes = new AtomicLong();
+
+    @Autowired
+    public CompanyLeaveIndex(
+            LeaveRepository leaveRepository,
+            CompanyRepository companyRepository,
+            @Value("${app.leaveIndex.maxYears}") int maxYears,
+            @Value("${app.leaveIndex.refreshInterval}") long refreshInterval
+    ) {
+        this.leaveRepository = leaveRepository;
+        this.companyRepository = companyRepository;
+        this.refreshInterval = refreshInterval;
+        this.years = new LinkedHashMap<Key, Intervals>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Intervals> eldest) {
+                return size() > maxYears;
+            }
+        };
+    }
+
+    /**
+     * Find leaves of the company which end on or after from and start on or before to, ordered by start
+     */
+    public List<LeaveSpan> findOverlapping(UUID companyUid, LocalDate from, LocalDate to) {
+        if (from.getYear() == to.getYear()) {
+            return intervals(new Key(companyUid, from.getYear())).overlapping(from.toEpochDay(), to.toEpochDay());
+        }
+        // leaves over new year are in both years
+        Map<UUID, LeaveSpan> leaves = new LinkedHashMap<>();
+        for (int year = from.getYear(); year <= to.getYear(); year++) {
+            for (LeaveSpan leave : intervals(new Key(companyUid, year)).overlapping(from.toEpochDay(), to.toEpochDay())) {
+                leaves.putIfAbsent(leave.getUid(), leave);
+            }
+        }
+        List<LeaveSpan> result = new ArrayList<>(leaves.values());
+        result.sort(Comparator.comparing(LeaveSpan::getStarting));
+        return result;
+    }
+
+    public void evict(UUID companyUid) {
+        changes.incrementAndGet();
+        synchronized (years) {
+            years.keySet().removeIf(key -> key.getCompanyUid().equals(companyUid));
+        }
+    }
+
+    public void evictAll() {
+        changes.incrementAndGet();
+        synchronized (years) {
+            years.clear();
+        }
+    }
+
+    /**
+     * Number of company years in memory
+     */
+    public int size() {
+        synchronized (years) {
+            return years.size();
+        }
+    }
+
+    /**
+     * The leave is put to every cached year of its company, a year it moved out of just doesn't find it anymore
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void leaveChangedEventListener(Leave.ChangedEvent event) {
+        LeaveSpan span = LeaveSpan.of(event.getLeave());
+        List<UUID> companyUids = event.getCompanyUid() != null
+                ? Collections.singletonList(event.getCompanyUid())
+                : companyRepository.findCompanyUidsByUserAccount(event.getLeave().getUserAccount());
+        changes.incrementAndGet();
+        synchronized (years) {
+            // replacing values doesn't change the order of an access ordered map
+            years.replaceAll((key, intervals) -> companyUids.contains(key.getCompanyUid()) ? intervals.put(span) : intervals);
+        }
+    }
+
+    private Intervals intervals(Key key) {
+        Intervals intervals;
+        synchronized (years) {
+            intervals = years.get(key);
+        }
+        if (intervals == null || !isFresh(key, intervals)) {
+            intervals = load(key);
+        }
+        return intervals;
+    }
+
+    /**
+     * Checks the version in the database once the refresh interval passed, a change made by this node differs from
+     * the loaded version as well and gets the year reloaded
+     */
+    private boolean isFresh(Key key, Intervals intervals) {
+        long now = System.currentTimeMillis();
+        if (now - intervals.verifiedAt < refreshInterval) {
+            return true;
+        }
+        if (!leaveRepository.findVersionByCompanyUid(key.getCompanyUid(), key.from(), key.until()).equals(intervals.version)) {
+            return false;
+        }
+        intervals.verifiedAt = now;
+        return true;
+    }
+
+    /**
+     * The version is read first, so a change committed during the load makes the version differ on the next check
+     */
+    private Intervals load(Key key) {
+        long generation = changes.get();
+        long now = System.currentTimeMillis();
+        LeavesVersion version = leaveRepository.findVersionByCompanyUid(key.getCompanyUid(), key.from(), key.until());
+        List<LeaveSpan> leaves = leaveRepository.findSpansByCompanyUid(key.getCompanyUid(), key.from(), key.until());
+        log.debug("Indexed {} leaves of company {} in {}", leaves.size(), key.getCompanyUid(), key.getYear());
+        Intervals intervals = Intervals.of(leaves.toArray(new LeaveSpan[leaves.size()]), version, now);
+        synchronized (years) {
+            // a leave changed while loading, the loaded intervals may miss it
+            if (changes.get() == generation) {
+                years.put(key, intervals);
+            }
+        }
+        return intervals;
+    }
+
+    @Data
+    private static class Key {
+
+        private final UUID companyUid;
+
+        private final int year;
+
+        Timestamp from() {
+            return Timestamp.valueOf(LocalDate.of(year, 1, 1).atStartOfDay());
+        }
+
+        Timestamp until() {
+            return Timestamp.valueOf(LocalDate.of(year + 1, 1, 1).atStartOfDay());
+        }
+    }
+
+    /**
+     * Immutable leaves sorted by start with running maximum of ends, so overlapping leaves are found by two binary
+     * searches and a scan over the candidates between them. Changed leaves are kept aside and override the sorted ones
+     * until there are about square root of their number, then everything is sorted again. A change copies the changed
+     * leaves only and a rebuild is spread over many changes.
+     */
+    private static class Intervals {
+
+        private static final int MIN_CHANGED = 32;
+
+        private final LeaveSpan[] leaves;
+
+        private final long[] starts;
+
+        private final long[] maxEnds;
+
+        private final Map<UUID, LeaveSpan> changed;
+
+        /**
+         * Version in the database when loaded
+         */
+        private final LeavesVersion version;
+
+        private volatile long verifiedAt;
+
+        private Intervals(LeaveSpan[] leaves, long[] starts, long[] maxEnds, Map<UUID, LeaveSpan> changed, LeavesVersion version, long verifiedAt) {
+            this.leaves = leaves;
+            this.starts = starts;
+            this.maxEnds = maxEnds;
+            this.changed = changed;
+            this.version = version;
+            this.verifiedAt = verifiedAt;
+        }
+
+        /**
+         * @param leaves sorted by start
+         */
+        static Intervals of(LeaveSpan[] leaves, LeavesVersion version, long verifiedAt) {
+            long[] starts = new long[leaves.length];
+            long[] maxEnds = new long[leaves.length];
+            long maxEnd = Long.MIN_VALUE;
+            for (int i = 0; i < leaves.length; i++) {
+                starts[i] = leaves[i].getStarting().toEpochDay();
+                maxEnd = Math.max(maxEnd, leaves[i].getEnding().toEpochDay());
+                maxEnds[i] = maxEnd;
+            }
+            return new Intervals(leaves, starts, maxEnds, Collections.emptyMap(), version, verifiedAt);
+        }
+
+        List<LeaveSpan> overlapping(long from, long to) {
+            int first = lowerBound(maxEnds, from);
+            int last = lowerBound(starts, to + 1);
+            List<LeaveSpan> result = new ArrayList<>();
+            for (int i = first; i < last; i++) {
+                if (leaves[i].getEnding().toEpochDay() >= from && !changed.containsKey(leaves[i].getUid())) {
+                    result.add(leaves[i]);
+                }
+            }
+            if (changed.isEmpty()) {
+                return result;
+            }
+            for (LeaveSpan leave : changed.values()) {
+                if (leave.getStarting().toEpochDay() <= to && leave.getEnding().toEpochDay() >= from) {
+                    result.add(leave);
+                }
+            }
+            result.sort(Comparator.comparing(LeaveSpan::getStarting));
+            return result;
+        }
+
+        /**
+         * Copy with the leave replaced or added
+         */
+        Intervals put(LeaveSpan leave) {
+            Map<UUID, LeaveSpan> changed = new HashMap<>(this.changed);
+            changed.put(leave.getUid(), leave);
+            if (changed.size() <= Math.max(MIN_CHANGED, (int) Math.sqrt(leaves.length))) {
+                return new Intervals(leaves, starts, maxEnds, changed, version, verifiedAt);
+            }
+            List<LeaveSpan> merged = new ArrayList<>(leaves.length + changed.size());
+            for (LeaveSpan span : leaves) {
+                if (!changed.containsKey(span.getUid())) {
+                    merged.add(span);
+                }
+            }
+            merged.addAll(changed.values());
+            merged.sort(Comparator.comparing(LeaveSpan::getStarting));
+            return of(merged.toArray(new LeaveSpan[merged.size()]), version, verifiedAt);
+        }
+
+        /**
+         * Index of the first value greater than or equal to the key
+         */
+        private static int lowerBound(long[] values, long key) {
+            int low = 0;
+            int high = values.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (values[mid] < key) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+
+}
@@ -2,15 +2,36 @@ package com.caribou.holiday.service;
 
 import com.caribou.auth.domain.UserAccount;
 import com.caribou.holiday.domain.Leave;
+import com.caribou.holiday.repository.LeaveFeedRow;
 import com.caribou.holiday.repository.LeaveRepository;
+import com.caribou.holiday.repository.LeavesVersion;
+import com.caribou.holiday.service.ical.ICalWriter;
 import com.caribou.holiday.service.ical.VCalendar;
 import com.caribou.holiday.service.ical.VEvent;
+import lombok.Data;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.sql.Timestamp;
 import java.time.Instant;
+import java.time.LocalDate;
+import java.time.Period;
 import java.time.ZoneId;
+import java.util.Base64;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.UUID;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 
 @Service
@@ -18,45 +39,154 @@ public class ICalService {
 
     private static final ZoneId ZONE_ID = ZoneId.of("Europe/Prague");
 
+    /**
+     * Company and department feeds leave out leaves which ended longer ago
+     */
+    private static final Period FEED_HISTORY = Period.ofYears(1);
+
+    private static final String HMAC = "HmacSHA256";
+
     private final LeaveRepository leaveRepository;
 
+    private final SecretKeySpec feedKey;
+
     @Autowired
-    public ICalService(LeaveRepository leaveRepository) {
+    public ICalService(LeaveRepository leaveRepository, @Value("${app.ical.feedSecret}") String feedSecret) {
         this.leaveRepository = leaveRepository;
+        this.feedKey = new SecretKeySpec(feedSecret.getBytes(StandardCharsets.UTF_8), HMAC);
     }
 
     public VCalendar getCalendarForUser(UserAccount userAccount) {
-        return builder(userAccount)
+        return builder(name(userAccount))
                 .vEvents(leaveRepository.findByUserAccount(userAccount).stream().map(l -> map(userAccount, l)).collect(Collectors.toList()))
                 .build();
     }
 
-    private VCalendar.VCalendarBuilder builder(UserAccount userAccount) {
+    /**
+     * Write company's calendar as RFC 5545 feed, events are written as they're read from a database cursor
+     */
+    @Transactional(readOnly = true)
+    public void writeCalendarForCompany(UUID companyUid, String companyName, OutputStream out) throws IOException {
+        try (Stream<LeaveFeedRow> rows = leaveRepository.streamFeedByCompanyUid(companyUid, feedFrom())) {
+            write(companyName, rows, out);
+        }
+    }
+
+    /**
+     * Write department's calendar as RFC 5545 feed, events are written as they're read from a database cursor
+     */
+    @Transactional(readOnly = true)
+    public void writeCalendarForDepartment(UUID departmentUid, String departmentName, OutputStream out) throws IOException {
+        try (Stream<LeaveFeedRow> rows = leaveRepository.streamFeedByDepartmentUid(departmentUid, feedFrom())) {
+            write(departmentName, rows, out);
+        }
+    }
+
+    public CalendarVersion getCalendarVersionForCompany(UUID companyUid) {
+        return version(leaveRepository.findFeedVersionByCompanyUid(companyUid, feedFrom()), 0);
+    }
+
+    public CalendarVersion getCalendarVersionForDepartment(UUID departmentUid) {
+        return version(leaveRepository.findFeedVersionByDepartmentUid(departmentUid, feedFrom()), 0);
+    }
+
+    /**
+     * Secret of a company or department feed link, anyone who knows the link can read the feed. Tokens are signed
+     * by app.ical.feedSecret so nothing is stored, changing the secret revokes every link at once.
+     *
+     * @param feed "company" or "department"
+     */
+    public String getFeedToken(String feed, UUID uid) {
+        try {
+            Mac mac = Mac.getInstance(HMAC);
+            mac.init(feedKey);
+            byte[] signature = mac.doFinal((feed + "/" + uid).getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(signature);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public boolean isFeedToken(String feed, UUID uid, String token) {
+        return token != null && MessageDigest.isEqual(
+                getFeedToken(feed, uid).getBytes(StandardCharsets.UTF_8),
+                token.getBytes(StandardCharsets.UTF_8)
+        );
+    }
+
+    /**
+     * Write user's calendar as RFC 5545 feed
+     */
+    public void writeCalendarForUser(UserAccount userAccount, OutputStream out) throws IOException {
+        new ICalWriter(out).write(getCalendarForUser(userAccount)).flush();
+    }
+
+    /**
+     * Cheap version of user's calendar, it doesn't load any leaves
+     */
+    public CalendarVersion getCalendarVersion(UserAccount userAccount) {
+        long lastModified = userAccount.getUpdatedAt() == null ? 0 : userAccount.getUpdatedAt().getTime();
+        return version(leaveRepository.findVersionByUserAccount(userAccount), lastModified);
+    }
+
+    private static CalendarVersion version(LeavesVersion leaves, long lastModified) {
+        if (leaves.getLastModified() != null) {
+            lastModified = Math.max(lastModified, leaves.getLastModified().getTime());
+        }
+        String eTag = String.format("W/\"%x-%x\"", leaves.getCount(), lastModified);
+        return new CalendarVersion(eTag, lastModified);
+    }
+
+    private static Timestamp feedFrom() {
+        return Timestamp.valueOf(LocalDate.now().minus(FEED_HISTORY).atStartOfDay());
+    }
+
+    private void write(String name, Stream<LeaveFeedRow> rows, OutputStream out) throws IOException {
+        VCalendar calendar = builder(name).build();
+        ICalWriter writer = new ICalWriter(out).begin(calendar);
+        Iterator<LeaveFeedRow> iterator = rows.iterator();
+        while (iterator.hasNext()) {
+            writer.write(map(iterator.next()));
+        }
+        writer.end(calendar).flush();
+    }
+
+    private VCalendar.VCalendarBuilder builder(String name) {
         return VCalendar.builder()
                 .prodid("-//chll//leaves//EN")
-                .xWrCalName("Chll - " + name(userAccount))
+                .xWrCalName("Chll - " + name)
                 .xPublishedTTL("PT1H")
                 .xWrTimeZone(ZONE_ID.toString());
     }
 
     private VEvent map(UserAccount userAccount, Leave leave) {
+        return event(leave.getUid(), name(userAccount), leave.getLeaveType() == null ? null : leave.getLeaveType().getName(), leave.getReason(),
+                leave.getStatus(), leave.getStarting(), leave.getEnding(), leave.getCreatedAt(), leave.getUpdatedAt());
+    }
+
+    private VEvent map(LeaveFeedRow row) {
+        return event(row.getUid(), row.getFirstName() + " " + row.getLastName(), row.getLeaveType(), row.getReason(),
+                row.getStatus(), row.getStarting(), row.getEnding(), row.getCreatedAt(), row.getUpdatedAt());
+    }
+
+    private VEvent event(UUID uid, String name, String leaveType, String reason, Leave.Status status, Timestamp starting, Timestamp ending, Date created, Date lastModified) {
         VEvent.VEventBuilder builder = VEvent.builder()
-                .uid(leave.getUid() + "@chll.cz")
-                .created(leave.getCreatedAt().toInstant())
-                .lastModified(leave.getUpdatedAt().toInstant())
+                .uid(uid + "@chll.cz")
+                .created(created.toInstant())
+                .lastModified(lastModified.toInstant())
                 .dtstamp(Instant.now())
-                .summary(name(userAccount) + ": " + (leave.getLeaveType() == null ? "Holiday" : leave.getLeaveType().getName()))
-                .description(leave.getReason())
-                .status(mapStatus(leave.getStatus()));
-        if (leave.getStarting().toLocalDateTime().getHour() == 0) {
-            builder.dtStartValueDate(leave.getStarting().toLocalDateTime().toLocalDate());
+                .summary(name + ": " + (leaveType == null ? "Holiday" : leaveType))
+                .description(reason)
+                .status(mapStatus(status));
+        if (starting.toLocalDateTime().getHour() == 0) {
+            builder.dtStartValueDate(starting.toLocalDateTime().toLocalDate());
         } else {
-            builder.dtStart(leave.getStarting().toLocalDateTime().atZone(ZONE_ID));
+            builder.dtStart(starting.toLocalDateTime().atZone(ZONE_ID));
         }
-        if (leave.getEnding().toLocalDateTime().getHour() == 0) {
-            builder.dtEndValueDate(leave.getEnding().toLocalDateTime().toLocalDate());
+        if (ending.toLocalDateTime().getHour() == 0) {
+            builder.dtEndValueDate(ending.toLocalDateTime().toLocalDate());
         } else {
-            builder.dtEnd(leave.getEnding().toLocalDateTime().atZone(ZONE_ID));
+            builder.dtEnd(ending.toLocalDateTime().atZone(ZONE_ID));
         }
         return builder.build();
     }
@@ -76,4 +206,10 @@ public class ICalService {
         }
     }
 
+    @Data
+    public static class CalendarVersion {
+        private final String eTag;
+        private final long lastModified;
+    }
+
 }
@@ -0,0 +1,5 @@
+package com.caribou.holiday.service;
+
+public class InvalidDateRange extends RuntimeException {
+
+}
@@ -0,0 +1,60 @@
+package com.caribou.holiday.service;
+
+import com.caribou.holiday.repository.LeaveReportRow;
+import com.caribou.holiday.repository.LeaveRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static java.time.temporal.TemporalAdjusters.lastDayOfYear;
+
+
+/**
+ * Yearly report of every leave in a company. Rows are written as they're read from a database cursor, so memory use
+ * doesn't grow with the number of leaves.
+ */
+@Service
+public class LeaveReportService {
+
+    private final LeaveRepository leaveRepository;
+
+    private final CsvMapper csvMapper = new CsvMapper();
+
+    private final CsvSchema schema = csvMapper.schemaFor(LeaveReportRow.class).withHeader();
+
+    @Autowired
+    public LeaveReportService(LeaveRepository leaveRepository) {
+        this.leaveRepository = leaveRepository;
+        csvMapper.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+    }
+
+    /**
+     * Writes leaves overlapping the year as CSV, the output stream is flushed but left open
+     */
+    @Transactional(readOnly = true)
+    public void writeCsv(UUID companyUid, int year, OutputStream out) throws IOException {
+        Timestamp from = Timestamp.valueOf(LocalDate.ofYearDay(year, 1).atStartOfDay());
+        Timestamp to = Timestamp.valueOf(LocalDate.ofYearDay(year, 1).with(lastDayOfYear()).atStartOfDay());
+        try (Stream<LeaveReportRow> rows = leaveRepository.streamReport(companyUid, from, to);
+             SequenceWriter writer = csvMapper.writer(schema).writeValues(out)) {
+            Iterator<LeaveReportRow> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                writer.write(iterator.next());
+            }
+        }
+        out.flush();
+    }
+
+}
@@ -3,38 +3,42 @@ package com.caribou.holiday.service;
 import com.caribou.auth.domain.UserAccount;
 import com.caribou.auth.repository.UserRepository;
 import com.caribou.company.domain.CompanyEmployee;
+import com.caribou.company.domain.Department;
 import com.caribou.company.repository.CompanyRepository;
+import com.caribou.company.service.Cursor;
+import com.caribou.company.service.KeysetPage;
 import com.caribou.company.service.NotFound;
 import com.caribou.company.service.RxService;
 import com.caribou.email.Email;
 import com.caribou.email.providers.EmailSender;
 import com.caribou.email.templates.LeaveApproved;
 import com.caribou.email.templates.LeaveRequest;
+import com.caribou.email.templates.LeavesDecided;
 import com.caribou.holiday.domain.BankHoliday;
 import com.caribou.holiday.domain.Leave;
-import com.caribou.holiday.repository.BankHolidayRepository;
 import com.caribou.holiday.repository.LeaveRepository;
+import com.caribou.holiday.repository.LeaveSpan;
 import lombok.Builder;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.transaction.event.TransactionalEventListener;
 import rx.Observable;
 
 import java.math.BigDecimal;
-import java.sql.Date;
-import java.sql.Timestamp;
-import java.time.DayOfWeek;
-import java.time.Duration;
+import java.sql.SQLException;
 import java.time.LocalDate;
-import java.time.LocalDateTime;
-import java.time.LocalTime;
-import java.util.EnumSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Collectors;
@@ -44,78 +48,178 @@ import java.util.stream.Collectors;
 @Service
 public class LeaveService extends RxService.Imp<LeaveRepository, Leave, UUID> {
 
+    /**
+     * SQLState of an exclusion constraint violation, the only one is leave_no_overlap in db/leave-no-overlap.sql
+     */
+    private static final String EXCLUSION_VIOLATION = "23P01";
+
     private final LeaveRepository leaveRepository;
 
     private final CompanyRepository companyRepository;
 
     private final UserRepository userRepository;
 
-    private final BankHolidayRepository bankHolidayRepository;
+    private final BankHolidayCalendar bankHolidayCalendar;
+
+    private final CompanyLeaveIndex companyLeaveIndex;
+
+    private final AllowanceLedger allowanceLedger;
+
+    private final AbsenceBitsets absenceBitsets;
 
     private final EmailSender emailSender;
 
     private final ApplicationEventPublisher applicationEventPublisher;
 
+    private BigDecimal maxOverdraft;
+
     @Autowired
-    public LeaveService(LeaveRepository leaveRepository, CompanyRepository companyRepository, UserRepository userRepository, BankHolidayRepository bankHolidayRepository, EmailSender emailSender, ApplicationEventPublisher applicationEventPublisher) {
+    public LeaveService(LeaveRepository leaveRepository, CompanyRepository companyRepository, UserRepository userRepository, BankHolidayCalendar bankHolidayCalendar, CompanyLeaveIndex companyLeaveIndex, AllowanceLedger allowanceLedger, AbsenceBitsets absenceBitsets, EmailSender emailSender, ApplicationEventPublisher applicationEventPublisher) {
         this.leaveRepository = leaveRepository;
         this.companyRepository = companyRepository;
         this.userRepository = userRepository;
-        this.bankHolidayRepository = bankHolidayRepository;
+        this.bankHolidayCalendar = bankHolidayCalendar;
+        this.companyLeaveIndex = companyLeaveIndex;
+        this.allowanceLedger = allowanceLedger;
+        this.absenceBitsets = absenceBitsets;
         this.emailSender = emailSender;
         this.applicationEventPublisher = applicationEventPublisher;
     }
 
+    /**
+     * @param maxOverdraft how many days the remaining allowance may drop under zero, null for no limit
+     */
+    @Value("${app.allowance.maxOverdraft:#{null}}")
+    void setMaxOverdraft(BigDecimal maxOverdraft) {
+        this.maxOverdraft = maxOverdraft;
+    }
+
     public Observable<Leave> findByUserAccount(UserAccount userAccount) {
         return Observable.from(leaveRepository.findByUserAccount(userAccount));
     }
 
+    public KeysetPage<Leave> findByUserAccount(UserAccount userAccount, Cursor cursor, int limit) {
+        return KeysetPage.fetch(
+                cursor,
+                limit,
+                (createdAt, uid, pageable) -> leaveRepository.findByUserAccountAfter(userAccount, createdAt, uid, pageable),
+                (createdAt, uid, pageable) -> leaveRepository.findByUserAccountBefore(userAccount, createdAt, uid, pageable)
+        );
+    }
+
+    /**
+     * @throws OverlappingLeave when the user already has a pending or approved leave in the same time, the database
+     *                          rejects it too when two overlapping leaves are created at once
+     */
     @Override
     @Transactional
     public Observable<Leave> create(Leave entity) {
-        return super.create(createLeave(entity));
+        return super.create(createLeave(entity))
+                .onErrorResumeNext(e -> Observable.error(isOverlap(e) ? new OverlappingLeave() : e));
+    }
+
+    private static boolean isOverlap(Throwable e) {
+        if (!(e instanceof DataIntegrityViolationException)) {
+            return false;
+        }
+        Throwable cause = ((DataIntegrityViolationException) e).getMostSpecificCause();
+        return cause instanceof SQLException && EXCLUSION_VIOLATION.equals(((SQLException) cause).getSQLState());
     }
 
     public List<EmployeeLeaves> getEmployeeLeaves(String companyId, final LocalDate from, final LocalDate to) {
-        return companyRepository.findEmployeesByCompanyUid(UUID.fromString(companyId)).stream()
-                .map(e -> EmployeeLeaves.builder()
-                        .employee(e)
-                        .leaves(leaveRepository.findByUserAccount(
-                                e.getMember(),
-                                Timestamp.valueOf(from.atStartOfDay()),
-                                Timestamp.valueOf(to.atStartOfDay()))
-                        )
-                        .remaining(e.getRemainingAllowance().doubleValue())
-                        .build()
-                )
+        UUID companyUid = UUID.fromString(companyId);
+        List<CompanyEmployee> employees = companyRepository.findEmployeesByCompanyUid(companyUid);
+        Map<UUID, List<Leave>> leavesByMember = findLeavesByMember(companyUid, from, to, employees);
+        Map<UUID, BigDecimal> balances = allowanceLedger.balances(employees, from.getYear());
+        return employees.stream()
+                .map(e -> employeeLeaves(e, leavesByMember, balances))
                 .collect(Collectors.toList());
     }
 
+    public KeysetPage<EmployeeLeaves> getEmployeeLeaves(String companyId, final LocalDate from, final LocalDate to, Cursor cursor, int limit) {
+        UUID companyUid = UUID.fromString(companyId);
+        KeysetPage<CompanyEmployee> employees = KeysetPage.fetch(
+                cursor,
+                limit,
+                (createdAt, uid, pageable) -> companyRepository.findEmployeesByCompanyUidAfter(companyUid, createdAt, uid, pageable),
+                (createdAt, uid, pageable) -> companyRepository.findEmployeesByCompanyUidBefore(companyUid, createdAt, uid, pageable)
+        );
+        Map<UUID, List<Leave>> leavesByMember = findLeavesByMember(companyUid, from, to, employees.getItems());
+        Map<UUID, BigDecimal> balances = allowanceLedger.balances(employees.getItems(), from.getYear());
+        return employees.map(e -> employeeLeaves(e, leavesByMember, balances));
+    }
+
+    /**
+     * Leaves of the employees are picked from {@link CompanyLeaveIndex} and loaded by their uids in one query
+     */
+    private Map<UUID, List<Leave>> findLeavesByMember(UUID companyUid, LocalDate from, LocalDate to, Collection<CompanyEmployee> employees) {
+        Set<UUID> members = employees.stream().map(e -> e.getMember().getUid()).collect(Collectors.toSet());
+        Set<UUID> leaveUids = companyLeaveIndex.findOverlapping(companyUid, from, to).stream()
+                .filter(span -> members.contains(span.getMemberUid()))
+                .map(LeaveSpan::getUid)
+                .collect(Collectors.toSet());
+        if (leaveUids.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        return leaveRepository.findByUidIn(leaveUids).stream()
+                .sorted(Comparator.comparing(Leave::getStarting))
+                .collect(Collectors.groupingBy(l -> l.getUserAccount().getUid()));
+    }
+
+    private static EmployeeLeaves employeeLeaves(CompanyEmployee employee, Map<UUID, List<Leave>> leavesByMember, Map<UUID, BigDecimal> balances) {
+        return EmployeeLeaves.builder()
+                .employee(employee)
+                .leaves(leavesByMember.getOrDefault(employee.getMember().getUid(), Collections.emptyList()))
+                .remaining(balances.get(employee.getUid()).doubleValue())
+                .build();
+    }
+
     private Leave createLeave(Leave entity) {
-        entity.setNumberOfDays(numberOfBookedDays(entity, BankHoliday.Country.CZ));
-        entity.setApprover(findUserApprover(entity.getUserAccount()));
+        CompanyEmployee employee = companyRepository.findEmployeeByUserAccount(entity.getUserAccount()).orElseThrow(NotFound::new);
+        if (overlapsOwnLeave(entity, employee)) {
+            throw new OverlappingLeave();
+        }
+        checkMinimumStaffing(entity, employee);
+        entity.setNumberOfDays(bankHolidayCalendar.numberOfBookedDays(entity, BankHoliday.Country.CZ));
+        entity.setApprover(approver(employee));
         applicationEventPublisher.publishEvent(new RequestLeaveEvent(entity));
         return entity;
     }
 
-    BigDecimal numberOfBookedDays(Leave leave, BankHoliday.Country country) {
-        BigDecimal days = BigDecimal.ZERO;
-        for (LocalDateTime day = leave.getStarting().toLocalDateTime();
-             day.isBefore(leave.getEnding().toLocalDateTime());
-             day = day.toLocalDate().atStartOfDay().plusDays(1)
-                ) {
-            LocalDate asLocalDate = day.toLocalDate();
-            if (isWeekend(asLocalDate) || bankHolidayRepository.isBankHoliday(Date.valueOf(asLocalDate), country)) {
-                continue;
-            }
-            LocalDateTime end = asLocalDate.atTime(LocalTime.MAX);
-            if (leave.getEnding().toLocalDateTime().isBefore(end)) {
-                end = leave.getEnding().toLocalDateTime();
-            }
-            Duration duration = Duration.between(day, end);
-            days = days.add(BigDecimal.valueOf(duration.toHours()).divide(BigDecimal.valueOf(24), 1, BigDecimal.ROUND_HALF_UP));
+    /**
+     * Looks for a pending or approved leave of the same user in {@link CompanyLeaveIndex}, the leave_no_overlap
+     * constraint still rejects what the index doesn't know about yet
+     */
+    private boolean overlapsOwnLeave(Leave leave, CompanyEmployee employee) {
+        UUID member = leave.getUserAccount().getUid();
+        return companyLeaveIndex.findOverlapping(
+                employee.getCompany().getUid(),
+                leave.getStarting().toLocalDateTime().toLocalDate(),
+                leave.getEnding().toLocalDateTime().toLocalDate()
+        ).stream().anyMatch(span -> span.getMemberUid().equals(member)
+                && span.getStatus() != Leave.Status.DECLINED
+                && span.overlaps(leave.getStarting(), leave.getEnding()));
+    }
+
+    /**
+     * @throws MinimumStaffingConflict when fewer than the department's minimum would stay at work on any day of the leave
+     */
+    private void checkMinimumStaffing(Leave leave, CompanyEmployee employee) {
+        Department department = employee.getDepartment();
+        if (department == null || department.getMinimumStaffing() == null) {
+            return;
+        }
+        List<UUID> colleagues = companyRepository.findMemberUidsByDepartmentUid(department.getCompany().getUid(), department.getUid()).stream()
+                .filter(uid -> !uid.equals(leave.getUserAccount().getUid()))
+                .collect(Collectors.toList());
+        int off = absenceBitsets.maxApprovedOff(
+                colleagues,
+                leave.getStarting().toLocalDateTime().toLocalDate(),
+                leave.getEnding().toLocalDateTime().toLocalDate()
+        );
+        if (colleagues.size() - off < department.getMinimumStaffing()) {
+            throw new MinimumStaffingConflict();
         }
-        return days;
     }
 
     /**
@@ -125,28 +229,34 @@ public class LeaveService extends RxService.Imp<LeaveRepository, Leave, UUID> {
      * @return
      */
     UserAccount findUserApprover(UserAccount userAccount) {
-        Optional<CompanyEmployee> employee = companyRepository.findEmployeeByUserAccount(userAccount);
-        if (!employee.isPresent()) {
-            throw new NotFound();
-        }
-        if (employee.get().getApprover() != null) {
-            return employee.get().getApprover();
+        return approver(companyRepository.findEmployeeByUserAccount(userAccount).orElseThrow(NotFound::new));
+    }
+
+    private static UserAccount approver(CompanyEmployee employee) {
+        if (employee.getApprover() != null) {
+            return employee.getApprover();
         }
-        return employee.get().getDepartment().getBoss();
+        return employee.getDepartment().getBoss();
     }
 
+    /**
+     * Approves a pending leave and appends deduction of its days to the allowance ledger. The status is switched by
+     * a conditional update, so concurrent approvals can't approve a leave twice.
+     *
+     * @throws ApprovalConflict when the leave isn't pending or the allowance would exceed the overdraft
+     */
     @Transactional
     public void approve(Leave leave) {
-        Optional<CompanyEmployee> employee0 = companyRepository.findEmployeeByUserAccount(leave.getUserAccount());
-        if (employee0.isPresent()) {
-            CompanyEmployee employee = employee0.get();
-            companyRepository.updateRemainingAllowance(employee, employee.getRemainingAllowance().subtract(leave.getNumberOfDays()));
-            leave.setStatus(Leave.Status.APPROVED);
-            leaveRepository.save(leave);
-            applicationEventPublisher.publishEvent(new LeaveApprovedEvent(leave));
+        if (leaveRepository.updateStatus(leave.getUid(), Leave.Status.PENDING, Leave.Status.APPROVED) == 0) {
+            throw new ApprovalConflict("status", "not pending");
         }
+        deduct(Collections.singletonList(leave));
+        leave.setStatus(Leave.Status.APPROVED);
+        applicationEventPublisher.publishEvent(Leave.ChangedEvent.of(leave));
+        applicationEventPublisher.publishEvent(new LeaveApprovedEvent(leave));
     }
 
+    @Transactional
     public void approve(UUID leaveUid, UUID approverUid) {
         UserAccount approver = userRepository.findOne(approverUid);
         Leave leave = leaveRepository.findOne(leaveUid);
@@ -156,6 +266,58 @@ public class LeaveService extends RxService.Imp<LeaveRepository, Leave, UUID> {
         approve(leave);
     }
 
+    /**
+     * Approves or declines pending leaves of the approver at once, each employee gets one email about all of theirs
+     *
+     * @throws NotFound         when a leave doesn't exist or someone else approves it
+     * @throws ApprovalConflict when a leave isn't pending or an allowance would exceed the overdraft
+     */
+    @Transactional
+    public List<Leave> decide(Collection<UUID> leaveUids, UUID approverUid, Leave.Status decision) {
+        if (decision == Leave.Status.PENDING) {
+            throw new IllegalArgumentException("Leaves can be only approved or declined");
+        }
+        Set<UUID> uids = new HashSet<>(leaveUids);
+        List<Leave> leaves = leaveRepository.findByUidIn(uids);
+        if (leaves.size() != uids.size() || leaves.stream().anyMatch(l -> !l.getApprover().getUid().equals(approverUid))) {
+            throw new NotFound();
+        }
+        if (leaveRepository.updateStatus(uids, Leave.Status.PENDING, decision) != uids.size()) {
+            throw new ApprovalConflict("status", "not pending");
+        }
+        if (decision == Leave.Status.APPROVED) {
+            deduct(leaves);
+        }
+        for (Leave leave : leaves) {
+            leave.setStatus(decision);
+            applicationEventPublisher.publishEvent(Leave.ChangedEvent.of(leave));
+        }
+        applicationEventPublisher.publishEvent(new LeavesDecidedEvent(leaves));
+        return leaves;
+    }
+
+    /**
+     * Appends deductions of the leaves to the ledger, each checked against the overdraft limit by the database. Leaves
+     * go in order of employee and year, so two bulk approvals touching the same employees can't deadlock.
+     */
+    private void deduct(List<Leave> leaves) {
+        Set<UserAccount> members = leaves.stream().map(Leave::getUserAccount).collect(Collectors.toSet());
+        Map<UUID, CompanyEmployee> employees = companyRepository.findEmployeesByUserAccounts(members).stream()
+                .collect(Collectors.toMap(e -> e.getMember().getUid(), e -> e));
+        if (employees.size() != members.size()) {
+            throw new NotFound();
+        }
+        leaves.stream()
+                .sorted(Comparator.comparing((Leave l) -> employees.get(l.getUserAccount().getUid()).getUid())
+                        .thenComparing(l -> l.getStarting().toLocalDateTime().getYear()))
+                .forEach(l -> {
+                    CompanyEmployee employee = employees.get(l.getUserAccount().getUid());
+                    if (!allowanceLedger.deduct(employee, l.getStarting().toLocalDateTime().getYear(), l, maxOverdraft).isPresent()) {
+                        throw new ApprovalConflict("remainingAllowance", "insufficient allowance");
+                    }
+                });
+    }
+
     @TransactionalEventListener
     public void sendLeaveRequestedEventListener(RequestLeaveEvent event) {
         sendRequest(event.getLeave());
@@ -166,6 +328,16 @@ public class LeaveService extends RxService.Imp<LeaveRepository, Leave, UUID> {
         sendApproved(event.getLeave());
     }
 
+    @TransactionalEventListener
+    public void sendLeavesDecidedEventListener(LeavesDecidedEvent event) {
+        event.getLeaves().stream()
+                .collect(Collectors.groupingBy(Leave::getUserAccount))
+                .forEach((userAccount, leaves) -> emailSender.send(
+                        Email.builder().to(userAccount).template(new LeavesDecided(leaves)).build(),
+                        userAccount.getLocale()
+                ));
+    }
+
     private void sendApproved(Leave leave) {
         Email email = Email.builder()
                 .to(leave.getUserAccount())
@@ -182,11 +354,6 @@ public class LeaveService extends RxService.Imp<LeaveRepository, Leave, UUID> {
         emailSender.send(email, leave.getApprover().getLocale());
     }
 
-    private boolean isWeekend(LocalDate localDate) {
-        Set<DayOfWeek> weekend = EnumSet.of(DayOfWeek.SATURDAY, DayOfWeek.SUNDAY);
-        return weekend.contains(localDate.getDayOfWeek());
-    }
-
     @Data
     @Builder
     public static class EmployeeLeaves {
@@ -205,4 +372,9 @@ public class LeaveService extends RxService.Imp<LeaveRepository, Leave, UUID> {
         private final Leave leave;
     }
 
+    @Data
+    static class LeavesDecidedEvent {
+        private final List<Leave> leaves;
+    }
+
 }
@@ -0,0 +1,9 @@
+package com.caribou.holiday.service;
+
+public class MinimumStaffingConflict extends RuntimeException {
+
+    public MinimumStaffingConflict() {
+        super("under minimum staffing");
+    }
+
+}
@@ -0,0 +1,9 @@
+package com.caribou.holiday.service;
+
+public class OverlappingLeave extends RuntimeException {
+
+    public OverlappingLeave() {
+        super("overlaps another leave");
+    }
+
+}
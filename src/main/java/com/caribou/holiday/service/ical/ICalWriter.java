@@ -0,0 +1,263 @@
+package com.caribou.holiday.service.ical;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+
+/**
+ * Writes {@link ICal} objects as content lines. Annotations of every class are read only once, values are written
+ * straight to the underlying writer and lines longer than 75 octets are folded as RFC 5545 requires.
+ */
+public class ICalWriter {
+
+    public static final String CRLF = "\r\n";
+
+    private static final int MAX_LINE_OCTETS = 75;
+
+    private static final DateTimeFormatter DATE = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    private static final DateTimeFormatter DATE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss");
+
+    private static final DateTimeFormatter UTC_DATE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'");
+
+    private static final ConcurrentMap<Class<?>, Metadata> METADATA = new ConcurrentHashMap<>();
+
+    private final Writer writer;
+
+    private final String lineSeparator;
+
+    private final boolean fold;
+
+    private int lineOctets;
+
+    public ICalWriter(OutputStream outputStream) {
+        this(new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8)), CRLF, true);
+    }
+
+    ICalWriter(Writer writer, String lineSeparator, boolean fold) {
+        this.writer = writer;
+        this.lineSeparator = lineSeparator;
+        this.fold = fold;
+    }
+
+    public ICalWriter write(ICal ical) throws IOException {
+        return write(ical, true).end(ical);
+    }
+
+    /**
+     * Write beginning of the component and its properties but not the nested components, they can be written one by
+     * one as they're read and followed by {@link #end(ICal)}
+     */
+    public ICalWriter begin(ICal ical) throws IOException {
+        return write(ical, false);
+    }
+
+    public ICalWriter end(ICal ical) throws IOException {
+        Metadata metadata = METADATA.computeIfAbsent(ical.getClass(), Metadata::new);
+        if (metadata.root != null) {
+            line("END:", metadata.root);
+        }
+        return this;
+    }
+
+    private ICalWriter write(ICal ical, boolean nested) throws IOException {
+        Metadata metadata = METADATA.computeIfAbsent(ical.getClass(), Metadata::new);
+        if (metadata.root != null) {
+            line("BEGIN:", metadata.root);
+        }
+        for (Property property : metadata.properties) {
+            if (property.nested && !nested) {
+                continue;
+            }
+            Object value = property.get(ical);
+            if (value == null) {
+                continue;
+            }
+            if (property.nested) {
+                if (value instanceof Collection) {
+                    for (Object o : (Collection<?>) value) {
+                        if (o instanceof ICal) {
+                            write((ICal) o);
+                        }
+                    }
+                }
+            } else {
+                append(property.name);
+                if (!property.extra) {
+                    append(":");
+                }
+                appendValue(value);
+                endLine();
+            }
+        }
+        return this;
+    }
+
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    private void line(String name, String value) throws IOException {
+        append(name);
+        append(value);
+        endLine();
+    }
+
+    private void appendValue(Object value) throws IOException {
+        if (value instanceof LocalDate) {
+            append(DATE.format((LocalDate) value));
+        } else if (value instanceof LocalDateTime) {
+            append(UTC_DATE_TIME.format((LocalDateTime) value));
+        } else if (value instanceof Instant) {
+            append(UTC_DATE_TIME.format(((Instant) value).atZone(ZoneOffset.UTC)));
+        } else if (value instanceof ZonedDateTime) {
+            ZonedDateTime time = (ZonedDateTime) value;
+            append(";TZID=");
+            append(time.getZone().toString());
+            append(":");
+            append(DATE_TIME.format(time));
+        } else if (value instanceof String) {
+            appendText((String) value);
+        } else {
+            append(value.toString());
+        }
+    }
+
+    private void appendText(String text) throws IOException {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '\\':
+                case ';':
+                case ',':
+                    append('\\', 1);
+                    append(c, 1);
+                    break;
+                case '\n':
+                    append('\\', 1);
+                    append('n', 1);
+                    break;
+                case '\r':
+                    break;
+                default:
+                    appendChar(text, i);
+                    if (Character.isHighSurrogate(c) && i + 1 < text.length()) {
+                        i++;
+                    }
+            }
+        }
+    }
+
+    private void append(String value) throws IOException {
+        for (int i = 0; i < value.length(); i++) {
+            appendChar(value, i);
+            if (Character.isHighSurrogate(value.charAt(i)) && i + 1 < value.length()) {
+                i++;
+            }
+        }
+    }
+
+    /**
+     * Append character at the index together with its low surrogate so folding never splits a code point
+     */
+    private void appendChar(String value, int index) throws IOException {
+        char c = value.charAt(index);
+        if (Character.isHighSurrogate(c) && index + 1 < value.length()) {
+            foldIfNeeded(4);
+            writer.write(c);
+            writer.write(value.charAt(index + 1));
+            lineOctets += 4;
+        } else {
+            append(c, c < 0x80 ? 1 : c < 0x800 ? 2 : 3);
+        }
+    }
+
+    private void append(char c, int octets) throws IOException {
+        foldIfNeeded(octets);
+        writer.write(c);
+        lineOctets += octets;
+    }
+
+    private void foldIfNeeded(int octets) throws IOException {
+        if (fold && lineOctets + octets > MAX_LINE_OCTETS) {
+            writer.write(lineSeparator);
+            writer.write(' ');
+            lineOctets = 1;
+        }
+    }
+
+    private void endLine() throws IOException {
+        writer.write(lineSeparator);
+        lineOctets = 0;
+    }
+
+    private static class Metadata {
+
+        private final String root;
+
+        private final List<Property> properties = new ArrayList<>();
+
+        private Metadata(Class<?> type) {
+            ICalRoot[] root = type.getAnnotationsByType(ICalRoot.class);
+            this.root = root.length == 1 ? root[0].value() : null;
+            for (Field field : type.getDeclaredFields()) {
+                ICalField[] fieldAnn = field.getAnnotationsByType(ICalField.class);
+                if (fieldAnn.length == 1) {
+                    properties.add(new Property(field, fieldAnn[0].value(), fieldAnn[0].extra(), false));
+                } else if (field.getAnnotationsByType(ICalNested.class).length == 1) {
+                    properties.add(new Property(field, null, false, true));
+                }
+            }
+        }
+    }
+
+    private static class Property {
+
+        private final MethodHandle getter;
+
+        private final String name;
+
+        private final boolean extra;
+
+        private final boolean nested;
+
+        private Property(Field field, String name, boolean extra, boolean nested) {
+            field.setAccessible(true);
+            try {
+                this.getter = MethodHandles.lookup().unreflectGetter(field);
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+            this.name = name;
+            this.extra = extra;
+            this.nested = nested;
+        }
+
+        private Object get(ICal ical) {
+            try {
+                return getter.invoke(ical);
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+}
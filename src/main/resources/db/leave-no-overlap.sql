@@ -0,0 +1,3 @@
+-- Run by Hibernate right after it creates the schema. Pending and approved leaves of a user must not overlap, enforced atomically for concurrent requests
+CREATE EXTENSION IF NOT EXISTS btree_gist;
+ALTER TABLE leave ADD CONSTRAINT leave_no_overlap EXCLUDE USING gist (user_account_uid WITH =, tsrange(starting, ending, '[]') WITH &&) WHERE (status <> 'DECLINED');
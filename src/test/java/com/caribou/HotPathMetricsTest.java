@@ -0,0 +1,66 @@
+package com.caribou;
+
+import com.caribou.auth.domain.UserAccount;
+import com.caribou.auth.repository.UserRepository;
+import com.caribou.holiday.domain.BankHoliday;
+import com.caribou.holiday.service.BankHolidayCalendar;
+import com.caribou.holiday.service.ICalService;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.MetricsEndpoint;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+public class HotPathMetricsTest extends IntegrationTests {
+
+    @Autowired
+    private MetricsEndpoint metricsEndpoint;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ICalService iCalService;
+
+    @Autowired
+    private BankHolidayCalendar bankHolidayCalendar;
+
+    @Test
+    public void repositoryCallsAreCountedByRepository() throws Exception {
+        long saves = counter("counter.repository.UserRepository.save");
+
+        UserAccount userAccount = userRepository.save(Factory.userAccount());
+
+        assertThat(counter("counter.repository.UserRepository.save")).isEqualTo(saves + 1);
+        assertThat(metricsEndpoint.invoke()).containsKeys("timer.repository.UserRepository.save.count", "timer.repository.UserRepository.save.snapshot.95thPercentile");
+        assertThat(metricsEndpoint.invoke()).doesNotContainKey("counter.repository.CrudRepository.save");
+
+        iCalService.getCalendarForUser(userAccount);
+        assertThat(metricsEndpoint.invoke()).containsKeys("counter.service.ICalService.getCalendarForUser", "timer.service.ICalService.getCalendarForUser.snapshot.mean");
+    }
+
+    @Test
+    public void bookedDaysAreTimedByEveryCall() throws Exception {
+        long calls = counter("timer.service.BankHolidayCalendar.numberOfBookedDays.count");
+
+        bankHolidayCalendar.numberOfBookedDays(Factory.leave(null, null), BankHoliday.Country.CZ);
+        bankHolidayCalendar.numberOfBookedDays(Factory.leave(null, null), BankHoliday.Country.CZ);
+
+        assertThat(counter("timer.service.BankHolidayCalendar.numberOfBookedDays.count")).isEqualTo(calls + 2);
+        assertThat(metricsEndpoint.invoke()).containsKey("timer.service.BankHolidayCalendar.numberOfBookedDays.snapshot.max");
+    }
+
+    @Test
+    public void emailQueueIsReported() throws Exception {
+        assertThat(metricsEndpoint.invoke()).containsEntry("gauge.email.queue", 0);
+    }
+
+    private long counter(String name) {
+        Map<String, Object> metrics = metricsEndpoint.invoke();
+        return metrics.containsKey(name) ? ((Number) metrics.get(name)).longValue() : 0;
+    }
+
+}
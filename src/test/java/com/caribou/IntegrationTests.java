@@ -22,9 +22,11 @@ import org.springframework.http.client.SimpleClientHttpRequestFactory;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.web.client.RestTemplate;
 
+import java.util.concurrent.Callable;
+
 
 @RunWith(SpringJUnit4ClassRunner.class)
-@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, classes = {WebApplication.class})
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, classes = {WebApplication.class, StatementCounter.class})
 public abstract class IntegrationTests {
 
     protected Faker faker = new Faker();
@@ -35,6 +37,14 @@ public abstract class IntegrationTests {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private StatementCounter statementCounter;
+
+    /**
+     * Statements executed by logins of requests, they're left out of the counted ones
+     */
+    private long loginStatements;
+
     @Value("${local.server.port}")
     private int port = 0;
 
@@ -67,7 +77,33 @@ public abstract class IntegrationTests {
         if (username == null && password == null) {
             return jsonHeader();
         }
-        return getTokenHeader(getUserToken(username, password));
+        // statements of the login aren't counted as those of the request
+        long before = statementCounter.getStatements();
+        String token = getUserToken(username, password);
+        loginStatements += statementCounter.getStatements() - before;
+        return getTokenHeader(token);
+    }
+
+    /**
+     * @return number of SQL statements executed by the call, including those of a request it makes to the server
+     */
+    protected long countStatements(Callable<?> call) throws Exception {
+        long before = statementCounter.getStatements() - loginStatements;
+        call.call();
+        return statementCounter.getStatements() - loginStatements - before;
+    }
+
+    /**
+     * Fails when the call executes more SQL statements than allowed, catches N+1 queries
+     */
+    protected <T> T assertMaxQueries(int max, Callable<T> call) throws Exception {
+        long before = statementCounter.getStatements() - loginStatements;
+        T result = call.call();
+        long statements = statementCounter.getStatements() - loginStatements - before;
+        if (statements > max) {
+            throw new AssertionError(String.format("Expected at most %d SQL statements but %d were executed", max, statements));
+        }
+        return result;
     }
 
     protected HttpHeaders jsonHeader() {
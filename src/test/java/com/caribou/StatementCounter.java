@@ -0,0 +1,81 @@
+package com.caribou;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * Wraps the data source of tests and counts executed SQL statements, a JDBC batch counts as one
+ */
+@Component
+public class StatementCounter implements BeanPostProcessor {
+
+    private final AtomicLong statements = new AtomicLong();
+
+    public long getStatements() {
+        return statements.get();
+    }
+
+    @Override
+    public Object postProcessBeforeInitialization(Object bean, String beanName) {
+        return bean;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof DataSource) {
+            return proxy(bean, (target, method, args) -> {
+                Object result = invoke(target, method, args);
+                return result instanceof Connection ? connection(result) : result;
+            });
+        }
+        return bean;
+    }
+
+    private Object connection(Object connection) {
+        return proxy(connection, (target, method, args) -> {
+            Object result = invoke(target, method, args);
+            return result instanceof Statement ? statement(result) : result;
+        });
+    }
+
+    private Object statement(Object statement) {
+        return proxy(statement, (target, method, args) -> {
+            if (method.getName().startsWith("execute")) {
+                statements.incrementAndGet();
+            }
+            return invoke(target, method, args);
+        });
+    }
+
+    private static Object proxy(Object target, Handler handler) {
+        Class<?>[] interfaces = Arrays.stream(ClassUtils.getAllInterfaces(target))
+                .filter(i -> Modifier.isPublic(i.getModifiers()))
+                .toArray(Class<?>[]::new);
+        return Proxy.newProxyInstance(target.getClass().getClassLoader(), interfaces, (proxy, method, args) -> handler.invoke(target, method, args));
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+    private interface Handler {
+        Object invoke(Object target, Method method, Object[] args) throws Throwable;
+    }
+
+}
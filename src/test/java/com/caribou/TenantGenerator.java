@@ -0,0 +1,319 @@
+package com.caribou;
+
+import com.caribou.auth.domain.UserAccount;
+import com.caribou.company.domain.Role;
+import com.caribou.company.service.ProRataAllowance;
+import com.caribou.holiday.domain.AllowanceEntry;
+import com.caribou.holiday.domain.BankHoliday;
+import com.caribou.holiday.domain.Leave;
+import com.github.javafaker.Faker;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.SerializationUtils;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.MonthDay;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+
+/**
+ * Seeds large tenants for load tests and benchmarks: companies with departments, employees, their leaves and
+ * allowances, plus Czech bank holidays of the year. Rows go in by JDBC batches, the same seed always gives the same
+ * names, uids and dates. Every employee can log in as employee{n}@company{c}-{seed}.example.com with {@link #PASSWORD}.
+ * <p>
+ * ./gradlew seed -PseedArgs="--companies=10 --departments=20 --employees=1000 --leaves=8 --seed=42"
+ * <p>
+ * The schema is created on start, run the application with --spring.jpa.hibernate.ddl-auto=validate afterwards so it
+ * keeps the data.
+ */
+@Slf4j
+public class TenantGenerator {
+
+    public static final String PASSWORD = "password";
+
+    private static final int BATCH_SIZE = 1000;
+
+    private static final List<MonthDay> FIXED_BANK_HOLIDAYS = Stream.of(
+            "--01-01", "--05-01", "--05-08", "--07-05", "--07-06", "--09-28", "--10-28", "--11-17", "--12-24", "--12-25", "--12-26"
+    ).map(MonthDay::parse).collect(Collectors.toList());
+
+    private static final List<String> LEAVE_TYPES = Arrays.asList("Holiday", "Sick day", "Home office");
+
+    private static final String INSERT_COMPANY = "insert into company (uid, name, default_days_off, reg_no, pays_vat, address1, city, post_code, created_at, updated_at) " +
+            "values (?, ?, ?, ?, false, ?, ?, ?, now(), now())";
+
+    private static final String INSERT_LEAVE_TYPE = "insert into leave_type (uid, name, company_uid, created_at, updated_at) values (?, ?, ?, now(), now())";
+
+    private static final String INSERT_USER = "insert into user_account (uid, email, password, first_name, last_name, locale, created_at, updated_at) " +
+            "values (?, ?, ?, ?, ?, 'en_GB', now(), now())";
+
+    private static final String INSERT_DEPARTMENT = "insert into department (uid, name, days_off, boss_uid, company_uid, created_at, updated_at) " +
+            "values (?, ?, ?, ?, ?, now(), now())";
+
+    private static final String INSERT_EMPLOYEE = "insert into company_employee (uid, company_uid, department_uid, member_uid, role, location, employment_start, created_at, updated_at) " +
+            "values (?, ?, ?, ?, ?, ?, ?, now(), now())";
+
+    private static final String INSERT_LEAVE = "insert into leave (uid, leave_type_uid, user_account_uid, starting, ending, number_of_days, approver, status, created_at, updated_at) " +
+            "values (?, ?, ?, ?, ?, ?, ?, ?, now(), now())";
+
+    private static final String INSERT_ALLOWANCE = "insert into allowance_entry (uid, employee_uid, year, type, days, leave_uid, created_at, updated_at) " +
+            "values (?, ?, ?, ?, ?, ?, now(), now())";
+
+    private static final String INSERT_BANK_HOLIDAY = "insert into bank_holiday (uid, country, date, description, created_at, updated_at) values (?, ?, ?, ?, now(), now())";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final String password;
+
+    public TenantGenerator(JdbcTemplate jdbcTemplate, BCryptPasswordEncoder encoder) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.password = encoder.encode(PASSWORD);
+    }
+
+    public static void main(String[] args) {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(WebApplication.class).web(false).run(args)) {
+            Environment env = context.getEnvironment();
+            Spec spec = Spec.builder()
+                    .seed(env.getProperty("seed", Long.class, 1L))
+                    .companies(env.getProperty("companies", Integer.class, 1))
+                    .departments(env.getProperty("departments", Integer.class, 10))
+                    .employees(env.getProperty("employees", Integer.class, 1000))
+                    .leaves(env.getProperty("leaves", Integer.class, 8))
+                    .year(env.getProperty("year", Integer.class, LocalDate.now().getYear()))
+                    .build();
+            new TenantGenerator(context.getBean(JdbcTemplate.class), context.getBean(BCryptPasswordEncoder.class)).generate(spec);
+        }
+    }
+
+    public static String email(Spec spec, int company, int employee) {
+        return String.format("employee%d@company%d-%d.example.com", employee, company, spec.getSeed());
+    }
+
+    /**
+     * @return uids of generated companies
+     */
+    public List<UUID> generate(Spec spec) {
+        if (spec.getDepartments() < 1 || spec.getEmployees() < spec.getDepartments()) {
+            throw new IllegalArgumentException("Every department needs an employee to be its boss");
+        }
+        if (spec.getLeaves() > 52) {
+            throw new IllegalArgumentException("At most one leave a week is generated");
+        }
+        Set<LocalDate> bankHolidays = bankHolidays(spec.getYear());
+        List<UUID> companies = new ArrayList<>();
+        for (int c = 0; c < spec.getCompanies(); c++) {
+            long start = System.currentTimeMillis();
+            companies.add(company(spec, c, bankHolidays));
+            log.info("Generated company {} of {} in {} ms", c + 1, spec.getCompanies(), System.currentTimeMillis() - start);
+        }
+        return companies;
+    }
+
+    private UUID company(Spec spec, int c, Set<LocalDate> bankHolidays) {
+        // each company has its own random, so they don't change when more companies are generated
+        Random random = new Random(spec.getSeed() * 31 + c);
+        Faker faker = new Faker(random);
+
+        UUID company = uuid(random);
+        BigDecimal daysOff = BigDecimal.valueOf(20 + random.nextInt(6));
+        jdbcTemplate.update(INSERT_COMPANY, company, faker.company().name(), daysOff, String.valueOf(1_000_000 + random.nextInt(8_000_000)),
+                faker.address().streetAddress(), faker.address().city(), faker.address().zipCode());
+
+        List<Object[]> leaveTypes = new ArrayList<>();
+        for (String name : LEAVE_TYPES) {
+            leaveTypes.add(new Object[]{uuid(random), name, company});
+        }
+        jdbcTemplate.batchUpdate(INSERT_LEAVE_TYPE, leaveTypes);
+
+        UUID[] users = new UUID[spec.getEmployees()];
+        // leaves keep a serialized copy of their approver, the boss of the department
+        byte[][] approvers = new byte[spec.getDepartments()][];
+        Batch userRows = new Batch(INSERT_USER);
+        for (int e = 0; e < users.length; e++) {
+            users[e] = uuid(random);
+            UserAccount user = UserAccount.newBuilder()
+                    .email(email(spec, c, e))
+                    .password(password)
+                    .firstName(faker.name().firstName())
+                    .lastName(faker.name().lastName())
+                    .build();
+            ReflectionTestUtils.setField(user, "uid", users[e]);
+            if (e < approvers.length) {
+                approvers[e] = SerializationUtils.serialize(user);
+            }
+            userRows.add(users[e], user.getEmail(), user.getPassword(), user.getFirstName(), user.getLastName());
+            if (userRows.isFull()) {
+                userRows.flush();
+            }
+        }
+        userRows.flush();
+
+        // the first employees are bosses of departments
+        UUID[] departments = new UUID[spec.getDepartments()];
+        Batch departmentRows = new Batch(INSERT_DEPARTMENT);
+        for (int d = 0; d < departments.length; d++) {
+            departments[d] = uuid(random);
+            departmentRows.add(departments[d], faker.commerce().department(), daysOff, users[d], company);
+            if (departmentRows.isFull()) {
+                departmentRows.flush();
+            }
+        }
+        departmentRows.flush();
+
+        Batch employeeRows = new Batch(INSERT_EMPLOYEE);
+        Batch leaveRows = new Batch(INSERT_LEAVE);
+        Batch allowanceRows = new Batch(INSERT_ALLOWANCE);
+        int slot = 365 / Math.max(1, spec.getLeaves());
+        for (int e = 0; e < users.length; e++) {
+            UUID employee = uuid(random);
+            Role role = e == 0 ? Role.Owner : e < departments.length ? Role.Editor : Role.Viewer;
+            // a tenth joined during the year
+            LocalDate employmentStart = random.nextInt(10) == 0 ? LocalDate.ofYearDay(spec.getYear(), 1 + random.nextInt(365)) : null;
+            int department = e % departments.length;
+            employeeRows.add(employee, company, departments[department], users[e], role.name(), BankHoliday.Country.CZ.name(),
+                    employmentStart != null ? Date.valueOf(employmentStart) : null);
+            int halfDays = ProRataAllowance.halfDays(ProRataAllowance.toHalfDays(daysOff), employmentStart, spec.getYear());
+            allowanceRows.add(uuid(random), employee, spec.getYear(), AllowanceEntry.Type.GRANT.name(), ProRataAllowance.toDays(halfDays), null);
+
+            // one leave of up to five days in each slot of the year, so leaves of an employee never overlap
+            for (int l = 0; l < spec.getLeaves(); l++) {
+                LocalDate from = LocalDate.ofYearDay(spec.getYear(), 1 + l * slot + random.nextInt(slot - 5));
+                LocalDate to = from.plusDays(random.nextInt(5));
+                UUID leave = uuid(random);
+                BigDecimal days = workingDays(from, to, bankHolidays);
+                int status = random.nextInt(10);
+                Leave.Status leaveStatus = status < 8 ? Leave.Status.APPROVED : status < 9 ? Leave.Status.PENDING : Leave.Status.DECLINED;
+                leaveRows.add(leave, leaveTypes.get(random.nextInt(leaveTypes.size()))[0], users[e],
+                        Timestamp.valueOf(from.atStartOfDay()), Timestamp.valueOf(to.atStartOfDay()), days, approvers[department], leaveStatus.name());
+                if (leaveStatus == Leave.Status.APPROVED) {
+                    allowanceRows.add(uuid(random), employee, spec.getYear(), AllowanceEntry.Type.DEDUCTION.name(), days.negate(), leave);
+                }
+            }
+            if (employeeRows.isFull()) {
+                // employees go first, leaves and allowances of the chunk refer to them
+                flush(employeeRows, leaveRows, allowanceRows);
+            }
+        }
+        flush(employeeRows, leaveRows, allowanceRows);
+        return company;
+    }
+
+    private Set<LocalDate> bankHolidays(int year) {
+        LocalDate easterSunday = easterSunday(year);
+        List<LocalDate> dates = FIXED_BANK_HOLIDAYS.stream().map(d -> d.atYear(year)).collect(Collectors.toList());
+        dates.add(easterSunday.minusDays(2));
+        dates.add(easterSunday.plusDays(1));
+
+        Integer existing = jdbcTemplate.queryForObject("select count(*) from bank_holiday where country = ? and date between ? and ?", Integer.class,
+                BankHoliday.Country.CZ.name(), Date.valueOf(LocalDate.ofYearDay(year, 1)), Date.valueOf(LocalDate.ofYearDay(year, 1).plusYears(1).minusDays(1)));
+        if (existing == 0) {
+            Random random = new Random(year);
+            jdbcTemplate.batchUpdate(INSERT_BANK_HOLIDAY, dates.stream()
+                    .map(d -> new Object[]{uuid(random), BankHoliday.Country.CZ.name(), Date.valueOf(d), "Bank holiday"})
+                    .collect(Collectors.toList()));
+        }
+        return dates.stream().collect(Collectors.toSet());
+    }
+
+    /**
+     * Anonymous Gregorian algorithm
+     */
+    private static LocalDate easterSunday(int year) {
+        int a = year % 19;
+        int b = year / 100;
+        int c = year % 100;
+        int d = b / 4;
+        int e = b % 4;
+        int f = (b + 8) / 25;
+        int g = (b - f + 1) / 3;
+        int h = (19 * a + b - d - g + 15) % 30;
+        int i = c / 4;
+        int k = c % 4;
+        int l = (32 + 2 * e + 2 * i - h - k) % 7;
+        int m = (a + 11 * h + 22 * l) / 451;
+        return LocalDate.of(year, (h + l - 7 * m + 114) / 31, (h + l - 7 * m + 114) % 31 + 1);
+    }
+
+    private static BigDecimal workingDays(LocalDate from, LocalDate to, Set<LocalDate> bankHolidays) {
+        int days = 0;
+        for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+            if (day.getDayOfWeek() != DayOfWeek.SATURDAY && day.getDayOfWeek() != DayOfWeek.SUNDAY && !bankHolidays.contains(day)) {
+                days++;
+            }
+        }
+        return BigDecimal.valueOf(days);
+    }
+
+    private static UUID uuid(Random random) {
+        return new UUID(random.nextLong(), random.nextLong());
+    }
+
+    private static void flush(Batch... batches) {
+        for (Batch batch : batches) {
+            batch.flush();
+        }
+    }
+
+    @Getter
+    @Builder
+    public static class Spec {
+        private final long seed;
+        private final int companies;
+        /**
+         * Per company
+         */
+        private final int departments;
+        /**
+         * Per company
+         */
+        private final int employees;
+        /**
+         * Per employee
+         */
+        private final int leaves;
+        private final int year;
+    }
+
+    private class Batch {
+        private final String sql;
+        private final List<Object[]> rows = new ArrayList<>();
+
+        private Batch(String sql) {
+            this.sql = sql;
+        }
+
+        private void add(Object... row) {
+            rows.add(row);
+        }
+
+        private boolean isFull() {
+            return rows.size() >= BATCH_SIZE;
+        }
+
+        private void flush() {
+            for (int i = 0; i < rows.size(); i += BATCH_SIZE) {
+                jdbcTemplate.batchUpdate(sql, rows.subList(i, Math.min(rows.size(), i + BATCH_SIZE)));
+            }
+            rows.clear();
+        }
+    }
+
+}
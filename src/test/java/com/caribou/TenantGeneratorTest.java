@@ -0,0 +1,74 @@
+package com.caribou;
+
+import com.caribou.auth.domain.UserAccount;
+import com.caribou.auth.repository.UserRepository;
+import com.caribou.company.domain.CompanyEmployee;
+import com.caribou.company.domain.Role;
+import com.caribou.company.repository.CompanyRepository;
+import com.caribou.company.rest.dto.CompanyDto;
+import com.caribou.holiday.repository.BankHolidayRepository;
+import com.caribou.holiday.repository.LeaveRepository;
+import com.caribou.holiday.service.AllowanceLedger;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+public class TenantGeneratorTest extends IntegrationTests {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private BCryptPasswordEncoder encoder;
+
+    @Autowired
+    private CompanyRepository companyRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private LeaveRepository leaveRepository;
+
+    @Autowired
+    private AllowanceLedger allowanceLedger;
+
+    @Test
+    public void generate() throws Exception {
+        TenantGenerator.Spec spec = TenantGenerator.Spec.builder().seed(7).companies(2).departments(2).employees(5).leaves(3).year(2091).build();
+
+        List<UUID> companies = new TenantGenerator(jdbcTemplate, encoder).generate(spec);
+
+        assertThat(companies).hasSize(2);
+        List<CompanyEmployee> employees = companyRepository.findEmployeesByCompanyUid(companies.get(1));
+        assertThat(employees).hasSize(5);
+        assertThat(employees).extracting(e -> e.getDepartment().getUid()).containsOnlyElementsOf(
+                companyRepository.findWithDepartmentsByUid(companies.get(1)).get().getDepartments().stream().map(AbstractEntity::getUid)::iterator
+        );
+        UserAccount owner = userRepository.findByEmail(TenantGenerator.email(spec, 1, 0)).get();
+        CompanyEmployee ownerEmployee = companyRepository.findEmployeeByUserAccount(owner).get();
+        assertThat(ownerEmployee.getRole()).isEqualTo(Role.Owner);
+        assertThat(leaveRepository.findByUserAccount(owner)).hasSize(3);
+        assertThat(allowanceLedger.balance(ownerEmployee, 2091)).isNotNull();
+    }
+
+    @Test
+    public void generatedEmployeesCanLogIn() throws Exception {
+        TenantGenerator.Spec spec = TenantGenerator.Spec.builder().seed(8).companies(1).departments(1).employees(2).leaves(1).year(2091).build();
+        UUID company = new TenantGenerator(jdbcTemplate, encoder).generate(spec).get(0);
+
+        ResponseEntity<CompanyDto> response = get("/v1/companies/" + company, CompanyDto.class, TenantGenerator.email(spec, 0, 1), TenantGenerator.PASSWORD);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+    }
+
+}
@@ -5,7 +5,12 @@ import com.caribou.IntegrationTests;
 import com.caribou.auth.domain.UserAccount;
 import com.caribou.auth.jwt.ajax.LoginRequest;
 import com.caribou.auth.jwt.response.TokenResponse;
+import com.caribou.auth.repository.UserRepository;
 import com.caribou.auth.service.UserService;
+import com.caribou.company.domain.Company;
+import com.caribou.company.domain.Role;
+import com.caribou.company.repository.CompanyRepository;
+import com.caribou.company.rest.dto.CompanyDto;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -29,6 +34,12 @@ public class LoginRestControllerTest extends IntegrationTests {
     @Autowired
     ObjectMapper objectMapper;
 
+    @Autowired
+    UserRepository userRepository;
+
+    @Autowired
+    CompanyRepository companyRepository;
+
     @Test
     public void authorizedWithValidUsernameAndPassword() throws Exception {
         UserAccount user = Factory.userAccount();
@@ -53,6 +64,24 @@ public class LoginRestControllerTest extends IntegrationTests {
         assertThat(response.getBody().getToken()).isNotNull();
     }
 
+    @Test
+    public void loginOfEmployeeDoesNotLoadTheirCompany() throws Exception {
+        UserAccount user = Factory.userAccount();
+        String userPassword = user.getPassword();
+        userService.register(user);
+        Company company = companyRepository.save(Factory.company());
+        companyRepository.addEmployee(company, user, Role.Editor);
+        for (int i = 0; i < 20; i++) {
+            companyRepository.addEmployee(company, userRepository.save(Factory.userAccount()), Role.Viewer);
+        }
+
+        String token = assertMaxQueries(2, () -> getUserToken(user.getEmail(), userPassword));
+
+        assertThat(token).isNotNull();
+        ResponseEntity<CompanyDto> response = get("/v1/companies/" + company.getUid(), CompanyDto.class, user.getEmail(), userPassword);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+    }
+
     @Test
     public void authorizedWithInvalidUsernameAndPassword() throws Exception {
         UserAccount user = Factory.userAccount();
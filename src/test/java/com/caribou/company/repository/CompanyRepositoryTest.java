@@ -6,13 +6,14 @@ import com.caribou.auth.domain.UserAccount;
 import com.caribou.auth.repository.UserRepository;
 import com.caribou.company.domain.Company;
 import com.caribou.company.domain.CompanyEmployee;
+import com.caribou.company.domain.Department;
 import com.caribou.company.domain.Role;
+import org.hibernate.Hibernate;
 import org.junit.Before;
 import org.junit.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataIntegrityViolationException;
 
-import java.util.ArrayList;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -27,6 +28,9 @@ public class CompanyRepositoryTest extends IntegrationTests {
     @Autowired
     UserRepository userRepository;
 
+    @Autowired
+    DepartmentRepository departmentRepository;
+
     private Company company;
 
     private UserAccount userAccount;
@@ -49,6 +53,37 @@ public class CompanyRepositoryTest extends IntegrationTests {
         assertThat(result).isPresent();
     }
 
+    @Test
+    public void employeesAndDepartmentsOfCompanyAreNotLoadedWithEmployee() throws Exception {
+        CompanyEmployee employee = companyRepository.findEmployeeByEmailForUid(userAccount.getEmail(), company.getUid()).get();
+
+        assertThat(Hibernate.isInitialized(employee.getCompany().getEmployees())).isFalse();
+        assertThat(Hibernate.isInitialized(employee.getCompany().getDepartments())).isFalse();
+    }
+
+    @Test
+    public void findWithDepartmentsByUid() throws Exception {
+        Department department = departmentRepository.save(Factory.department(company, userAccount));
+
+        Company result = companyRepository.findWithDepartmentsByUid(company.getUid()).get();
+
+        assertThat(result.getDepartments()).containsExactly(department);
+    }
+
+    @Test
+    public void findLoginByEmail() throws Exception {
+        Optional<EmployeeLogin> result = companyRepository.findLoginByEmail(userAccount.getEmail());
+
+        assertThat(result).contains(new EmployeeLogin(company.getUid(), Role.Admin, userAccount.getUid(), userAccount.getEmail()));
+    }
+
+    @Test
+    public void findLoginByEmailOfUserWithoutCompany() throws Exception {
+        UserAccount anotherUserAccount = userRepository.save(Factory.userAccount());
+
+        assertThat(companyRepository.findLoginByEmail(anotherUserAccount.getEmail())).isNotPresent();
+    }
+
     @Test
     public void findEmployeeByEmailForUidAnotherCompany() throws Exception {
         Company anotherCompany = Factory.company();
@@ -83,7 +118,7 @@ public class CompanyRepositoryTest extends IntegrationTests {
         userRepository.save(anotherUserAccount);
         companyRepository.addEmployee(company, anotherUserAccount, Role.Admin);
 
-        Optional<CompanyEmployee> employee = new ArrayList<>(companyRepository.findOne(company.getUid()).getEmployees()).stream()
+        Optional<CompanyEmployee> employee = companyRepository.findEmployeesByCompanyUid(company.getUid()).stream()
                 .filter(e -> e.getMember().getEmail().equals(anotherUserAccount.getEmail()))
                 .findFirst();
 
@@ -3,6 +3,7 @@ package com.caribou.company.rest;
 import com.caribou.Factory;
 import com.caribou.IntegrationTests;
 import com.caribou.auth.domain.UserAccount;
+import com.caribou.auth.rest.dto.Error;
 import com.caribou.auth.service.UserService;
 import com.caribou.company.domain.Company;
 import com.caribou.company.domain.Department;
@@ -142,7 +143,8 @@ public class CompanyRestControllerTest extends IntegrationTests {
         );
 
         ListDto companyDto = response.getBody();
-        assertThat(companyDto.getTotal()).isEqualTo(1);
+        assertThat(companyDto.getItems()).hasSize(1);
+        assertThat(companyDto.getTotal()).isNull();
 
         LinkedHashMap employeeDto = (LinkedHashMap) companyDto.getItems().get(0);
         assertThat(employeeDto.get("email")).isEqualTo(userAccount.getEmail());
@@ -151,6 +153,85 @@ public class CompanyRestControllerTest extends IntegrationTests {
         assertThat(employeeDto.get("role")).isEqualTo(Role.Viewer.toString());
     }
 
+    @Test
+    public void getEmployeesRunsBoundedNumberOfQueries() throws Exception {
+        Company company = companyRepository.save(Factory.company());
+        companyRepository.addEmployee(company, userAccount, Role.Viewer);
+        for (int i = 0; i < 20; i++) {
+            UserAccount employee = Factory.userAccount();
+            userService.create(employee);
+            companyRepository.addEmployee(company, employee, Role.Viewer);
+        }
+        String url = String.format("/v1/companies/%s/employees", company.getUid());
+        get(url, ListDto.class, userAccount.getEmail(), userPassword);
+
+        ResponseEntity<ListDto> response = assertMaxQueries(1, () -> get(url, ListDto.class, userAccount.getEmail(), userPassword));
+
+        assertThat(response.getBody().getItems()).hasSize(21);
+    }
+
+    @Test
+    public void getCompanyRunsBoundedNumberOfQueries() throws Exception {
+        Company company = Factory.company();
+        company.addEmployee(userAccount, Role.Owner);
+        companyRepository.save(company);
+        for (int i = 0; i < 20; i++) {
+            UserAccount employee = Factory.userAccount();
+            userService.create(employee);
+            companyRepository.addEmployee(company, employee, Role.Viewer);
+        }
+        String url = String.format("/v1/companies/%s", company.getUid());
+        get(url, CompanyDto.class, userAccount.getEmail(), userPassword);
+
+        ResponseEntity<CompanyDto> response = assertMaxQueries(1, () -> get(url, CompanyDto.class, userAccount.getEmail(), userPassword));
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+    }
+
+    @Test
+    public void getEmployeesPageByPage() throws Exception {
+        Company company = Factory.company();
+        companyRepository.save(company);
+        companyRepository.addEmployee(company, userAccount, Role.Viewer);
+        for (int i = 0; i < 2; i++) {
+            UserAccount employee = Factory.userAccount();
+            userService.create(employee);
+            companyRepository.addEmployee(company, employee, Role.Viewer);
+        }
+        String url = String.format("/v1/companies/%s/employees?limit=2", company.getUid());
+
+        ListDto first = get(url, ListDto.class, userAccount.getEmail(), userPassword).getBody();
+        assertThat(first.getItems()).hasSize(2);
+        assertThat(first.getLimit()).isEqualTo(2);
+        assertThat(first.getPrevious()).isNull();
+
+        ListDto second = get(url + "&cursor=" + first.getNext(), ListDto.class, userAccount.getEmail(), userPassword).getBody();
+        assertThat(second.getItems()).hasSize(1);
+        assertThat(second.getItems()).doesNotContainAnyElementsOf(first.getItems());
+        assertThat(second.getNext()).isNull();
+
+        ListDto back = get(url + "&cursor=" + second.getPrevious(), ListDto.class, userAccount.getEmail(), userPassword).getBody();
+        assertThat(back.getItems()).isEqualTo(first.getItems());
+        assertThat(back.getPrevious()).isNull();
+    }
+
+    @Test
+    public void getEmployeesWithInvalidCursor() throws Exception {
+        Company company = Factory.company();
+        companyRepository.save(company);
+        companyRepository.addEmployee(company, userAccount, Role.Viewer);
+
+        ResponseEntity<Error> response = get(
+                String.format("/v1/companies/%s/employees?cursor=abc", company.getUid()),
+                Error.class,
+                userAccount.getEmail(),
+                userPassword
+        );
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(response.getBody().getValidationErrors()).containsKey("cursor");
+    }
+
     @Test
     public void getEmployeesFromCompanyWhereHeDoesNotBelong() throws Exception {
         Company company = Factory.company();
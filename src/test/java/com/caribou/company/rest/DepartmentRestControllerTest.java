@@ -353,7 +353,7 @@ public class DepartmentRestControllerTest extends IntegrationTests {
                 userPassword
         );
         assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
-        assertThat(response.getBody().getTotal()).isEqualTo(1);
+        assertThat(response.getBody().getItems()).hasSize(1);
         HashMap employee = (HashMap) response.getBody().getItems().get(0);
         assertThat(employee.get("email")).isEqualTo(userAccount.getEmail());
         assertThat(employee.get("firstName")).isEqualTo(userAccount.getFirstName());
@@ -362,6 +362,19 @@ public class DepartmentRestControllerTest extends IntegrationTests {
         assertThat(employee.get("uid")).isEqualTo(userAccount.getUid().toString());
     }
 
+    @Test
+    public void getDepartmentEmployeesRunsBoundedNumberOfQueries() throws Exception {
+        for (int i = 0; i < 20; i++) {
+            companyRepository.addEmployee(company, department, userRepository.save(Factory.userAccount()), Role.Viewer);
+        }
+        String url = String.format("/v1/companies/%s/departments/%s/employees", company.getUid(), department.getUid());
+        get(url, ListDto.class, userAccount.getEmail(), userPassword);
+
+        ResponseEntity<ListDto> response = assertMaxQueries(2, () -> get(url, ListDto.class, userAccount.getEmail(), userPassword));
+
+        assertThat(response.getBody().getItems()).hasSize(21);
+    }
+
     @Test
     public void getListOfEmployeesFromAnotherCompany() throws Exception {
         Company anotherCompany = Factory.company();
@@ -414,7 +427,7 @@ public class DepartmentRestControllerTest extends IntegrationTests {
         );
         assertThat(response.getStatusCode()).isEqualTo(HttpStatus.CREATED);
 
-        Optional<CompanyEmployee> createdUser = companyRepository.findEmployeeByEmail(employeeDto.getEmail());
+        Optional<CompanyEmployee> createdUser = companyRepository.findEmployeeByEmailForUid(employeeDto.getEmail(), company.getUid());
         assertThat(createdUser).isPresent();
         assertThat(createdUser.get().getCompany().getUid()).isEqualTo(company.getUid());
         assertThat(createdUser.get().getDepartment().getUid()).isEqualTo(department.getUid());
@@ -425,7 +438,7 @@ public class DepartmentRestControllerTest extends IntegrationTests {
         UserAccount viewer = Factory.userAccount();
         String viewerPassword = viewer.getPassword();
         userService.create(viewer);
-        companyRepository.addEmployee(department, viewer, Role.Viewer, BigDecimal.TEN);
+        companyRepository.addEmployee(department, viewer, Role.Viewer);
 
         EmployeeDto employeeDto = EmployeeDto.builder()
                 .firstName(faker.name().firstName())
@@ -16,6 +16,7 @@ import com.caribou.company.repository.InvitationRepository;
 import com.caribou.company.service.parser.EmployeeCsvParser;
 import com.caribou.email.Email;
 import com.caribou.email.templates.Invite;
+import com.caribou.holiday.service.AllowanceLedger;
 import org.junit.Before;
 import org.junit.Ignore;
 import org.junit.Test;
@@ -42,6 +43,9 @@ public class EmployeeServiceTest extends IntegrationTests {
     @Autowired
     private EmployeeService employeeService;
 
+    @Autowired
+    private AllowanceLedger allowanceLedger;
+
     @Autowired
     private CompanyRepository companyRepository;
 
@@ -254,7 +258,7 @@ public class EmployeeServiceTest extends IntegrationTests {
         List<CompanyEmployee> employees = companyRepository.findEmployeesByDepartmentUid(department.getUid());
         CompanyEmployee employee = employees.get(0);
 
-        assertThat(employee.getRemainingAllowance()).isEqualByComparingTo(BigDecimal.valueOf(10));
+        assertThat(allowanceLedger.balance(employee, LocalDate.now().getYear())).isEqualByComparingTo(BigDecimal.valueOf(10));
     }
 
     @Test
@@ -269,7 +273,7 @@ public class EmployeeServiceTest extends IntegrationTests {
         List<CompanyEmployee> employees = companyRepository.findEmployeesByDepartmentUid(department.getUid());
         CompanyEmployee employee = employees.get(0);
 
-        assertThat(employee.getRemainingAllowance()).isEqualByComparingTo(BigDecimal.valueOf(1.5));
+        assertThat(allowanceLedger.balance(employee, LocalDate.now().getYear())).isEqualByComparingTo(BigDecimal.valueOf(1.5));
     }
 
     @Test
@@ -284,6 +288,6 @@ public class EmployeeServiceTest extends IntegrationTests {
         List<CompanyEmployee> employees = companyRepository.findEmployeesByDepartmentUid(department.getUid());
         CompanyEmployee employee = employees.get(0);
 
-        assertThat(employee.getRemainingAllowance()).isEqualByComparingTo(BigDecimal.valueOf(6.5));
+        assertThat(allowanceLedger.balance(employee, LocalDate.now().getYear())).isEqualByComparingTo(BigDecimal.valueOf(6.5));
     }
 }
@@ -4,12 +4,14 @@ import com.caribou.Factory;
 import com.caribou.IntegrationTests;
 import com.caribou.email.templates.Invite;
 import com.caribou.email.templates.LeaveApproved;
+import com.caribou.email.templates.LeavesDecided;
 import com.caribou.holiday.domain.Leave;
 import com.github.javafaker.Faker;
 import org.junit.Before;
 import org.junit.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import java.util.Arrays;
 import java.util.Locale;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
@@ -45,4 +47,13 @@ public class ContentGeneratorTest extends IntegrationTests {
         assertThat(content).contains("Time off booked");
     }
 
+    @Test
+    public void leavesDecided() throws Exception {
+        Leave approved = Factory.leave(Factory.userAccount(), Factory.leaveType(Factory.company()));
+        Leave declined = Factory.leave(Factory.userAccount(), Factory.leaveType(Factory.company()));
+        declined.setStatus(Leave.Status.DECLINED);
+        String content = contentGenerator.generate(new LeavesDecided(Arrays.asList(approved, declined)), Locale.UK).getHtml();
+        assertThat(content).contains("Time off requests answered").contains("Approved").contains("Declined");
+    }
+
 }
@@ -0,0 +1,81 @@
+package com.caribou.holiday.rest;
+
+import com.caribou.Factory;
+import com.caribou.IntegrationTests;
+import com.caribou.auth.domain.UserAccount;
+import com.caribou.auth.service.UserService;
+import com.caribou.company.domain.Company;
+import com.caribou.company.domain.Role;
+import com.caribou.company.repository.CompanyRepository;
+import com.caribou.holiday.domain.LeaveType;
+import com.caribou.holiday.repository.LeaveRepository;
+import com.caribou.holiday.repository.LeaveTypeRepository;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+public class AbsenceHeatmapControllerTest extends IntegrationTests {
+
+    @Autowired
+    private CompanyRepository companyRepository;
+
+    @Autowired
+    private LeaveTypeRepository leaveTypeRepository;
+
+    @Autowired
+    private LeaveRepository leaveRepository;
+
+    @Autowired
+    private UserService userService;
+
+    private Company company;
+
+    private UserAccount userAccount;
+
+    private String password;
+
+    @Before
+    public void setUp() throws Exception {
+        userAccount = Factory.userAccount();
+        password = userAccount.getPassword();
+        userService.register(userAccount);
+
+        company = companyRepository.save(Factory.company());
+        companyRepository.addEmployee(company, userAccount, Role.Admin);
+    }
+
+    @Test
+    public void get() throws Exception {
+        LeaveType leaveType = leaveTypeRepository.save(LeaveType.newBuilder().company(company).name("Holiday").build());
+        leaveRepository.save(Factory.leave(userAccount, userAccount, leaveType, LocalDate.of(2017, 4, 25), LocalDate.of(2017, 5, 1)));
+
+        String url = String.format("/v1/company/%s/absence-heatmap?from=2017-05-01&to=2017-05-02", company.getUid());
+        ResponseEntity<List> response = get(url, List.class, userAccount.getEmail(), password);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        List<LinkedHashMap> days = response.getBody();
+        assertThat(days).hasSize(2);
+        assertThat(days.get(0).get("date")).isEqualTo("2017-05-01");
+        assertThat(days.get(0).get("approved")).isEqualTo(1);
+        assertThat(days.get(1).get("approved")).isEqualTo(0);
+    }
+
+    @Test
+    public void canNotGetHeatmapOfAnotherCompany() throws Exception {
+        Company anotherCompany = companyRepository.save(Factory.company());
+
+        String url = String.format("/v1/company/%s/absence-heatmap?from=2017-05-01&to=2017-05-02", anotherCompany.getUid());
+        ResponseEntity<String> response = get(url, String.class, userAccount.getEmail(), password);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
+}
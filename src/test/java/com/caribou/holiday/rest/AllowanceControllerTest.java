@@ -0,0 +1,72 @@
+package com.caribou.holiday.rest;
+
+import com.caribou.Factory;
+import com.caribou.IntegrationTests;
+import com.caribou.auth.domain.UserAccount;
+import com.caribou.auth.service.UserService;
+import com.caribou.company.domain.Company;
+import com.caribou.company.domain.CompanyEmployee;
+import com.caribou.company.domain.Role;
+import com.caribou.company.repository.CompanyRepository;
+import com.caribou.holiday.service.AllowanceLedger;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.sql.Date;
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+public class AllowanceControllerTest extends IntegrationTests {
+
+    @Autowired
+    private CompanyRepository companyRepository;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private AllowanceLedger allowanceLedger;
+
+    private Company company;
+
+    private UserAccount userAccount;
+
+    private String password;
+
+    @Before
+    public void setUp() throws Exception {
+        userAccount = Factory.userAccount();
+        password = userAccount.getPassword();
+        userService.register(userAccount);
+
+        company = companyRepository.save(Factory.company());
+    }
+
+    @Test
+    public void recompute() throws Exception {
+        companyRepository.addEmployee(company, userAccount, Role.Admin);
+        CompanyEmployee employee = companyRepository.findEmployeeByUserAccount(userAccount).get();
+        companyRepository.updateEmploymentStart(employee.getUid(), Date.valueOf(LocalDate.now().minusYears(1)));
+
+        String url = String.format("/v1/company/%s/allowances/recompute", company.getUid());
+        ResponseEntity<String> response = post(url, null, String.class, userAccount.getEmail(), password);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NO_CONTENT);
+        assertThat(allowanceLedger.balance(employee, LocalDate.now().getYear())).isEqualByComparingTo(company.getDefaultDaysOff());
+    }
+
+    @Test
+    public void viewerCanNotRecompute() throws Exception {
+        companyRepository.addEmployee(company, userAccount, Role.Viewer);
+
+        String url = String.format("/v1/company/%s/allowances/recompute", company.getUid());
+        ResponseEntity<String> response = post(url, null, String.class, userAccount.getEmail(), password);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.FORBIDDEN);
+    }
+
+}
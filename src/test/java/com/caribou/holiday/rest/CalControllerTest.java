@@ -5,18 +5,30 @@ import com.caribou.IntegrationTests;
 import com.caribou.auth.domain.UserAccount;
 import com.caribou.auth.repository.UserRepository;
 import com.caribou.company.domain.Company;
+import com.caribou.company.domain.Department;
+import com.caribou.company.domain.Role;
 import com.caribou.company.repository.CompanyRepository;
+import com.caribou.company.repository.DepartmentRepository;
+import com.caribou.holiday.domain.Leave;
 import com.caribou.holiday.domain.LeaveType;
 import com.caribou.holiday.repository.LeaveRepository;
 import com.caribou.holiday.repository.LeaveTypeRepository;
+import com.caribou.holiday.service.ICalService;
 import org.junit.Before;
 import org.junit.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.StreamUtils;
 
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.util.UUID;
+import java.util.zip.GZIPInputStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -35,11 +47,19 @@ public class CalControllerTest extends IntegrationTests {
     @Autowired
     private LeaveTypeRepository leaveTypeRepository;
 
+    @Autowired
+    private DepartmentRepository departmentRepository;
+
+    @Autowired
+    private ICalService iCalService;
+
     private Company company = Factory.company();
 
     private LeaveType leaveType = LeaveType.newBuilder().company(company).name("Holiday").build();
     private UserAccount approver;
 
+    private LocalDate today = LocalDate.now();
+
     @Before
     public void setUp() throws Exception {
         companyRepository.save(company);
@@ -75,7 +95,7 @@ public class CalControllerTest extends IntegrationTests {
 
         ResponseEntity<String> response = get("/cal/" + user.getUid().toString(), String.class);
         assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
-        assertThat(response.getBody()).contains("VCALENDAR");
+        assertThat(response.getBody()).startsWith("BEGIN:VCALENDAR\r\n").endsWith("END:VCALENDAR\r\n");
     }
 
     @Test
@@ -89,4 +109,151 @@ public class CalControllerTest extends IntegrationTests {
         assertThat(response.getHeaders().get("Content-Disposition").get(0)).startsWith("attachment;filename=").endsWith(".ics");
     }
 
+    @Test
+    public void notModifiedForCurrentETag() throws Exception {
+        UserAccount user = userRepository.save(Factory.userAccount());
+        leaveRepository.save(Factory.leave(user, approver, leaveType, LocalDate.of(2017, 4, 25), LocalDate.of(2017, 5, 14)));
+
+        ResponseEntity<String> response = get("/cal/" + user.getUid().toString(), String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        String eTag = response.getHeaders().getETag();
+        assertThat(eTag).isNotEmpty();
+        assertThat(response.getHeaders().getLastModified()).isPositive();
+
+        ResponseEntity<String> notModified = getIfNoneMatch("/cal/" + user.getUid().toString(), eTag);
+        assertThat(notModified.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(notModified.getBody()).isNull();
+    }
+
+    @Test
+    public void modifiedWhenLeaveIsAdded() throws Exception {
+        UserAccount user = userRepository.save(Factory.userAccount());
+        leaveRepository.save(Factory.leave(user, approver, leaveType, LocalDate.of(2017, 4, 25), LocalDate.of(2017, 5, 14)));
+        String eTag = get("/cal/" + user.getUid().toString(), String.class).getHeaders().getETag();
+
+        leaveRepository.save(Factory.leave(user, approver, leaveType, LocalDate.of(2017, 6, 1), LocalDate.of(2017, 6, 2)));
+
+        ResponseEntity<String> response = getIfNoneMatch("/cal/" + user.getUid().toString(), eTag);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getHeaders().getETag()).isNotEqualTo(eTag);
+    }
+
+    @Test
+    public void companyFeedHasLeavesOfAllEmployees() throws Exception {
+        UserAccount user = userRepository.save(Factory.userAccount());
+        UserAccount anotherUser = userRepository.save(Factory.userAccount());
+        companyRepository.addEmployee(company, user, Role.Viewer);
+        companyRepository.addEmployee(company, anotherUser, Role.Viewer);
+        Leave leave = leaveRepository.save(Factory.leave(user, approver, leaveType, today.minusDays(5), today.plusDays(14)));
+        Leave anotherLeave = leaveRepository.save(Factory.leave(anotherUser, approver, leaveType, today.plusDays(2), today.plusDays(3)));
+        Leave outsider = leaveRepository.save(Factory.leave(approver, user, leaveType, today.plusDays(2), today.plusDays(3)));
+
+        ResponseEntity<String> response = get(companyFeed(), String.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getHeaders().get("Content-Type").get(0)).isEqualTo("text/calendar");
+        assertThat(response.getBody())
+                .startsWith("BEGIN:VCALENDAR")
+                .endsWith("END:VCALENDAR\r\n")
+                .contains("UID:" + leave.getUid())
+                .contains("UID:" + anotherLeave.getUid())
+                .doesNotContain("UID:" + outsider.getUid());
+    }
+
+    @Test
+    public void companyFeedLeavesOutLeavesEndedOverYearAgo() throws Exception {
+        UserAccount user = userRepository.save(Factory.userAccount());
+        companyRepository.addEmployee(company, user, Role.Viewer);
+        Leave old = leaveRepository.save(Factory.leave(user, approver, leaveType, today.minusYears(2), today.minusYears(2).plusDays(1)));
+        Leave recent = leaveRepository.save(Factory.leave(user, approver, leaveType, today.minusMonths(6), today.minusMonths(6).plusDays(1)));
+
+        ResponseEntity<String> response = get(companyFeed(), String.class);
+
+        assertThat(response.getBody())
+                .contains("UID:" + recent.getUid())
+                .doesNotContain("UID:" + old.getUid());
+    }
+
+    @Test
+    public void companyFeedNotModifiedForCurrentETag() throws Exception {
+        UserAccount user = userRepository.save(Factory.userAccount());
+        companyRepository.addEmployee(company, user, Role.Viewer);
+        leaveRepository.save(Factory.leave(user, approver, leaveType, today, today.plusDays(1)));
+        String eTag = get(companyFeed(), String.class).getHeaders().getETag();
+
+        assertThat(getIfNoneMatch(companyFeed(), eTag).getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+
+        leaveRepository.save(Factory.leave(user, approver, leaveType, today.plusDays(7), today.plusDays(8)));
+
+        assertThat(getIfNoneMatch(companyFeed(), eTag).getStatusCode()).isEqualTo(HttpStatus.OK);
+    }
+
+    @Test
+    public void departmentFeedHasLeavesOfDepartmentEmployees() throws Exception {
+        UserAccount user = userRepository.save(Factory.userAccount());
+        UserAccount anotherUser = userRepository.save(Factory.userAccount());
+        Department department = departmentRepository.save(Factory.department(company, approver));
+        companyRepository.addEmployee(company, department, user, Role.Viewer);
+        companyRepository.addEmployee(company, anotherUser, Role.Viewer);
+        Leave leave = leaveRepository.save(Factory.leave(user, approver, leaveType, today.minusDays(5), today.plusDays(14)));
+        Leave anotherLeave = leaveRepository.save(Factory.leave(anotherUser, approver, leaveType, today.plusDays(2), today.plusDays(3)));
+
+        ResponseEntity<String> response = get(departmentFeed(department), String.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody())
+                .contains("UID:" + leave.getUid())
+                .doesNotContain("UID:" + anotherLeave.getUid());
+    }
+
+    @Test
+    public void notFoundForNonExistingCompanyOrDepartment() throws Exception {
+        UUID uid = UUID.randomUUID();
+        assertThat(get("/cal/company/" + uid + "?token=" + iCalService.getFeedToken("company", uid), String.class).getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+        assertThat(get("/cal/department/" + uid + "?token=" + iCalService.getFeedToken("department", uid), String.class).getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+        assertThat(get("/cal/company/3132", String.class).getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
+    @Test
+    public void notFoundWithoutFeedToken() throws Exception {
+        Department department = departmentRepository.save(Factory.department(company, approver));
+
+        assertThat(get("/cal/company/" + company.getUid(), String.class).getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+        assertThat(get("/cal/company/" + company.getUid() + "?token=" + iCalService.getFeedToken("department", company.getUid()), String.class).getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+        assertThat(get("/cal/department/" + department.getUid() + "?token=" + iCalService.getFeedToken("company", company.getUid()), String.class).getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
+    @Test
+    public void companyFeedIsGzipped() throws Exception {
+        for (int i = 0; i < 20; i++) {
+            UserAccount user = userRepository.save(Factory.userAccount());
+            companyRepository.addEmployee(company, user, Role.Viewer);
+            leaveRepository.save(Factory.leave(user, approver, leaveType, today, today.plusDays(14)));
+        }
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("Accept-Encoding", "gzip");
+
+        ResponseEntity<byte[]> response = testRestTemplate().exchange(path(companyFeed()), HttpMethod.GET, new HttpEntity<>(headers), byte[].class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getHeaders().get("Content-Encoding")).containsExactly("gzip");
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(response.getBody()))) {
+            assertThat(StreamUtils.copyToString(in, StandardCharsets.UTF_8)).startsWith("BEGIN:VCALENDAR").endsWith("END:VCALENDAR\r\n");
+        }
+    }
+
+    private String companyFeed() {
+        return "/cal/company/" + company.getUid() + "?token=" + iCalService.getFeedToken("company", company.getUid());
+    }
+
+    private String departmentFeed(Department department) {
+        return "/cal/department/" + department.getUid() + "?token=" + iCalService.getFeedToken("department", department.getUid());
+    }
+
+    private ResponseEntity<String> getIfNoneMatch(String path, String eTag) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setIfNoneMatch(eTag);
+        return testRestTemplate().exchange(path(path), HttpMethod.GET, new HttpEntity<>(headers), String.class);
+    }
+
 }
@@ -11,10 +11,14 @@ import com.caribou.company.domain.Role;
 import com.caribou.company.repository.CompanyRepository;
 import com.caribou.company.repository.DepartmentRepository;
 import com.caribou.company.service.CompanyService;
+import com.caribou.holiday.domain.Leave;
 import com.caribou.holiday.domain.LeaveType;
 import com.caribou.holiday.repository.LeaveRepository;
 import com.caribou.holiday.repository.LeaveTypeRepository;
+import com.caribou.holiday.rest.dto.FeedDto;
+import com.caribou.holiday.rest.dto.LeaveDecisionDto;
 import com.caribou.holiday.rest.dto.ListDto;
+import com.caribou.holiday.service.ICalService;
 import com.caribou.holiday.service.LeaveService;
 import org.junit.Before;
 import org.junit.Test;
@@ -23,6 +27,8 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 
 import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Optional;
@@ -62,6 +68,9 @@ public class CompanyLeaveControllerTest extends IntegrationTests {
 
     @Autowired
     private UserService userService;
+
+    @Autowired
+    private ICalService iCalService;
     private UserAccount approver;
 
     @Before
@@ -91,7 +100,8 @@ public class CompanyLeaveControllerTest extends IntegrationTests {
         assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
 
         ListDto body = response.getBody();
-        assertThat(body.getTotal()).isEqualTo(1);
+        assertThat(body.getItems()).hasSize(1);
+        assertThat(body.getTotal()).isNull();
 
         LinkedHashMap employeeLeavesDto = (LinkedHashMap) body.getItems().get(0);
         LinkedHashMap employeeDto = (LinkedHashMap) employeeLeavesDto.get("employee");
@@ -197,7 +207,8 @@ public class CompanyLeaveControllerTest extends IntegrationTests {
         assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
 
         ListDto body = response.getBody();
-        assertThat(body.getTotal()).isEqualTo(1);
+        assertThat(body.getItems()).hasSize(1);
+        assertThat(body.getTotal()).isNull();
     }
 
     @Test
@@ -251,6 +262,98 @@ public class CompanyLeaveControllerTest extends IntegrationTests {
         assertThat(findUser(body.getItems(), me).get("remaining")).isNotNull();
     }
 
+    @Test
+    public void declineLeavesAtOnce() throws Exception {
+        UserAccount employee = userRepository.save(Factory.userAccount());
+        companyRepository.addEmployee(company, employee, Role.Viewer);
+        Leave first = leaveRepository.save(pending(Factory.leave(employee, userAccount, leaveType, LocalDate.of(2017, 5, 2), LocalDate.of(2017, 5, 3))));
+        Leave second = leaveRepository.save(pending(Factory.leave(employee, userAccount, leaveType, LocalDate.of(2017, 6, 2), LocalDate.of(2017, 6, 3))));
+
+        String url = String.format("/v1/company/%s/leaves/decline", company.getUid());
+        ResponseEntity<String> response = post(
+                url,
+                LeaveDecisionDto.builder().leaves(Arrays.asList(first.getUid(), second.getUid())).build(),
+                String.class,
+                userAccount.getEmail(),
+                password
+        );
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NO_CONTENT);
+        assertThat(leaveRepository.findOne(first.getUid()).getStatus()).isEqualTo(Leave.Status.DECLINED);
+        assertThat(leaveRepository.findOne(second.getUid()).getStatus()).isEqualTo(Leave.Status.DECLINED);
+    }
+
+    @Test
+    public void getListRunsBoundedNumberOfQueries() throws Exception {
+        Department department = departmentRepository.save(Factory.department(company, approver));
+        for (int i = 0; i < 20; i++) {
+            UserAccount employee = userRepository.save(Factory.userAccount());
+            companyRepository.addEmployee(company, department, employee, approver, Role.Viewer);
+            leaveRepository.save(Factory.leave(employee, approver, leaveType, LocalDate.of(2017, 5, 2), LocalDate.of(2017, 5, 3)));
+        }
+        String url = String.format("/v1/company/%s/leaves?from=2017-05-01&to=2017-05-31&limit=50", company.getUid());
+        get(url, ListDto.class, userAccount.getEmail(), password);
+
+        ResponseEntity<ListDto> response = assertMaxQueries(3, () -> get(url, ListDto.class, userAccount.getEmail(), password));
+
+        assertThat(response.getBody().getItems()).hasSize(21);
+    }
+
+    @Test
+    public void approveLeavesOfAnotherApproverIsNotFound() throws Exception {
+        Leave leave = leaveRepository.save(pending(Factory.leave(userAccount, approver, leaveType, LocalDate.of(2017, 5, 2), LocalDate.of(2017, 5, 3))));
+
+        String url = String.format("/v1/company/%s/leaves/approve", company.getUid());
+        ResponseEntity<String> response = post(
+                url,
+                LeaveDecisionDto.builder().leaves(Collections.singletonList(leave.getUid())).build(),
+                String.class,
+                userAccount.getEmail(),
+                password
+        );
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+        assertThat(leaveRepository.findOne(leave.getUid()).getStatus()).isEqualTo(Leave.Status.PENDING);
+    }
+
+    @Test
+    public void exportLeavesOfYear() throws Exception {
+        leaveRepository.save(Factory.leave(userAccount, approver, leaveType, LocalDate.of(2016, 12, 28), LocalDate.of(2017, 1, 3)));
+        leaveRepository.save(Factory.leave(userAccount, approver, leaveType, LocalDate.of(2017, 5, 2), LocalDate.of(2017, 5, 3)));
+        leaveRepository.save(Factory.leave(userAccount, approver, leaveType, LocalDate.of(2018, 1, 1), LocalDate.of(2018, 1, 2)));
+
+        String url = String.format("/v1/company/%s/leaves/export?year=2017", company.getUid());
+        ResponseEntity<String> response = get(url, String.class, userAccount.getEmail(), password);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getHeaders().getContentType().toString()).startsWith("text/csv");
+        String[] lines = response.getBody().split("\n");
+        assertThat(lines).hasSize(3);
+        assertThat(lines[0]).isEqualTo("\"first name\",\"last name\",email,department,type,starting,ending,days,status");
+        assertThat(lines[1]).contains(userAccount.getEmail(), "Holiday", "2016-12-28", "2017-01-03", "APPROVED");
+        assertThat(lines[2]).contains("2017-05-02", "2017-05-03");
+    }
+
+    @Test
+    public void feedLinkHasToken() throws Exception {
+        Department department = departmentRepository.save(Factory.department(company, userAccount));
+        Department anotherCompanyDepartment = departmentRepository.save(Factory.department(companyRepository.save(Factory.company()), userAccount));
+
+        ResponseEntity<FeedDto> companyFeed = get(String.format("/v1/company/%s/leaves/feed", company.getUid()), FeedDto.class, userAccount.getEmail(), password);
+        ResponseEntity<FeedDto> departmentFeed = get(String.format("/v1/company/%s/leaves/feed?department=%s", company.getUid(), department.getUid()), FeedDto.class, userAccount.getEmail(), password);
+        ResponseEntity<String> foreignFeed = get(String.format("/v1/company/%s/leaves/feed?department=%s", company.getUid(), anotherCompanyDepartment.getUid()), String.class, userAccount.getEmail(), password);
+
+        assertThat(companyFeed.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(companyFeed.getBody().getHref()).contains("/cal/company/" + company.getUid() + "?token=" + iCalService.getFeedToken("company", company.getUid()));
+        assertThat(departmentFeed.getBody().getHref()).contains("/cal/department/" + department.getUid() + "?token=" + iCalService.getFeedToken("department", department.getUid()));
+        assertThat(foreignFeed.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
+    private Leave pending(Leave leave) {
+        leave.setStatus(Leave.Status.PENDING);
+        return leave;
+    }
+
     @Test
     public void leaveCanBeConfirmedOnlyByBoss() throws Exception {
 
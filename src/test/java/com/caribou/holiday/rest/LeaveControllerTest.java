@@ -59,6 +59,10 @@ public class LeaveControllerTest extends IntegrationTests {
 
     private String password;
 
+    private UserAccount approver;
+
+    private Department department;
+
     @Before
     public void before() throws Exception {
         userAccount = Factory.userAccount();
@@ -68,8 +72,8 @@ public class LeaveControllerTest extends IntegrationTests {
         companyRepository.save(company);
         leaveTypeRepository.save(leaveType);
 
-        UserAccount approver = userService.create(Factory.userAccount());
-        Department department = departmentRepository.save(Factory.department(company, approver));
+        approver = userService.create(Factory.userAccount());
+        department = departmentRepository.save(Factory.department(company, approver));
         companyRepository.addEmployee(company, department, userAccount, approver, Role.Viewer);
     }
 
@@ -103,6 +107,34 @@ public class LeaveControllerTest extends IntegrationTests {
         assertThat(leave.getUserAccount()).isEqualTo(userAccount);
     }
 
+    @Test
+    public void createUnderMinimumStaffingIsConflict() throws Exception {
+        UserAccount colleague = userService.create(Factory.userAccount());
+        companyRepository.addEmployee(company, department, colleague, approver, Role.Viewer);
+        leaveRepository.save(Factory.leave(colleague, approver, leaveType, LocalDate.of(2017, 1, 3), LocalDate.of(2017, 1, 4)));
+        department.setMinimumStaffing(1);
+        departmentRepository.save(department);
+
+        LeaveDto leaveDto = LeaveDto.builder()
+                .starting(LocalDate.of(2017, 1, 1))
+                .ending(LocalDate.of(2017, 1, 8))
+                .startingAt(LeaveDto.AMPM.AM)
+                .endingAt(LeaveDto.AMPM.PM)
+                .build();
+        String url = String.format("/v1/users/%s/leaves", userAccount.getUid());
+        ResponseEntity<HashMap> response = post(
+                url,
+                leaveDto,
+                HashMap.class,
+                userAccount.getEmail(),
+                password
+        );
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+        assertThat((HashMap) response.getBody().get("errors")).containsKey("starting");
+        assertThat(leaveRepository.findByUserAccount(userAccount)).isEmpty();
+    }
+
     @Test
     public void returns404ForNonExistingUser() throws Exception {
         LocalDate now = LocalDate.of(2017, 1, 1);
@@ -313,4 +345,36 @@ public class LeaveControllerTest extends IntegrationTests {
         assertThat(response.getStatusCode()).isEqualByComparingTo(HttpStatus.NOT_FOUND);
         assertThat(leaveRepository.findOne(leave.getUid()).getStatus()).isEqualByComparingTo(Leave.Status.PENDING);
     }
+
+    @Test
+    public void approveAlreadyApprovedLeaveReturnsConflict() throws JsonProcessingException {
+        UserAccount approver = Factory.userAccount();
+        String approverPassword = approver.getPassword();
+        userService.create(approver);
+        companyRepository.save(company);
+        companyRepository.addEmployee(company, approver, Role.Viewer);
+
+        LocalDateTime now = LocalDateTime.of(2017, 1, 1, 0, 0, 0);
+        Leave leave = Leave.builder()
+                .userAccount(userAccount)
+                .approver(approver)
+                .reason("Holiday")
+                .starting(Timestamp.valueOf(now))
+                .ending(Timestamp.valueOf(now.plus(1, ChronoUnit.DAYS)))
+                .numberOfDays(BigDecimal.ONE)
+                .status(Leave.Status.APPROVED)
+                .leaveType(leaveType).build();
+        leaveRepository.save(leave);
+
+        String url = String.format("/v1/users/%s/leaves/%s/approve", userAccount.getUid(), leave.getUid());
+        ResponseEntity<HashMap> response = post(
+                url,
+                null,
+                HashMap.class,
+                approver.getEmail(),
+                approverPassword
+        );
+
+        assertThat(response.getStatusCode()).isEqualByComparingTo(HttpStatus.CONFLICT);
+    }
 }
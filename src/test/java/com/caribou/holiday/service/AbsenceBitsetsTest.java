@@ -0,0 +1,144 @@
+package com.caribou.holiday.service;
+
+import com.caribou.Factory;
+import com.caribou.IntegrationTests;
+import com.caribou.auth.domain.UserAccount;
+import com.caribou.auth.repository.UserRepository;
+import com.caribou.company.domain.Company;
+import com.caribou.company.domain.Department;
+import com.caribou.company.domain.Role;
+import com.caribou.company.repository.CompanyRepository;
+import com.caribou.company.repository.DepartmentRepository;
+import com.caribou.holiday.domain.Leave;
+import com.caribou.holiday.domain.LeaveType;
+import com.caribou.holiday.repository.LeaveRepository;
+import com.caribou.holiday.repository.LeaveTypeRepository;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AbsenceBitsetsTest extends IntegrationTests {
+
+    @Autowired
+    private AbsenceBitsets absenceBitsets;
+
+    @Autowired
+    private CompanyRepository companyRepository;
+
+    @Autowired
+    private DepartmentRepository departmentRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private LeaveRepository leaveRepository;
+
+    @Autowired
+    private LeaveTypeRepository leaveTypeRepository;
+
+    private Company company;
+
+    private Department department;
+
+    private LeaveType leaveType;
+
+    private UserAccount boss;
+
+    private UserAccount first;
+
+    private UserAccount second;
+
+    @Before
+    public void setUp() throws Exception {
+        company = companyRepository.save(Factory.company());
+        leaveType = leaveTypeRepository.save(LeaveType.newBuilder().company(company).name("Holiday").build());
+        boss = userRepository.save(Factory.userAccount());
+        department = departmentRepository.save(Factory.department(company, boss));
+        first = userRepository.save(Factory.userAccount());
+        second = userRepository.save(Factory.userAccount());
+        companyRepository.addEmployee(company, department, first, boss, Role.Viewer);
+        companyRepository.addEmployee(company, department, second, boss, Role.Viewer);
+    }
+
+    @Test
+    public void countOffCountsApprovedAndPending() throws Exception {
+        leaveRepository.save(Factory.leave(first, boss, leaveType, LocalDate.of(2017, 3, 1), LocalDate.of(2017, 3, 3)));
+        Leave pending = Factory.leave(second, boss, leaveType, LocalDate.of(2017, 3, 3), LocalDate.of(2017, 3, 4));
+        pending.setStatus(Leave.Status.PENDING);
+        leaveRepository.save(pending);
+
+        assertThat(absenceBitsets.countOff(company.getUid(), department.getUid(), LocalDate.of(2017, 2, 28))).isEqualTo(0);
+        assertThat(absenceBitsets.countOff(company.getUid(), department.getUid(), LocalDate.of(2017, 3, 1))).isEqualTo(1);
+        assertThat(absenceBitsets.countOff(company.getUid(), department.getUid(), LocalDate.of(2017, 3, 3))).isEqualTo(2);
+    }
+
+    @Test
+    public void countOverlappingAcrossNewYear() throws Exception {
+        leaveRepository.save(Factory.leave(first, boss, leaveType, LocalDate.of(2016, 12, 30), LocalDate.of(2017, 1, 2)));
+        leaveRepository.save(Factory.leave(second, boss, leaveType, LocalDate.of(2016, 12, 31), LocalDate.of(2016, 12, 31)));
+
+        assertThat(absenceBitsets.countOverlapping(Arrays.asList(first.getUid(), second.getUid()), LocalDate.of(2016, 12, 31), LocalDate.of(2017, 1, 1))).isEqualTo(2);
+        assertThat(absenceBitsets.countOverlapping(Arrays.asList(first.getUid(), second.getUid()), LocalDate.of(2017, 1, 2), LocalDate.of(2017, 1, 10))).isEqualTo(1);
+    }
+
+    @Test
+    public void maxApprovedOffIsMostMembersOnOneDay() throws Exception {
+        UserAccount third = userRepository.save(Factory.userAccount());
+        companyRepository.addEmployee(company, department, third, boss, Role.Viewer);
+        leaveRepository.save(Factory.leave(first, boss, leaveType, LocalDate.of(2017, 3, 1), LocalDate.of(2017, 3, 10)));
+        leaveRepository.save(Factory.leave(second, boss, leaveType, LocalDate.of(2017, 3, 5), LocalDate.of(2017, 3, 6)));
+        leaveRepository.save(Factory.leave(third, boss, leaveType, LocalDate.of(2017, 3, 6), LocalDate.of(2017, 3, 8)));
+        Leave pending = Factory.leave(boss, boss, leaveType, LocalDate.of(2017, 3, 6), LocalDate.of(2017, 3, 6));
+        pending.setStatus(Leave.Status.PENDING);
+        leaveRepository.save(pending);
+        List<UUID> members = Arrays.asList(first.getUid(), second.getUid(), third.getUid(), boss.getUid());
+
+        assertThat(absenceBitsets.maxApprovedOff(members, LocalDate.of(2017, 2, 1), LocalDate.of(2017, 3, 31))).isEqualTo(3);
+        assertThat(absenceBitsets.maxApprovedOff(members, LocalDate.of(2017, 3, 7), LocalDate.of(2017, 3, 31))).isEqualTo(2);
+        assertThat(absenceBitsets.maxApprovedOff(members, LocalDate.of(2017, 3, 9), LocalDate.of(2018, 1, 31))).isEqualTo(1);
+        assertThat(absenceBitsets.maxApprovedOff(members, LocalDate.of(2017, 4, 1), LocalDate.of(2017, 4, 30))).isEqualTo(0);
+    }
+
+    @Test
+    public void maxApprovedOffSeesLeavesSavedByAnotherNode() throws Exception {
+        // not a bean, so it doesn't hear about leaves saved here just like bitsets of another node
+        AbsenceBitsets bitsets = new AbsenceBitsets(leaveRepository, companyRepository, 100, 60000);
+        List<UUID> members = Arrays.asList(first.getUid(), second.getUid());
+        assertThat(bitsets.maxApprovedOff(members, LocalDate.of(2017, 3, 1), LocalDate.of(2017, 3, 31))).isEqualTo(0);
+
+        leaveRepository.save(Factory.leave(first, boss, leaveType, LocalDate.of(2017, 3, 1), LocalDate.of(2017, 3, 3)));
+
+        assertThat(bitsets.maxApprovedOff(members, LocalDate.of(2017, 3, 1), LocalDate.of(2017, 3, 31))).isEqualTo(1);
+    }
+
+    @Test
+    public void keepsLeastRecentlyUsedMembersOnly() throws Exception {
+        AbsenceBitsets bitsets = new AbsenceBitsets(leaveRepository, companyRepository, 1, 60000);
+        bitsets.countOverlapping(Collections.singletonList(first.getUid()), LocalDate.of(2017, 3, 1), LocalDate.of(2017, 3, 31));
+        bitsets.countOverlapping(Collections.singletonList(second.getUid()), LocalDate.of(2017, 3, 1), LocalDate.of(2017, 3, 31));
+
+        assertThat(bitsets.size()).isEqualTo(1);
+        assertThat(countStatements(() -> bitsets.countOverlapping(Collections.singletonList(second.getUid()), LocalDate.of(2017, 3, 1), LocalDate.of(2017, 3, 31)))).isZero();
+    }
+
+    @Test
+    public void declinedLeaveIsNotCountedAfterChange() throws Exception {
+        Leave leave = leaveRepository.save(Factory.leave(first, boss, leaveType, LocalDate.of(2017, 12, 31), LocalDate.of(2017, 12, 31)));
+        assertThat(absenceBitsets.countOff(company.getUid(), department.getUid(), LocalDate.of(2017, 12, 31))).isEqualTo(1);
+
+        leave.setStatus(Leave.Status.DECLINED);
+        leaveRepository.save(leave);
+
+        assertThat(absenceBitsets.countOff(company.getUid(), department.getUid(), LocalDate.of(2017, 12, 31))).isEqualTo(0);
+    }
+
+}
@@ -0,0 +1,105 @@
+package com.caribou.holiday.service;
+
+import com.caribou.Factory;
+import com.caribou.IntegrationTests;
+import com.caribou.auth.domain.UserAccount;
+import com.caribou.auth.repository.UserRepository;
+import com.caribou.company.domain.Company;
+import com.caribou.company.domain.Department;
+import com.caribou.company.domain.Role;
+import com.caribou.company.repository.CompanyRepository;
+import com.caribou.company.repository.DepartmentRepository;
+import com.caribou.holiday.domain.Leave;
+import com.caribou.holiday.domain.LeaveType;
+import com.caribou.holiday.repository.LeaveRepository;
+import com.caribou.holiday.repository.LeaveTypeRepository;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class AbsenceHeatmapServiceTest extends IntegrationTests {
+
+    @Autowired
+    private AbsenceHeatmapService absenceHeatmapService;
+
+    @Autowired
+    private CompanyRepository companyRepository;
+
+    @Autowired
+    private DepartmentRepository departmentRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private LeaveRepository leaveRepository;
+
+    @Autowired
+    private LeaveTypeRepository leaveTypeRepository;
+
+    private Company company;
+
+    private LeaveType leaveType;
+
+    private UserAccount boss;
+
+    private UserAccount employee;
+
+    private Department department;
+
+    @Before
+    public void setUp() throws Exception {
+        company = companyRepository.save(Factory.company());
+        leaveType = leaveTypeRepository.save(LeaveType.newBuilder().company(company).name("Holiday").build());
+        boss = userRepository.save(Factory.userAccount());
+        companyRepository.addEmployee(company, boss, Role.Admin);
+        department = departmentRepository.save(Factory.department(company, boss));
+        employee = userRepository.save(Factory.userAccount());
+        companyRepository.addEmployee(company, department, employee, boss, Role.Viewer);
+    }
+
+    @Test
+    public void countsApprovedAndPendingLeavesPerDay() throws Exception {
+        leaveRepository.save(Factory.leave(boss, employee, leaveType, LocalDate.of(2017, 4, 25), LocalDate.of(2017, 5, 2)));
+        Leave pending = Factory.leave(employee, boss, leaveType, LocalDate.of(2017, 5, 2), LocalDate.of(2017, 5, 3));
+        pending.setStatus(Leave.Status.PENDING);
+        leaveRepository.save(pending);
+        Leave declined = Factory.leave(employee, boss, leaveType, LocalDate.of(2017, 5, 1), LocalDate.of(2017, 5, 4));
+        declined.setStatus(Leave.Status.DECLINED);
+        leaveRepository.save(declined);
+
+        List<AbsenceHeatmapService.Day> heatmap = absenceHeatmapService.heatmap(company.getUid(), null, LocalDate.of(2017, 5, 1), LocalDate.of(2017, 5, 4));
+
+        assertThat(heatmap).containsExactly(
+                new AbsenceHeatmapService.Day(LocalDate.of(2017, 5, 1), 0, 1),
+                new AbsenceHeatmapService.Day(LocalDate.of(2017, 5, 2), 1, 1),
+                new AbsenceHeatmapService.Day(LocalDate.of(2017, 5, 3), 1, 0),
+                new AbsenceHeatmapService.Day(LocalDate.of(2017, 5, 4), 0, 0)
+        );
+    }
+
+    @Test
+    public void countsOnlyMembersOfDepartment() throws Exception {
+        leaveRepository.save(Factory.leave(boss, employee, leaveType, LocalDate.of(2017, 5, 1), LocalDate.of(2017, 5, 1)));
+        leaveRepository.save(Factory.leave(employee, boss, leaveType, LocalDate.of(2017, 5, 2), LocalDate.of(2017, 5, 2)));
+
+        List<AbsenceHeatmapService.Day> heatmap = absenceHeatmapService.heatmap(company.getUid(), department.getUid(), LocalDate.of(2017, 5, 1), LocalDate.of(2017, 5, 2));
+
+        assertThat(heatmap).extracting(AbsenceHeatmapService.Day::getApproved).containsExactly(0, 1);
+    }
+
+    @Test
+    public void rangeLongerThanYearIsInvalid() throws Exception {
+        assertThatThrownBy(() -> absenceHeatmapService.heatmap(company.getUid(), null, LocalDate.of(2017, 1, 1), LocalDate.of(2018, 1, 2)))
+                .isInstanceOf(InvalidDateRange.class);
+        assertThatThrownBy(() -> absenceHeatmapService.heatmap(company.getUid(), null, LocalDate.of(2017, 1, 2), LocalDate.of(2017, 1, 1)))
+                .isInstanceOf(InvalidDateRange.class);
+    }
+
+}
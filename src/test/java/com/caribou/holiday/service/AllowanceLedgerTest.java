@@ -0,0 +1,199 @@
+package com.caribou.holiday.service;
+
+import com.caribou.Factory;
+import com.caribou.IntegrationTests;
+import com.caribou.auth.domain.UserAccount;
+import com.caribou.auth.repository.UserRepository;
+import com.caribou.company.domain.Company;
+import com.caribou.company.domain.CompanyEmployee;
+import com.caribou.company.domain.Role;
+import com.caribou.company.repository.CompanyRepository;
+import com.caribou.holiday.domain.Leave;
+import com.caribou.holiday.domain.LeaveType;
+import com.caribou.holiday.repository.LeaveRepository;
+import com.caribou.holiday.repository.LeaveTypeRepository;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+public class AllowanceLedgerTest extends IntegrationTests {
+
+    @Autowired
+    private AllowanceLedger allowanceLedger;
+
+    @Autowired
+    private CompanyRepository companyRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private LeaveRepository leaveRepository;
+
+    @Autowired
+    private LeaveTypeRepository leaveTypeRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Company company;
+
+    private CompanyEmployee employee;
+
+    private Leave leave;
+
+    @Before
+    public void setUp() throws Exception {
+        company = companyRepository.save(Factory.company());
+        employee = addEmployee();
+        LeaveType leaveType = leaveTypeRepository.save(LeaveType.newBuilder().company(company).name("Holiday").build());
+        UserAccount approver = userRepository.save(Factory.userAccount());
+        leave = Factory.leave(employee.getMember(), approver, leaveType, LocalDate.of(2017, 6, 1), LocalDate.of(2017, 6, 3));
+        leave.setNumberOfDays(BigDecimal.valueOf(2));
+        leave = leaveRepository.save(leave);
+    }
+
+    @Test
+    public void balanceIsSumOfEntriesOfTheYear() throws Exception {
+        allowanceLedger.grant(employee, 2017, BigDecimal.valueOf(20));
+        allowanceLedger.accrue(employee, 2017, BigDecimal.valueOf(1.5));
+        allowanceLedger.deduct(employee, 2017, leave);
+        allowanceLedger.grant(employee, 2018, BigDecimal.valueOf(25));
+
+        assertThat(allowanceLedger.balance(employee, 2017)).isEqualByComparingTo(BigDecimal.valueOf(19.5));
+        assertThat(allowanceLedger.balance(employee, 2018)).isEqualByComparingTo(BigDecimal.valueOf(25));
+        assertThat(allowanceLedger.balance(employee, 2019)).isEqualByComparingTo(BigDecimal.ZERO);
+    }
+
+    @Test
+    public void refundReturnsDeductedDays() throws Exception {
+        allowanceLedger.grant(employee, 2017, BigDecimal.TEN);
+        allowanceLedger.deduct(employee, 2017, leave);
+        assertThat(allowanceLedger.balance(employee, 2017)).isEqualByComparingTo(BigDecimal.valueOf(8));
+
+        allowanceLedger.refund(employee, 2017, leave);
+
+        assertThat(allowanceLedger.balance(employee, 2017)).isEqualByComparingTo(BigDecimal.TEN);
+    }
+
+    @Test
+    public void deductionOverOverdraftAppendsNothing() throws Exception {
+        allowanceLedger.grant(employee, 2017, BigDecimal.ONE);
+
+        assertThat(allowanceLedger.deduct(employee, 2017, leave, BigDecimal.ONE)).isPresent();
+        assertThat(allowanceLedger.deduct(employee, 2017, leave, BigDecimal.ONE)).isEmpty();
+
+        assertThat(allowanceLedger.balance(employee, 2017)).isEqualByComparingTo(BigDecimal.valueOf(-1));
+    }
+
+    @Test
+    public void balanceIsSnapshotPlusNewerEntries() throws Exception {
+        allowanceLedger.grant(employee, 2017, BigDecimal.valueOf(20));
+        allowanceLedger.deduct(employee, 2017, leave);
+        allowanceLedger.snapshot();
+
+        allowanceLedger.deduct(employee, 2017, leave);
+        allowanceLedger.snapshot();
+        allowanceLedger.accrue(employee, 2017, BigDecimal.ONE);
+
+        assertThat(allowanceLedger.balance(employee, 2017)).isEqualByComparingTo(BigDecimal.valueOf(17));
+    }
+
+    @Test
+    public void snapshotOfManyEmployeesRunsAsManyStatementsAsOfOne() throws Exception {
+        allowanceLedger.grant(employee, 2017, BigDecimal.TEN);
+        long statements = countStatements(() -> {
+            allowanceLedger.snapshot();
+            return null;
+        });
+
+        for (int i = 0; i < 10; i++) {
+            allowanceLedger.grant(addEmployee(), 2017, BigDecimal.ONE);
+        }
+        allowanceLedger.accrue(employee, 2017, BigDecimal.ONE);
+
+        assertThat(countStatements(() -> {
+            allowanceLedger.snapshot();
+            return null;
+        })).isEqualTo(statements);
+        assertThat(allowanceLedger.balance(employee, 2017)).isEqualByComparingTo(BigDecimal.valueOf(11));
+    }
+
+    @Test
+    public void entryCommittedAfterSnapshotIsNotLost() throws Exception {
+        allowanceLedger.grant(employee, 2017, BigDecimal.TEN);
+        CountDownLatch granted = new CountDownLatch(1);
+        CountDownLatch snapshotted = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> lateGrant = executor.submit(() -> new TransactionTemplate(transactionManager).execute(status -> {
+                allowanceLedger.grant(employee, 2017, BigDecimal.valueOf(5));
+                granted.countDown();
+                try {
+                    snapshotted.await();
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+                return null;
+            }));
+            granted.await();
+            allowanceLedger.snapshot();
+            snapshotted.countDown();
+            lateGrant.get();
+        } finally {
+            executor.shutdown();
+        }
+
+        assertThat(allowanceLedger.balance(employee, 2017)).isEqualByComparingTo(BigDecimal.valueOf(15));
+        allowanceLedger.snapshot();
+        assertThat(allowanceLedger.load(Collections.singletonList(employee.getUid()), 2017).get(employee.getUid())).isEqualByComparingTo(BigDecimal.valueOf(15));
+    }
+
+    @Test
+    public void balancesOfSeveralEmployees() throws Exception {
+        CompanyEmployee another = addEmployee();
+        CompanyEmployee withoutEntries = addEmployee();
+        allowanceLedger.grant(employee, 2017, BigDecimal.TEN);
+        allowanceLedger.grant(another, 2017, BigDecimal.ONE);
+        allowanceLedger.snapshot();
+
+        Map<UUID, BigDecimal> balances = allowanceLedger.balances(Arrays.asList(employee, another, withoutEntries), 2017);
+
+        assertThat(balances.get(employee.getUid())).isEqualByComparingTo(BigDecimal.TEN);
+        assertThat(balances.get(another.getUid())).isEqualByComparingTo(BigDecimal.ONE);
+        assertThat(balances.get(withoutEntries.getUid())).isEqualByComparingTo(BigDecimal.ZERO);
+    }
+
+    @Test
+    public void cachedBalanceIsEvictedByNewEntry() throws Exception {
+        allowanceLedger.grant(employee, 2017, BigDecimal.TEN);
+        assertThat(allowanceLedger.balance(employee, 2017)).isEqualByComparingTo(BigDecimal.TEN);
+
+        allowanceLedger.deduct(employee, 2017, leave);
+
+        assertThat(allowanceLedger.balance(employee, 2017)).isEqualByComparingTo(BigDecimal.valueOf(8));
+    }
+
+    private CompanyEmployee addEmployee() {
+        UserAccount userAccount = userRepository.save(Factory.userAccount());
+        companyRepository.addEmployee(company, userAccount, Role.Viewer);
+        return companyRepository.findEmployeeByUserAccount(userAccount).get();
+    }
+
+}
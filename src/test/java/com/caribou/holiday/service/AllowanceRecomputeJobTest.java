@@ -0,0 +1,131 @@
+package com.caribou.holiday.service;
+
+import com.caribou.Factory;
+import com.caribou.IntegrationTests;
+import com.caribou.auth.domain.UserAccount;
+import com.caribou.auth.repository.UserRepository;
+import com.caribou.company.domain.Company;
+import com.caribou.company.domain.CompanyEmployee;
+import com.caribou.company.domain.Department;
+import com.caribou.company.domain.Role;
+import com.caribou.company.repository.CompanyRepository;
+import com.caribou.company.repository.DepartmentRepository;
+import com.caribou.company.service.DepartmentService;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+public class AllowanceRecomputeJobTest extends IntegrationTests {
+
+    private static final int YEAR = 2095;
+
+    @Autowired
+    private AllowanceRecomputeJob allowanceRecomputeJob;
+
+    @Autowired
+    private AllowanceLedger allowanceLedger;
+
+    @Autowired
+    private DepartmentService departmentService;
+
+    @Autowired
+    private CompanyRepository companyRepository;
+
+    @Autowired
+    private DepartmentRepository departmentRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private Company company;
+
+    private Department department;
+
+    private UserAccount boss;
+
+    @Before
+    public void setUp() throws Exception {
+        company = companyRepository.save(Factory.company());
+        boss = userRepository.save(Factory.userAccount());
+        department = Factory.department(company, boss);
+        department.setDaysOff(BigDecimal.valueOf(20));
+        department = departmentRepository.save(department);
+    }
+
+    private CompanyEmployee addEmployee(Department department, LocalDate employmentStart) {
+        UserAccount userAccount = userRepository.save(Factory.userAccount());
+        if (department == null) {
+            companyRepository.addEmployee(company, userAccount, Role.Viewer);
+        } else {
+            companyRepository.addEmployee(department, userAccount, Role.Viewer);
+        }
+        CompanyEmployee employee = companyRepository.findEmployeeByUserAccount(userAccount).get();
+        if (employmentStart != null) {
+            companyRepository.updateEmploymentStart(employee.getUid(), Date.valueOf(employmentStart));
+        }
+        return employee;
+    }
+
+    @Test
+    public void grantsProRataAllowanceOfCompany() throws Exception {
+        CompanyEmployee wholeYear = addEmployee(department, null);
+        CompanyEmployee fromJuly = addEmployee(department, LocalDate.of(YEAR, 7, 1));
+        CompanyEmployee nextYear = addEmployee(department, LocalDate.of(YEAR + 1, 1, 1));
+        CompanyEmployee withoutDepartment = addEmployee(null, null);
+
+        assertThat(allowanceRecomputeJob.recompute(company.getUid(), null, YEAR)).isEqualTo(3);
+
+        assertThat(allowanceLedger.balance(wholeYear, YEAR)).isEqualByComparingTo(BigDecimal.valueOf(20));
+        assertThat(allowanceLedger.balance(fromJuly, YEAR)).isEqualByComparingTo(BigDecimal.valueOf(8.5));
+        assertThat(allowanceLedger.balance(nextYear, YEAR)).isEqualByComparingTo(BigDecimal.ZERO);
+        assertThat(allowanceLedger.balance(withoutDepartment, YEAR)).isEqualByComparingTo(company.getDefaultDaysOff());
+    }
+
+    @Test
+    public void appendsOnlyDifferences() throws Exception {
+        CompanyEmployee employee = addEmployee(department, null);
+        allowanceLedger.grant(employee, YEAR, BigDecimal.valueOf(15));
+
+        assertThat(allowanceRecomputeJob.recompute(company.getUid(), department.getUid(), YEAR)).isEqualTo(1);
+        assertThat(allowanceRecomputeJob.recompute(company.getUid(), department.getUid(), YEAR)).isEqualTo(0);
+
+        assertThat(allowanceLedger.balance(employee, YEAR)).isEqualByComparingTo(BigDecimal.valueOf(20));
+    }
+
+    @Test
+    public void employeeWithoutEmploymentStartIsCountedFromCreation() throws Exception {
+        int year = LocalDate.now().getYear();
+        CompanyEmployee withoutStart = addEmployee(department, null);
+        CompanyEmployee startingToday = addEmployee(department, LocalDate.now());
+
+        allowanceRecomputeJob.recompute(company.getUid(), department.getUid(), year);
+
+        assertThat(allowanceLedger.balance(withoutStart, year))
+                .isEqualByComparingTo(allowanceLedger.balance(startingToday, year))
+                .isLessThan(BigDecimal.valueOf(20));
+    }
+
+    @Test
+    public void recomputesDepartmentWhenItsDaysOffChange() throws Exception {
+        int year = LocalDate.now().getYear();
+        CompanyEmployee employee = addEmployee(department, LocalDate.of(year - 1, 1, 1));
+
+        Department changed = Department.builder()
+                .name(department.getName())
+                .daysOff(BigDecimal.valueOf(24))
+                .boss(boss)
+                .company(company)
+                .build();
+        departmentService.update(department.getUid(), changed).toBlocking().first();
+
+        assertThat(allowanceLedger.balance(employee, year)).isEqualByComparingTo(BigDecimal.valueOf(24));
+    }
+
+}
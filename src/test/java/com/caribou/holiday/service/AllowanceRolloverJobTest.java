@@ -0,0 +1,138 @@
+package com.caribou.holiday.service;
+
+import com.caribou.Factory;
+import com.caribou.IntegrationTests;
+import com.caribou.auth.domain.UserAccount;
+import com.caribou.auth.repository.UserRepository;
+import com.caribou.company.domain.Company;
+import com.caribou.company.domain.CompanyEmployee;
+import com.caribou.company.domain.Department;
+import com.caribou.company.domain.Role;
+import com.caribou.company.repository.CompanyRepository;
+import com.caribou.company.repository.DepartmentRepository;
+import com.caribou.holiday.domain.AllowanceRollover;
+import com.caribou.holiday.repository.AllowanceRolloverRepository;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.MetricsEndpoint;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+public class AllowanceRolloverJobTest extends IntegrationTests {
+
+    @Autowired
+    private AllowanceRolloverJob allowanceRolloverJob;
+
+    @Autowired
+    private AllowanceRolloverRepository allowanceRolloverRepository;
+
+    @Autowired
+    private AllowanceLedger allowanceLedger;
+
+    @Autowired
+    private MetricsEndpoint metricsEndpoint;
+
+    @Autowired
+    private CompanyRepository companyRepository;
+
+    @Autowired
+    private DepartmentRepository departmentRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private Company company;
+
+    private Department department;
+
+    private CompanyEmployee inDepartment;
+
+    private CompanyEmployee withoutDepartment;
+
+    @Before
+    public void setUp() throws Exception {
+        company = companyRepository.save(Factory.company());
+        UserAccount boss = userRepository.save(Factory.userAccount());
+        department = departmentRepository.save(Factory.department(company, boss));
+        inDepartment = addEmployee(department);
+        withoutDepartment = addEmployee(null);
+        allowanceRolloverJob.setCarryOverCap(BigDecimal.valueOf(5));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        allowanceRolloverJob.setChunkSize(1000);
+    }
+
+    private CompanyEmployee addEmployee(Department department) {
+        UserAccount userAccount = userRepository.save(Factory.userAccount());
+        if (department == null) {
+            companyRepository.addEmployee(company, userAccount, Role.Viewer);
+        } else {
+            companyRepository.addEmployee(department, userAccount, Role.Viewer);
+        }
+        return companyRepository.findEmployeeByUserAccount(userAccount).get();
+    }
+
+    @Test
+    public void grantsDaysOffAndCappedCarryOver() throws Exception {
+        allowanceLedger.grant(inDepartment, 2090, BigDecimal.valueOf(8));
+        allowanceLedger.grant(withoutDepartment, 2090, BigDecimal.valueOf(2));
+        allowanceRolloverJob.setChunkSize(7);
+
+        allowanceRolloverJob.rollover(2091);
+
+        assertThat(allowanceLedger.balance(inDepartment, 2091)).isEqualByComparingTo(department.getDaysOff().add(BigDecimal.valueOf(5)));
+        assertThat(allowanceLedger.balance(withoutDepartment, 2091)).isEqualByComparingTo(company.getDefaultDaysOff().add(BigDecimal.valueOf(2)));
+    }
+
+    @Test
+    public void finishedRolloverIsNotRepeated() throws Exception {
+        AllowanceRollover first = allowanceRolloverJob.rollover(2092);
+        AllowanceRollover second = allowanceRolloverJob.rollover(2092);
+
+        assertThat(first.getFinishedAt()).isNotNull();
+        assertThat(second.getProcessed()).isEqualTo(first.getProcessed());
+        assertThat(allowanceLedger.balance(inDepartment, 2092)).isEqualByComparingTo(department.getDaysOff());
+    }
+
+    @Test
+    public void progressIsPublishedAsGauges() throws Exception {
+        allowanceRolloverRepository.save(new AllowanceRollover(2099));
+        allowanceRolloverRepository.advance(2099, 0, new Timestamp(inDepartment.getCreatedAt().getTime()), inDepartment.getUid(), 1);
+
+        assertThat(metricsEndpoint.invoke())
+                .containsEntry("gauge.allowance.rollover.year", 2099)
+                .containsEntry("gauge.allowance.rollover.processed", 1)
+                .containsEntry("gauge.allowance.rollover.finished", 0);
+
+        allowanceRolloverJob.setChunkSize(1);
+        AllowanceRollover finished = allowanceRolloverJob.rollover(2099);
+
+        assertThat(finished.getProcessed()).isGreaterThan(1);
+        assertThat(metricsEndpoint.invoke())
+                .containsEntry("gauge.allowance.rollover.processed", finished.getProcessed())
+                .containsEntry("gauge.allowance.rollover.finished", 1);
+    }
+
+    @Test
+    public void restartedRolloverContinuesAfterCheckpoint() throws Exception {
+        Thread.sleep(10);
+        CompanyEmployee joinedLater = addEmployee(null);
+        allowanceRolloverRepository.save(new AllowanceRollover(2093));
+        allowanceRolloverRepository.advance(2093, 0, new Timestamp(inDepartment.getCreatedAt().getTime()), inDepartment.getUid(), 1);
+        allowanceRolloverJob.setChunkSize(1);
+
+        allowanceRolloverJob.rollover(2093);
+
+        assertThat(allowanceLedger.balance(inDepartment, 2093)).isEqualByComparingTo(BigDecimal.ZERO);
+        assertThat(allowanceLedger.balance(joinedLater, 2093)).isEqualByComparingTo(company.getDefaultDaysOff());
+    }
+
+}
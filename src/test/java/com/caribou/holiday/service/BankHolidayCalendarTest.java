@@ -0,0 +1,100 @@
+package com.caribou.holiday.service;
+
+import com.caribou.IntegrationTests;
+import com.caribou.holiday.domain.BankHoliday;
+import com.caribou.holiday.repository.BankHolidayRepository;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.lang.reflect.Proxy;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BankHolidayCalendarTest extends IntegrationTests {
+
+    @Autowired
+    private BankHolidayRepository bankHolidayRepository;
+
+    @Autowired
+    private BankHolidayCalendar bankHolidayCalendar;
+
+    @Test
+    public void isHoliday() throws Exception {
+        saveHoliday(LocalDate.of(2031, 5, 1));
+
+        assertThat(bankHolidayCalendar.isHoliday(LocalDate.of(2031, 5, 1), BankHoliday.Country.CZ)).isTrue();
+        assertThat(bankHolidayCalendar.isHoliday(LocalDate.of(2031, 5, 2), BankHoliday.Country.CZ)).isFalse();
+    }
+
+    @Test
+    public void countHolidaysAcrossYears() throws Exception {
+        saveHoliday(LocalDate.of(2032, 12, 24));
+        saveHoliday(LocalDate.of(2032, 12, 26));
+        saveHoliday(LocalDate.of(2033, 1, 1));
+        saveHoliday(LocalDate.of(2033, 1, 6));
+
+        assertThat(bankHolidayCalendar.countHolidays(LocalDate.of(2032, 12, 24), LocalDate.of(2033, 1, 1), BankHoliday.Country.CZ)).isEqualTo(3);
+        assertThat(bankHolidayCalendar.countHolidays(LocalDate.of(2032, 12, 25), LocalDate.of(2032, 12, 25), BankHoliday.Country.CZ)).isEqualTo(0);
+        assertThat(bankHolidayCalendar.countHolidays(LocalDate.of(2033, 1, 6), LocalDate.of(2033, 1, 1), BankHoliday.Country.CZ)).isEqualTo(0);
+    }
+
+    @Test
+    public void isRefreshedWhenBankHolidayIsSaved() throws Exception {
+        LocalDate date = LocalDate.of(2034, 7, 6);
+        assertThat(bankHolidayCalendar.isHoliday(date, BankHoliday.Country.CZ)).isFalse();
+
+        saveHoliday(date);
+
+        assertThat(bankHolidayCalendar.isHoliday(date, BankHoliday.Country.CZ)).isTrue();
+    }
+
+    @Test
+    public void isRefreshedWhenBankHolidayIsDeleted() throws Exception {
+        LocalDate date = LocalDate.of(2035, 7, 6);
+        BankHoliday holiday = saveHoliday(date);
+        assertThat(bankHolidayCalendar.isHoliday(date, BankHoliday.Country.CZ)).isTrue();
+
+        bankHolidayRepository.delete(holiday);
+
+        assertThat(bankHolidayCalendar.isHoliday(date, BankHoliday.Country.CZ)).isFalse();
+    }
+
+    @Test
+    public void loadOverlappingEvictIsNotCached() throws Exception {
+        List<List<Date>> results = new ArrayList<>(Arrays.asList(
+                Collections.emptyList(),
+                Collections.singletonList(Date.valueOf(LocalDate.of(2036, 1, 1)))
+        ));
+        BankHolidayCalendar[] calendar = new BankHolidayCalendar[1];
+        BankHolidayRepository repository = (BankHolidayRepository) Proxy.newProxyInstance(
+                getClass().getClassLoader(),
+                new Class[]{BankHolidayRepository.class},
+                (proxy, method, args) -> {
+                    List<Date> dates = results.remove(0);
+                    if (dates.isEmpty()) {
+                        // a holiday is saved while the first load runs
+                        calendar[0].evict(BankHoliday.Country.CZ);
+                    }
+                    return dates;
+                }
+        );
+        calendar[0] = new BankHolidayCalendar(repository);
+
+        assertThat(calendar[0].isHoliday(LocalDate.of(2036, 1, 1), BankHoliday.Country.CZ)).isFalse();
+        assertThat(calendar[0].isHoliday(LocalDate.of(2036, 1, 1), BankHoliday.Country.CZ)).isTrue();
+    }
+
+    private BankHoliday saveHoliday(LocalDate date) {
+        return bankHolidayRepository.save(BankHoliday.builder()
+                .country(BankHoliday.Country.CZ)
+                .date(Date.valueOf(date))
+                .build());
+    }
+
+}
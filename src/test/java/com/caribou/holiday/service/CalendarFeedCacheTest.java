@@ -0,0 +1,124 @@
+package com.caribou.holiday.service;
+
+import com.caribou.Factory;
+import com.caribou.IntegrationTests;
+import com.caribou.auth.domain.UserAccount;
+import com.caribou.auth.repository.UserRepository;
+import com.caribou.company.domain.Company;
+import com.caribou.company.repository.CompanyRepository;
+import com.caribou.holiday.domain.LeaveType;
+import com.caribou.holiday.repository.LeaveRepository;
+import com.caribou.holiday.repository.LeaveTypeRepository;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.MetricsEndpoint;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CalendarFeedCacheTest extends IntegrationTests {
+
+    @Autowired
+    private CalendarFeedCache calendarFeedCache;
+
+    @Autowired
+    private ICalService iCalService;
+
+    @Autowired
+    private MetricsEndpoint metricsEndpoint;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private LeaveRepository leaveRepository;
+
+    @Autowired
+    private CompanyRepository companyRepository;
+
+    @Autowired
+    private LeaveTypeRepository leaveTypeRepository;
+
+    private LeaveType leaveType;
+
+    private UserAccount user;
+
+    private UserAccount approver;
+
+    @Before
+    public void setUp() throws Exception {
+        Company company = companyRepository.save(Factory.company());
+        leaveType = leaveTypeRepository.save(LeaveType.newBuilder().company(company).name("Holiday").build());
+        approver = userRepository.save(Factory.userAccount());
+        user = userRepository.save(Factory.userAccount());
+        leaveRepository.save(Factory.leave(user, approver, leaveType, LocalDate.of(2017, 4, 25), LocalDate.of(2017, 5, 14)));
+    }
+
+    @Test
+    public void secondRequestIsServedFromCache() throws Exception {
+        long hits = calendarFeedCache.getHits();
+        long misses = calendarFeedCache.getMisses();
+
+        String first = render(calendarFeedCache, user, version(user));
+        String second = render(calendarFeedCache, user, version(user));
+
+        assertThat(second).isEqualTo(first).startsWith("BEGIN:VCALENDAR");
+        assertThat(calendarFeedCache.getMisses()).isEqualTo(misses + 1);
+        assertThat(calendarFeedCache.getHits()).isEqualTo(hits + 1);
+    }
+
+    @Test
+    public void isEvictedWhenLeaveIsSaved() throws Exception {
+        String version = version(user);
+        render(calendarFeedCache, user, version);
+
+        leaveRepository.save(Factory.leave(user, approver, leaveType, LocalDate.of(2017, 6, 1), LocalDate.of(2017, 6, 2)));
+        long misses = calendarFeedCache.getMisses();
+        String body = render(calendarFeedCache, user, version);
+
+        assertThat(calendarFeedCache.getMisses()).isEqualTo(misses + 1);
+        assertThat(body).contains("VALUE=DATE:20170601");
+    }
+
+    @Test
+    public void evictLeastRecentlyUsed() throws Exception {
+        CalendarFeedCache cache = new CalendarFeedCache(iCalService, 2);
+        UserAccount another = userRepository.save(Factory.userAccount());
+        UserAccount third = userRepository.save(Factory.userAccount());
+
+        render(cache, user, version(user));
+        render(cache, another, version(another));
+        render(cache, user, version(user));
+        render(cache, third, version(third));
+
+        assertThat(cache.size()).isEqualTo(2);
+        render(cache, user, version(user));
+        assertThat(cache.getHits()).isEqualTo(2);
+        render(cache, another, version(another));
+        assertThat(cache.getMisses()).isEqualTo(4);
+    }
+
+    @Test
+    public void publishesMetrics() throws Exception {
+        render(calendarFeedCache, user, version(user));
+
+        assertThat(metricsEndpoint.invoke()).containsKeys("counter.ical.cache.hits", "counter.ical.cache.misses", "gauge.ical.cache.size");
+        assertThat((Long) metricsEndpoint.invoke().get("counter.ical.cache.misses")).isPositive();
+    }
+
+    private String render(CalendarFeedCache cache, UserAccount userAccount, String version) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        cache.write(userAccount, version, out);
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private String version(UserAccount userAccount) {
+        return iCalService.getCalendarVersion(userAccount).getETag();
+    }
+
+}
@@ -0,0 +1,198 @@
+package com.caribou.holiday.service;
+
+import com.caribou.Factory;
+import com.caribou.IntegrationTests;
+import com.caribou.auth.domain.UserAccount;
+import com.caribou.auth.repository.UserRepository;
+import com.caribou.company.domain.Company;
+import com.caribou.company.domain.Role;
+import com.caribou.company.repository.CompanyRepository;
+import com.caribou.holiday.domain.Leave;
+import com.caribou.holiday.domain.LeaveType;
+import com.caribou.holiday.repository.LeaveRepository;
+import com.caribou.holiday.repository.LeaveSpan;
+import com.caribou.holiday.repository.LeaveTypeRepository;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.lang.reflect.Proxy;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CompanyLeaveIndexTest extends IntegrationTests {
+
+    @Autowired
+    private CompanyLeaveIndex companyLeaveIndex;
+
+    @Autowired
+    private CompanyRepository companyRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private LeaveRepository leaveRepository;
+
+    @Autowired
+    private LeaveTypeRepository leaveTypeRepository;
+
+    private Company company;
+
+    private UserAccount userAccount;
+
+    private UserAccount approver;
+
+    private LeaveType leaveType;
+
+    @Before
+    public void setUp() throws Exception {
+        company = companyRepository.save(Factory.company());
+        userAccount = userRepository.save(Factory.userAccount());
+        approver = userRepository.save(Factory.userAccount());
+        companyRepository.addEmployee(company, userAccount, Role.Viewer);
+        leaveType = leaveTypeRepository.save(LeaveType.newBuilder().company(company).name("Holiday").build());
+    }
+
+    @Test
+    public void findOverlapping() throws Exception {
+        UserAccount colleague = userRepository.save(Factory.userAccount());
+        companyRepository.addEmployee(company, colleague, Role.Viewer);
+        Leave april = leaveRepository.save(Factory.leave(userAccount, approver, leaveType, LocalDate.of(2017, 4, 25), LocalDate.of(2017, 5, 1)));
+        Leave wholeSummer = leaveRepository.save(Factory.leave(colleague, approver, leaveType, LocalDate.of(2017, 1, 2), LocalDate.of(2017, 8, 31)));
+        leaveRepository.save(Factory.leave(userAccount, approver, leaveType, LocalDate.of(2017, 3, 1), LocalDate.of(2017, 3, 3)));
+        leaveRepository.save(Factory.leave(userAccount, approver, leaveType, LocalDate.of(2017, 6, 1), LocalDate.of(2017, 6, 14)));
+
+        List<LeaveSpan> leaves = findOverlapping(LocalDate.of(2017, 5, 1), LocalDate.of(2017, 5, 31));
+
+        assertThat(leaves).extracting(LeaveSpan::getUid).containsExactly(wholeSummer.getUid(), april.getUid());
+    }
+
+    @Test
+    public void doesNotContainLeavesOfOtherCompanies() throws Exception {
+        Company anotherCompany = companyRepository.save(Factory.company());
+        UserAccount anotherUserAccount = userRepository.save(Factory.userAccount());
+        companyRepository.addEmployee(anotherCompany, anotherUserAccount, Role.Viewer);
+        LeaveType anotherLeaveType = leaveTypeRepository.save(LeaveType.newBuilder().company(anotherCompany).name("Holiday").build());
+        leaveRepository.save(Factory.leave(anotherUserAccount, approver, anotherLeaveType, LocalDate.of(2017, 5, 2), LocalDate.of(2017, 5, 3)));
+
+        assertThat(findOverlapping(LocalDate.of(2017, 5, 1), LocalDate.of(2017, 5, 31))).isEmpty();
+    }
+
+    @Test
+    public void isUpdatedWhenLeaveIsSaved() throws Exception {
+        assertThat(findOverlapping(LocalDate.of(2017, 5, 1), LocalDate.of(2017, 5, 31))).isEmpty();
+
+        Leave leave = leaveRepository.save(Factory.leave(userAccount, approver, leaveType, LocalDate.of(2017, 5, 2), LocalDate.of(2017, 5, 3)));
+        assertThat(findOverlapping(LocalDate.of(2017, 5, 1), LocalDate.of(2017, 5, 31))).extracting(LeaveSpan::getUid).containsExactly(leave.getUid());
+
+        leave.setStatus(Leave.Status.DECLINED);
+        leaveRepository.save(leave);
+        List<LeaveSpan> leaves = findOverlapping(LocalDate.of(2017, 5, 1), LocalDate.of(2017, 5, 31));
+        assertThat(leaves).hasSize(1);
+        assertThat(leaves.get(0).getStatus()).isEqualTo(Leave.Status.DECLINED);
+    }
+
+    @Test
+    public void isLoadedOnce() throws Exception {
+        leaveRepository.save(Factory.leave(userAccount, approver, leaveType, LocalDate.of(2017, 5, 2), LocalDate.of(2017, 5, 3)));
+        findOverlapping(LocalDate.of(2017, 5, 1), LocalDate.of(2017, 5, 31));
+
+        assertThat(countStatements(() -> findOverlapping(LocalDate.of(2017, 1, 1), LocalDate.of(2017, 12, 31)))).isZero();
+    }
+
+    @Test
+    public void changeDoesNotQueryCompaniesOfEmployee() throws Exception {
+        Leave leave = leaveRepository.save(Factory.leave(userAccount, approver, leaveType, LocalDate.of(2017, 5, 2), LocalDate.of(2017, 5, 3)));
+        findOverlapping(LocalDate.of(2017, 5, 1), LocalDate.of(2017, 5, 31));
+        leave.setStarting(Timestamp.valueOf(LocalDate.of(2017, 4, 28).atStartOfDay()));
+
+        assertThat(countStatements(() -> {
+            companyLeaveIndex.leaveChangedEventListener(Leave.ChangedEvent.of(leave));
+            return null;
+        })).isZero();
+        assertThat(findOverlapping(LocalDate.of(2017, 4, 28), LocalDate.of(2017, 4, 28))).extracting(LeaveSpan::getUid).containsExactly(leave.getUid());
+    }
+
+    @Test
+    public void keepsLeavesSortedWhenChanged() throws Exception {
+        Leave march = leaveRepository.save(Factory.leave(userAccount, approver, leaveType, LocalDate.of(2017, 3, 1), LocalDate.of(2017, 3, 3)));
+        Leave june = leaveRepository.save(Factory.leave(userAccount, approver, leaveType, LocalDate.of(2017, 6, 1), LocalDate.of(2017, 6, 3)));
+        findOverlapping(LocalDate.of(2017, 1, 1), LocalDate.of(2017, 12, 31));
+
+        Leave may = leaveRepository.save(Factory.leave(userAccount, approver, leaveType, LocalDate.of(2017, 5, 1), LocalDate.of(2017, 5, 3)));
+        march.setStarting(Timestamp.valueOf(LocalDate.of(2017, 7, 1).atStartOfDay()));
+        march.setEnding(Timestamp.valueOf(LocalDate.of(2017, 7, 3).atStartOfDay()));
+        leaveRepository.save(march);
+
+        assertThat(findOverlapping(LocalDate.of(2017, 1, 1), LocalDate.of(2017, 12, 31))).extracting(LeaveSpan::getUid)
+                .containsExactly(may.getUid(), june.getUid(), march.getUid());
+        assertThat(findOverlapping(LocalDate.of(2017, 3, 1), LocalDate.of(2017, 3, 31))).isEmpty();
+    }
+
+    @Test
+    public void loadOverlappingChangeIsNotCached() throws Exception {
+        Leave leave = leaveRepository.save(Factory.leave(userAccount, approver, leaveType, LocalDate.of(2017, 5, 2), LocalDate.of(2017, 5, 3)));
+        CompanyLeaveIndex[] index = new CompanyLeaveIndex[1];
+        List<Boolean> first = new ArrayList<>(Collections.singletonList(true));
+        LeaveRepository repository = (LeaveRepository) Proxy.newProxyInstance(
+                getClass().getClassLoader(),
+                new Class[]{LeaveRepository.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("findSpansByCompanyUid") && first.remove(0)) {
+                        // the leave is saved while the first load runs
+                        first.add(false);
+                        index[0].leaveChangedEventListener(Leave.ChangedEvent.of(leave));
+                        return new ArrayList<>();
+                    }
+                    return method.invoke(leaveRepository, args);
+                }
+        );
+        index[0] = new CompanyLeaveIndex(repository, companyRepository, 100, 60000);
+
+        assertThat(index[0].findOverlapping(company.getUid(), LocalDate.of(2017, 5, 1), LocalDate.of(2017, 5, 31))).isEmpty();
+        assertThat(index[0].findOverlapping(company.getUid(), LocalDate.of(2017, 5, 1), LocalDate.of(2017, 5, 31)))
+                .extracting(LeaveSpan::getUid).containsExactly(leave.getUid());
+    }
+
+    @Test
+    public void leaveOverNewYearIsFoundOnce() throws Exception {
+        Leave leave = leaveRepository.save(Factory.leave(userAccount, approver, leaveType, LocalDate.of(2016, 12, 30), LocalDate.of(2017, 1, 2)));
+
+        assertThat(findOverlapping(LocalDate.of(2016, 12, 1), LocalDate.of(2017, 1, 31))).extracting(LeaveSpan::getUid).containsExactly(leave.getUid());
+        assertThat(findOverlapping(LocalDate.of(2017, 1, 1), LocalDate.of(2017, 1, 31))).extracting(LeaveSpan::getUid).containsExactly(leave.getUid());
+    }
+
+    @Test
+    public void keepsLeastRecentlyUsedYearsOnly() throws Exception {
+        CompanyLeaveIndex index = new CompanyLeaveIndex(leaveRepository, companyRepository, 1, 60000);
+        index.findOverlapping(company.getUid(), LocalDate.of(2017, 5, 1), LocalDate.of(2017, 5, 31));
+        index.findOverlapping(company.getUid(), LocalDate.of(2016, 5, 1), LocalDate.of(2016, 5, 31));
+
+        assertThat(index.size()).isEqualTo(1);
+        assertThat(countStatements(() -> index.findOverlapping(company.getUid(), LocalDate.of(2016, 1, 1), LocalDate.of(2016, 12, 31)))).isZero();
+        assertThat(countStatements(() -> index.findOverlapping(company.getUid(), LocalDate.of(2017, 1, 1), LocalDate.of(2017, 12, 31)))).isPositive();
+    }
+
+    @Test
+    public void seesLeavesSavedByAnotherNodeAfterRefreshInterval() throws Exception {
+        // not a bean, so it doesn't hear about leaves saved here just like an index of another node
+        CompanyLeaveIndex index = new CompanyLeaveIndex(leaveRepository, companyRepository, 100, 0);
+        assertThat(index.findOverlapping(company.getUid(), LocalDate.of(2017, 5, 1), LocalDate.of(2017, 5, 31))).isEmpty();
+
+        Leave leave = leaveRepository.save(Factory.leave(userAccount, approver, leaveType, LocalDate.of(2017, 5, 2), LocalDate.of(2017, 5, 3)));
+
+        assertThat(index.findOverlapping(company.getUid(), LocalDate.of(2017, 5, 1), LocalDate.of(2017, 5, 31)))
+                .extracting(LeaveSpan::getUid).containsExactly(leave.getUid());
+    }
+
+    private List<LeaveSpan> findOverlapping(LocalDate from, LocalDate to) {
+        return companyLeaveIndex.findOverlapping(company.getUid(), from, to);
+    }
+
+}
@@ -11,9 +11,11 @@ import com.caribou.company.domain.Role;
 import com.caribou.company.repository.CompanyRepository;
 import com.caribou.company.repository.DepartmentRepository;
 import com.caribou.company.service.CompanyService;
+import com.caribou.company.service.NotFound;
 import com.caribou.email.Email;
 import com.caribou.email.templates.LeaveApproved;
 import com.caribou.email.templates.LeaveRequest;
+import com.caribou.email.templates.LeavesDecided;
 import com.caribou.holiday.domain.BankHoliday;
 import com.caribou.holiday.domain.Leave;
 import com.caribou.holiday.domain.LeaveType;
@@ -32,12 +34,23 @@ import java.sql.Timestamp;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
 import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 
@@ -61,17 +74,24 @@ public class LeaveServiceTest extends IntegrationTests {
     @Autowired
     private LeaveService leaveService;
 
+    @Autowired
+    private AllowanceLedger allowanceLedger;
+
     @Autowired
     private LeaveRepository leaveRepository;
 
     @Autowired
     private BankHolidayRepository bankHolidayRepository;
 
+    @Autowired
+    private BankHolidayCalendar bankHolidayCalendar;
+
     private UserAccount boss;
     private Company company;
     private UserAccount userAccount;
     private LeaveType leaveType;
     private Department department;
+    private int pendingLeaves;
 
     @Before
     public void setUp() throws Exception {
@@ -113,7 +133,7 @@ public class LeaveServiceTest extends IntegrationTests {
     public void getEmployeeLeaves() throws Exception {
         leaveRepository.save(Factory.leave(boss, userAccount, leaveType, LocalDate.of(2017, 4, 25), LocalDate.of(2017, 5, 14)));
         leaveRepository.save(Factory.leave(userAccount, boss, leaveType, LocalDate.of(2017, 5, 25), LocalDate.of(2017, 6, 14)));
-        leaveRepository.save(Factory.leave(userAccount, boss, leaveType, LocalDate.of(2017, 6, 1), LocalDate.of(2017, 6, 14)));
+        leaveRepository.save(Factory.leave(userAccount, boss, leaveType, LocalDate.of(2017, 6, 15), LocalDate.of(2017, 6, 20)));
 
         LocalDate from = LocalDate.of(2017, 5, 1);
         LocalDate to = LocalDate.of(2017, 5, 31);
@@ -135,6 +155,44 @@ public class LeaveServiceTest extends IntegrationTests {
         assertThat(leaves).hasSize(2);
     }
 
+    @Test
+    public void getEmployeeLeavesRunsConstantNumberOfStatements() throws Exception {
+        LocalDate from = LocalDate.of(2017, 5, 1);
+        LocalDate to = LocalDate.of(2017, 5, 31);
+        addEmployeeOnLeave(from);
+        leaveService.getEmployeeLeaves(company.getUid().toString(), from, to);
+        // its allowance isn't cached yet like of the employees added later
+        companyRepository.addEmployee(company, department, userRepository.save(Factory.userAccount()), boss, Role.Viewer);
+
+        long statements = countStatements(() -> leaveService.getEmployeeLeaves(company.getUid().toString(), from, to));
+
+        for (int i = 0; i < 10; i++) {
+            addEmployeeOnLeave(from);
+            companyRepository.addEmployee(company, department, userRepository.save(Factory.userAccount()), boss, Role.Viewer);
+        }
+
+        assertThat(countStatements(() -> leaveService.getEmployeeLeaves(company.getUid().toString(), from, to))).isEqualTo(statements);
+        List<LeaveService.EmployeeLeaves> leaves = leaveService.getEmployeeLeaves(company.getUid().toString(), from, to);
+        assertThat(leaves).hasSize(24);
+        assertThat(leaves.stream().mapToInt(e -> e.getLeaves().size()).sum()).isEqualTo(11);
+    }
+
+    @Test
+    public void createLongLeaveRunsAsManyStatementsAsShortOne() throws Exception {
+        Leave shortLeave = Factory.leave(userAccount, leaveType, LocalDate.of(2031, 3, 3), LocalDate.of(2031, 3, 4));
+        Leave longLeave = Factory.leave(userAccount, leaveType, LocalDate.of(2032, 3, 1), LocalDate.of(2032, 5, 31));
+
+        long statements = countStatements(() -> leaveService.create(shortLeave).toBlocking().first());
+
+        assertThat(countStatements(() -> leaveService.create(longLeave).toBlocking().first())).isEqualTo(statements);
+    }
+
+    private void addEmployeeOnLeave(LocalDate starting) {
+        UserAccount employee = userRepository.save(Factory.userAccount());
+        companyRepository.addEmployee(company, department, employee, boss, Role.Viewer);
+        leaveRepository.save(Factory.leave(employee, boss, leaveType, starting, starting.plusDays(2)));
+    }
+
     @Test
     public void calculateNumberOfBookedDaysWithHolidays() throws Exception {
         Date date = Date.valueOf(LocalDate.of(2017, 6, 13));
@@ -148,7 +206,7 @@ public class LeaveServiceTest extends IntegrationTests {
                 .starting(Timestamp.valueOf(LocalDate.of(2017, 6, 12).atStartOfDay()))
                 .ending(Timestamp.valueOf(LocalDate.of(2017, 6, 14).atTime(LocalTime.MAX)))
                 .build();
-        BigDecimal bookedDaysOff = leaveService.numberOfBookedDays(leave, BankHoliday.Country.CZ);
+        BigDecimal bookedDaysOff = bankHolidayCalendar.numberOfBookedDays(leave, BankHoliday.Country.CZ);
         assertThat(bookedDaysOff).isEqualByComparingTo(BigDecimal.valueOf(2));
     }
 
@@ -158,7 +216,7 @@ public class LeaveServiceTest extends IntegrationTests {
                 .starting(Timestamp.valueOf(LocalDate.of(2017, 7, 7).atStartOfDay()))
                 .ending(Timestamp.valueOf(LocalDate.of(2017, 7, 12).atTime(LocalTime.MAX)))
                 .build();
-        BigDecimal bookedDaysOff = leaveService.numberOfBookedDays(leave, BankHoliday.Country.CZ);
+        BigDecimal bookedDaysOff = bankHolidayCalendar.numberOfBookedDays(leave, BankHoliday.Country.CZ);
         assertThat(bookedDaysOff).isEqualByComparingTo(BigDecimal.valueOf(4));
     }
 
@@ -168,7 +226,7 @@ public class LeaveServiceTest extends IntegrationTests {
                 .starting(Timestamp.valueOf(LocalDate.of(2017, 7, 10).atStartOfDay()))
                 .ending(Timestamp.valueOf(LocalDate.of(2017, 7, 16).atTime(LocalTime.MAX)))
                 .build();
-        BigDecimal bookedDaysOff = leaveService.numberOfBookedDays(leave, BankHoliday.Country.CZ);
+        BigDecimal bookedDaysOff = bankHolidayCalendar.numberOfBookedDays(leave, BankHoliday.Country.CZ);
         assertThat(bookedDaysOff).isEqualByComparingTo(BigDecimal.valueOf(5));
     }
 
@@ -178,7 +236,7 @@ public class LeaveServiceTest extends IntegrationTests {
                 .starting(Timestamp.valueOf(LocalDate.of(2017, 7, 3).atStartOfDay()))
                 .ending(Timestamp.valueOf(LocalDate.of(2017, 7, 3).atTime(LocalTime.MAX)))
                 .build();
-        BigDecimal bookedDaysOff = leaveService.numberOfBookedDays(leave, BankHoliday.Country.CZ);
+        BigDecimal bookedDaysOff = bankHolidayCalendar.numberOfBookedDays(leave, BankHoliday.Country.CZ);
         assertThat(bookedDaysOff).isEqualByComparingTo(BigDecimal.valueOf(1));
     }
 
@@ -188,7 +246,7 @@ public class LeaveServiceTest extends IntegrationTests {
                 .starting(Timestamp.valueOf(LocalDate.of(2017, 7, 3).atStartOfDay()))
                 .ending(Timestamp.valueOf(LocalDateTime.of(2017, 7, 3, 12, 0)))
                 .build();
-        BigDecimal bookedDaysOff = leaveService.numberOfBookedDays(leave, BankHoliday.Country.CZ);
+        BigDecimal bookedDaysOff = bankHolidayCalendar.numberOfBookedDays(leave, BankHoliday.Country.CZ);
         assertThat(bookedDaysOff).isEqualByComparingTo(BigDecimal.valueOf(0.5));
     }
 
@@ -198,7 +256,7 @@ public class LeaveServiceTest extends IntegrationTests {
                 .starting(Timestamp.valueOf(LocalDateTime.of(2017, 7, 3, 12, 0)))
                 .ending(Timestamp.valueOf(LocalDate.of(2017, 7, 3).atTime(LocalTime.MAX)))
                 .build();
-        BigDecimal bookedDaysOff = leaveService.numberOfBookedDays(leave, BankHoliday.Country.CZ);
+        BigDecimal bookedDaysOff = bankHolidayCalendar.numberOfBookedDays(leave, BankHoliday.Country.CZ);
         assertThat(bookedDaysOff).isEqualByComparingTo(BigDecimal.valueOf(0.5));
     }
 
@@ -208,7 +266,7 @@ public class LeaveServiceTest extends IntegrationTests {
                 .starting(Timestamp.valueOf(LocalDateTime.of(2017, 7, 15, 12, 0)))
                 .ending(Timestamp.valueOf(LocalDate.of(2017, 7, 15).atTime(LocalTime.MAX)))
                 .build();
-        BigDecimal bookedDaysOff = leaveService.numberOfBookedDays(leave, BankHoliday.Country.CZ);
+        BigDecimal bookedDaysOff = bankHolidayCalendar.numberOfBookedDays(leave, BankHoliday.Country.CZ);
         assertThat(bookedDaysOff).isEqualByComparingTo(BigDecimal.valueOf(0));
     }
 
@@ -218,7 +276,7 @@ public class LeaveServiceTest extends IntegrationTests {
                 .starting(Timestamp.valueOf(LocalDateTime.of(2017, 7, 13, 12, 0)))
                 .ending(Timestamp.valueOf(LocalDateTime.of(2017, 7, 18, 12, 0)))
                 .build();
-        BigDecimal bookedDaysOff = leaveService.numberOfBookedDays(leave, BankHoliday.Country.CZ);
+        BigDecimal bookedDaysOff = bankHolidayCalendar.numberOfBookedDays(leave, BankHoliday.Country.CZ);
         assertThat(bookedDaysOff).isEqualByComparingTo(BigDecimal.valueOf(3));
     }
 
@@ -228,7 +286,7 @@ public class LeaveServiceTest extends IntegrationTests {
                 .starting(Timestamp.valueOf(LocalDateTime.of(2017, 7, 14, 12, 0)))
                 .ending(Timestamp.valueOf(LocalDateTime.of(2017, 7, 16, 12, 0)))
                 .build();
-        BigDecimal bookedDaysOff = leaveService.numberOfBookedDays(leave, BankHoliday.Country.CZ);
+        BigDecimal bookedDaysOff = bankHolidayCalendar.numberOfBookedDays(leave, BankHoliday.Country.CZ);
         assertThat(bookedDaysOff).isEqualByComparingTo(BigDecimal.valueOf(0.5));
     }
 
@@ -279,7 +337,7 @@ public class LeaveServiceTest extends IntegrationTests {
 
         Optional<CompanyEmployee> employee = companyRepository.findEmployeeByUserAccount(leave.getUserAccount());
         assertThat(employee).isPresent();
-        assertThat(employee.get().getRemainingAllowance()).isEqualByComparingTo(BigDecimal.valueOf(-14));
+        assertThat(allowanceLedger.balance(employee.get(), 2017)).isEqualByComparingTo(BigDecimal.valueOf(-14));
     }
 
     @Test
@@ -306,6 +364,196 @@ public class LeaveServiceTest extends IntegrationTests {
         assertThat(args.get(0).getTemplate()).isInstanceOf(LeaveApproved.class);
     }
 
+    @Test
+    public void approveLeaveTwiceDeductsAllowanceOnce() throws Exception {
+        Leave leave = leaveRepository.save(pendingLeave(BigDecimal.valueOf(3)));
+        leaveService.approve(leave);
+
+        assertThatThrownBy(() -> leaveService.approve(leave)).isInstanceOf(ApprovalConflict.class);
+        assertThat(allowanceLedger.balance(companyRepository.findEmployeeByUserAccount(userAccount).get(), 2017)).isEqualByComparingTo(BigDecimal.valueOf(-3));
+    }
+
+    @Test
+    public void approveLeaveOverOverdraftKeepsItPending() throws Exception {
+        Leave leave = leaveRepository.save(pendingLeave(BigDecimal.valueOf(14)));
+        leaveService.setMaxOverdraft(BigDecimal.valueOf(5));
+        try {
+            assertThatThrownBy(() -> leaveService.approve(leave)).isInstanceOf(ApprovalConflict.class);
+        } finally {
+            leaveService.setMaxOverdraft(null);
+        }
+
+        assertThat(leaveRepository.findOne(leave.getUid()).getStatus()).isEqualTo(Leave.Status.PENDING);
+        assertThat(allowanceLedger.balance(companyRepository.findEmployeeByUserAccount(userAccount).get(), 2017)).isEqualByComparingTo(BigDecimal.ZERO);
+    }
+
+    @Test
+    public void concurrentApprovalsDoNotLoseDeduction() throws Exception {
+        List<Leave> leaves = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            leaves.add(leaveRepository.save(pendingLeave(BigDecimal.ONE)));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            for (Future<?> future : executor.invokeAll(leaves.stream()
+                    .map(l -> (Callable<Void>) () -> {
+                        leaveService.approve(l);
+                        return null;
+                    })
+                    .collect(Collectors.toList()))) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertThat(allowanceLedger.balance(companyRepository.findEmployeeByUserAccount(userAccount).get(), 2017)).isEqualByComparingTo(BigDecimal.valueOf(-8));
+    }
+
+    @Test
+    public void concurrentApprovalsDoNotExceedOverdraft() throws Exception {
+        List<Leave> leaves = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            leaves.add(leaveRepository.save(pendingLeave(BigDecimal.ONE)));
+        }
+        leaveService.setMaxOverdraft(BigDecimal.valueOf(5));
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        int conflicts = 0;
+        try {
+            for (Future<?> future : executor.invokeAll(leaves.stream()
+                    .map(l -> (Callable<Void>) () -> {
+                        leaveService.approve(l);
+                        return null;
+                    })
+                    .collect(Collectors.toList()))) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    assertThat(e.getCause()).isInstanceOf(ApprovalConflict.class);
+                    conflicts++;
+                }
+            }
+        } finally {
+            executor.shutdown();
+            leaveService.setMaxOverdraft(null);
+        }
+
+        assertThat(conflicts).isEqualTo(3);
+        assertThat(allowanceLedger.balance(companyRepository.findEmployeeByUserAccount(userAccount).get(), 2017)).isEqualByComparingTo(BigDecimal.valueOf(-5));
+    }
+
+    @Test
+    public void createOverlappingLeaveIsRejected() throws Exception {
+        Leave existing = leaveRepository.save(pendingLeave(BigDecimal.ONE));
+        Leave overlapping = Factory.leave(userAccount, leaveType, LocalDate.of(2017, 5, 30), LocalDate.of(2017, 6, 1));
+
+        assertThatThrownBy(() -> leaveService.create(overlapping)).isInstanceOf(OverlappingLeave.class);
+
+        existing.setStatus(Leave.Status.DECLINED);
+        leaveRepository.save(existing);
+        TestSubscriber<Leave> testSubscriber = new TestSubscriber<>();
+        leaveService.create(overlapping).subscribe(testSubscriber);
+        testSubscriber.assertNoErrors();
+    }
+
+    @Test
+    public void createLeaveInTheOtherHalfOfDayIsAccepted() throws Exception {
+        leaveRepository.save(Factory.leave(userAccount, boss, leaveType, LocalDateTime.of(2017, 6, 1, 8, 0), LocalDateTime.of(2017, 6, 1, 12, 0)));
+        Leave afternoon = Factory.leave(userAccount, boss, leaveType, LocalDateTime.of(2017, 6, 1, 13, 0), LocalDateTime.of(2017, 6, 1, 17, 0));
+
+        TestSubscriber<Leave> testSubscriber = new TestSubscriber<>();
+        leaveService.create(afternoon).subscribe(testSubscriber);
+
+        testSubscriber.assertNoErrors();
+    }
+
+    @Test
+    public void createUnderMinimumStaffingIsRejected() throws Exception {
+        UserAccount colleague = userRepository.save(Factory.userAccount());
+        companyRepository.addEmployee(company, department, colleague, boss, Role.Viewer);
+        leaveRepository.save(Factory.leave(colleague, boss, leaveType, LocalDate.of(2017, 6, 2), LocalDate.of(2017, 6, 3)));
+        department.setMinimumStaffing(1);
+        departmentRepository.save(department);
+
+        assertThatThrownBy(() -> leaveService.create(pendingLeave(BigDecimal.ONE)))
+                .isInstanceOf(MinimumStaffingConflict.class);
+    }
+
+    @Test
+    public void createWithEnoughStaffIsAccepted() throws Exception {
+        UserAccount colleague = userRepository.save(Factory.userAccount());
+        companyRepository.addEmployee(company, department, colleague, boss, Role.Viewer);
+        leaveRepository.save(Factory.leave(colleague, boss, leaveType, LocalDate.of(2017, 6, 15), LocalDate.of(2017, 6, 16)));
+        department.setMinimumStaffing(1);
+        departmentRepository.save(department);
+
+        TestSubscriber<Leave> testSubscriber = new TestSubscriber<>();
+        leaveService.create(pendingLeave(BigDecimal.ONE)).subscribe(testSubscriber);
+
+        testSubscriber.assertNoErrors();
+    }
+
+    @Test
+    public void decideApprovesAllLeavesAndSendsOneEmailPerEmployee() throws Exception {
+        UserAccount colleague = userRepository.save(Factory.userAccount());
+        companyRepository.addEmployee(company, department, colleague, boss, Role.Viewer);
+        Leave first = leaveRepository.save(pendingLeave(BigDecimal.valueOf(2)));
+        Leave second = leaveRepository.save(pendingLeave(BigDecimal.valueOf(3)));
+        Leave colleagues = pendingLeave(BigDecimal.ONE);
+        colleagues.setUserAccount(colleague);
+        colleagues = leaveRepository.save(colleagues);
+
+        leaveService.decide(Arrays.asList(first.getUid(), second.getUid(), colleagues.getUid()), boss.getUid(), Leave.Status.APPROVED);
+
+        assertThat(leaveRepository.findOne(first.getUid()).getStatus()).isEqualTo(Leave.Status.APPROVED);
+        assertThat(leaveRepository.findOne(colleagues.getUid()).getStatus()).isEqualTo(Leave.Status.APPROVED);
+        assertThat(allowanceLedger.balance(companyRepository.findEmployeeByUserAccount(userAccount).get(), 2017)).isEqualByComparingTo(BigDecimal.valueOf(-5));
+        assertThat(allowanceLedger.balance(companyRepository.findEmployeeByUserAccount(colleague).get(), 2017)).isEqualByComparingTo(BigDecimal.valueOf(-1));
+
+        ArgumentCaptor<Email> emailCaptor = ArgumentCaptor.forClass(Email.class);
+        verify(emailSender, times(2)).send(emailCaptor.capture(), any());
+        assertThat(emailCaptor.getAllValues()).extracting(e -> e.getTo().getEmail()).containsOnly(userAccount.getEmail(), colleague.getEmail());
+        assertThat(emailCaptor.getAllValues()).extracting(Email::getTemplate).hasOnlyElementsOfType(LeavesDecided.class);
+    }
+
+    @Test
+    public void decideRollsBackWhenAnyLeaveIsNotPending() throws Exception {
+        Leave pending = leaveRepository.save(pendingLeave(BigDecimal.valueOf(2)));
+        Leave approved = leaveRepository.save(pendingLeave(BigDecimal.valueOf(3)));
+        leaveService.approve(approved);
+
+        assertThatThrownBy(() -> leaveService.decide(Arrays.asList(pending.getUid(), approved.getUid()), boss.getUid(), Leave.Status.DECLINED))
+                .isInstanceOf(ApprovalConflict.class);
+
+        assertThat(leaveRepository.findOne(pending.getUid()).getStatus()).isEqualTo(Leave.Status.PENDING);
+        assertThat(leaveRepository.findOne(approved.getUid()).getStatus()).isEqualTo(Leave.Status.APPROVED);
+    }
+
+    @Test
+    public void decideOnlyLeavesOfApprover() throws Exception {
+        Leave leave = leaveRepository.save(pendingLeave(BigDecimal.ONE));
+
+        assertThatThrownBy(() -> leaveService.decide(Collections.singletonList(leave.getUid()), userAccount.getUid(), Leave.Status.APPROVED))
+                .isInstanceOf(NotFound.class);
+        assertThat(leaveRepository.findOne(leave.getUid()).getStatus()).isEqualTo(Leave.Status.PENDING);
+    }
+
+    /**
+     * Every next leave starts two days later, so leaves of one user don't overlap
+     */
+    private Leave pendingLeave(BigDecimal numberOfDays) {
+        LocalDate starting = LocalDate.of(2017, 6, 1).plusDays(2 * pendingLeaves++);
+        return Leave.builder()
+                .userAccount(userAccount)
+                .approver(boss)
+                .leaveType(leaveType)
+                .starting(Timestamp.valueOf(starting.atStartOfDay()))
+                .ending(Timestamp.valueOf(starting.plusDays(1).atStartOfDay()))
+                .numberOfDays(numberOfDays)
+                .status(Leave.Status.PENDING)
+                .build();
+    }
+
     @Test
     public void sendLeaveRequestedEventListenerSendsEmailApprove() {
         Leave leave = Factory.leave(userAccount, boss, leaveType, LocalDate.now(), LocalDate.now());
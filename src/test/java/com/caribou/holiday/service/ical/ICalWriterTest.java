@@ -0,0 +1,80 @@
+package com.caribou.holiday.service.ical;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ICalWriterTest {
+
+    @Test
+    public void writeLinesWithCrlf() throws Exception {
+        VCalendar calendar = VCalendar.builder()
+                .prodid("-//chll//leaves//EN")
+                .vEvents(Arrays.asList(
+                        VEvent.builder().dtStartValueDate(LocalDate.of(2017, 12, 31)).build()
+                ))
+                .build();
+
+        assertThat(write(calendar)).isEqualTo("BEGIN:VCALENDAR\r\n" +
+                "VERSION:2.0\r\n" +
+                "PRODID:-//chll//leaves//EN\r\n" +
+                "BEGIN:VEVENT\r\n" +
+                "DTSTART;VALUE=DATE:20171231\r\n" +
+                "END:VEVENT\r\n" +
+                "END:VCALENDAR\r\n");
+    }
+
+    @Test
+    public void writeNestedComponentsOneByOne() throws Exception {
+        VCalendar calendar = VCalendar.builder().prodid("-//chll//leaves//EN").build();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        new ICalWriter(out)
+                .begin(calendar)
+                .write(VEvent.builder().dtStartValueDate(LocalDate.of(2017, 12, 31)).build())
+                .end(calendar)
+                .flush();
+
+        assertThat(new String(out.toByteArray(), StandardCharsets.UTF_8)).isEqualTo(write(VCalendar.builder()
+                .prodid("-//chll//leaves//EN")
+                .vEvents(Arrays.asList(
+                        VEvent.builder().dtStartValueDate(LocalDate.of(2017, 12, 31)).build()
+                ))
+                .build()));
+    }
+
+    @Test
+    public void foldLongLinesAtSeventyFiveOctets() throws Exception {
+        VEvent event = VEvent.builder()
+                .summary("Dovolená Štěpána Nováka a jeho žluťoučkého koně, který úpěl ďábelské ódy celý týden")
+                .build();
+
+        String ical = write(event);
+
+        for (String line : ical.split("\r\n")) {
+            assertThat(line.getBytes(StandardCharsets.UTF_8).length).isLessThanOrEqualTo(75);
+        }
+        assertThat(ical.replace("\r\n ", "")).contains("SUMMARY:Dovolená Štěpána Nováka a jeho žluťoučkého koně\\, který úpěl ďábelské ódy celý týden\r\n");
+    }
+
+    @Test
+    public void escapeText() throws Exception {
+        VEvent event = VEvent.builder()
+                .description("first; second\nthird\\")
+                .build();
+
+        assertThat(write(event)).contains("DESCRIPTION:first\\; second\\nthird\\\\\r\n");
+    }
+
+    private String write(ICal ical) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new ICalWriter(out).write(ical).flush();
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+}